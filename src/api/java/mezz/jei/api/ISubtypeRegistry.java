@@ -6,6 +6,8 @@ import java.util.function.Function;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 
+import mezz.jei.api.recipe.IMainThreadOnly;
+
 /**
  * Tell JEI how to interpret NBT tags and capabilities when comparing and looking up items.
  * <p>
@@ -16,6 +18,11 @@ import net.minecraft.item.ItemStack;
  * adding a subtype interpreter here will override that functionality.
  * <p>
  * Get the instance by implementing {@link IModPlugin#registerItemSubtypes(ISubtypeRegistry)}.
+ * <p>
+ * Subtype interpreters are not only called on the main thread.
+ * JEI builds some of its search trees in the background, and looks up the cached tooltips of items there by their unique id,
+ * which uses the interpreters. They should only read the item stack they are given.
+ * The uids of recipe ingredients are looked up on the main thread, see {@link IMainThreadOnly}.
  *
  * @since 3.6.4
  */
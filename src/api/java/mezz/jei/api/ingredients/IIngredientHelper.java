@@ -63,6 +63,7 @@ public interface IIngredientHelper<V> {
 
 	/**
 	 * Unique ID for use in comparing, blacklisting, and looking up ingredients.
+	 * This is also called off the main thread, when the search tree builder looks up the cached tooltips of ingredients.
 	 *
 	 * @since JEI 3.11.0
 	 */
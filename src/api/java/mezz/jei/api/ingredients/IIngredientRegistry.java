@@ -80,6 +80,38 @@ public interface IIngredientRegistry {
 	 */
 	<V> void removeIngredientsAtRuntime(IIngredientType<V> ingredientType, Collection<V> ingredients);
 
+	/**
+	 * Start a batch of runtime changes.
+	 * Until the matching {@link #commitBatch()}, {@link #addIngredientsAtRuntime(IIngredientType, Collection)} and
+	 * {@link #removeIngredientsAtRuntime(IIngredientType, Collection)} only record the changes,
+	 * so that many calls update the ingredient list once instead of once per call.
+	 * Batches can be nested, the changes are applied when the outermost batch is committed.
+	 * <p>
+	 * Every batch must be ended, or later runtime changes are recorded forever and never applied.
+	 * End it in a finally block: call {@link #commitBatch()} when all of the changes were made,
+	 * and {@link #abortBatch()} when making them threw an exception.
+	 *
+	 * @since JEI 4.16.2
+	 */
+	void beginBatch();
+
+	/**
+	 * Apply the changes recorded since the matching {@link #beginBatch()}.
+	 * An ingredient that was added and removed again in the same batch is only changed according to the last call.
+	 * The batch is ended even if applying the changes throws an exception.
+	 *
+	 * @since JEI 4.16.2
+	 */
+	void commitBatch();
+
+	/**
+	 * End the batch started by the matching {@link #beginBatch()} without applying any changes.
+	 * The changes of the outermost batch are all discarded, even when a nested batch is aborted and the outer ones are committed.
+	 *
+	 * @since JEI 4.16.2
+	 */
+	void abortBatch();
+
 	/**
 	 * Helper method to get ingredient type for an ingredient.
 	 *
@@ -0,0 +1,28 @@
+package mezz.jei.api.recipe;
+
+import java.util.List;
+
+import net.minecraft.item.Item;
+
+import mezz.jei.api.IModRegistry;
+import mezz.jei.api.ingredients.IIngredientHelper;
+
+/**
+ * JEI wraps the registered recipes and reads their ingredients on several threads while it starts.
+ * Implement this marker on an {@link IRecipeWrapperFactory}, an {@link IRecipeHandler} or an {@link IRecipeWrapper}
+ * if creating the recipe wrappers or calling {@link IRecipeWrapper#getIngredients} is not thread safe,
+ * and those recipes will be wrapped on the main thread instead.
+ * <p>
+ * Reading the ingredients includes {@link IIngredientHelper#expandSubtypes(List)} of the ingredients that are set,
+ * which calls {@link Item#getSubItems} for item stacks with a wildcard meta.
+ * The uids of the ingredients are looked up on the main thread, so {@link IIngredientHelper#getUniqueId(Object)}
+ * and subtype interpreters are not called on these threads.
+ * <p>
+ * A lambda factory can be marked with a cast, like
+ * {@code (IRecipeWrapperFactory<MyRecipe> & IMainThreadOnly) MyRecipeWrapper::new}
+ * when passing it to {@link IModRegistry#handleRecipes(Class, IRecipeWrapperFactory, String)}.
+ *
+ * @since JEI 4.16.2
+ */
+public interface IMainThreadOnly {
+}
@@ -0,0 +1,59 @@
+package mezz.jei.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import mezz.jei.Internal;
+import mezz.jei.gui.ingredients.IIngredientListElement;
+import mezz.jei.ingredients.IngredientBlacklistInternal;
+import mezz.jei.ingredients.IngredientListElementFactory;
+import mezz.jei.ingredients.IngredientRegistry;
+import mezz.jei.startup.ModIngredientRegistration;
+import mezz.jei.test.lib.TestIngredient;
+import mezz.jei.test.lib.TestIngredientHelper;
+import mezz.jei.test.lib.TestModIdHelper;
+import mezz.jei.test.lib.TestPlugin;
+import net.minecraft.util.NonNullList;
+
+/**
+ * A large synthetic ingredient registry built from the test plugin, shared by the benchmarks.
+ */
+final class BenchmarkIngredients {
+	private final IngredientBlacklistInternal blacklist = new IngredientBlacklistInternal();
+	private final TestModIdHelper modIdHelper = new TestModIdHelper();
+	private final IngredientRegistry ingredientRegistry;
+
+	public BenchmarkIngredients(int ingredientCount) {
+		TestPlugin testPlugin = new TestPlugin(ingredientCount);
+		ModIngredientRegistration modIngredientRegistry = new ModIngredientRegistration();
+		testPlugin.registerIngredients(modIngredientRegistry);
+		this.ingredientRegistry = modIngredientRegistry.createIngredientRegistry(modIdHelper, blacklist);
+		Internal.setIngredientRegistry(ingredientRegistry);
+	}
+
+	public IngredientBlacklistInternal getBlacklist() {
+		return blacklist;
+	}
+
+	public IngredientRegistry getIngredientRegistry() {
+		return ingredientRegistry;
+	}
+
+	public NonNullList<IIngredientListElement> createElements() {
+		return IngredientListElementFactory.createBaseList(ingredientRegistry, modIdHelper);
+	}
+
+	/**
+	 * The lowercase display names of the test ingredients, as the ingredient filter puts them into its search tree.
+	 */
+	public static List<String> createDisplayNames(int ingredientCount) {
+		TestIngredientHelper ingredientHelper = new TestIngredientHelper();
+		List<String> displayNames = new ArrayList<>(ingredientCount);
+		for (int i = 0; i < ingredientCount; i++) {
+			String displayName = ingredientHelper.getDisplayName(new TestIngredient(i));
+			displayNames.add(displayName.toLowerCase(Locale.ENGLISH));
+		}
+		return displayNames;
+	}
+}
@@ -0,0 +1,85 @@
+package mezz.jei.benchmark;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import mezz.jei.color.ColorGetter;
+import mezz.jei.color.ColorNamer;
+import mezz.jei.color.ColorUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Names random colors with the default color names, with the {@link ColorNamer} lookup table
+ * and with the scan over every named color that it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ColorNamerBenchmark {
+	private static final int COLOR_COUNT = 200_000;
+
+	private ImmutableMap<Color, String> colorNames;
+	private ColorNamer colorNamer;
+	private final List<Color> colors = new ArrayList<>();
+	private int nextColor;
+
+	@Setup
+	public void setup() {
+		ImmutableMap.Builder<Color, String> builder = ImmutableMap.builder();
+		for (String entry : ColorGetter.getColorDefaults()) {
+			String[] values = entry.split(":");
+			builder.put(new Color(Integer.decode("0x" + values[1])), values[0]);
+		}
+		this.colorNames = builder.build();
+		this.colorNamer = new ColorNamer(this.colorNames);
+
+		Random random = new Random(5678);
+		for (int i = 0; i < COLOR_COUNT; i++) {
+			colors.add(new Color(random.nextInt(0x1000000)));
+		}
+	}
+
+	@Benchmark
+	public Collection<String> lookup() {
+		return colorNamer.getColorNames(Collections.singletonList(getNextColor()), false);
+	}
+
+	@Benchmark
+	public String scan() {
+		Color color = getNextColor();
+		String closestColorName = null;
+		double closestColorDistance = Double.MAX_VALUE;
+		for (Map.Entry<Color, String> entry : colorNames.entrySet()) {
+			final double distance = ColorUtil.slowPerceptualColorDistanceSquared(entry.getKey(), color);
+			if (distance < closestColorDistance) {
+				closestColorDistance = distance;
+				closestColorName = entry.getValue();
+			}
+		}
+		return closestColorName;
+	}
+
+	private Color getNextColor() {
+		nextColor = (nextColor + 1) % colors.size();
+		return colors.get(nextColor);
+	}
+}
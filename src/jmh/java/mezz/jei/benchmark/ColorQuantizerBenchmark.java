@@ -0,0 +1,119 @@
+package mezz.jei.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mezz.jei.color.ColorQuantizer;
+import mezz.jei.color.ColorThief;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finds the palettes of generated sprites with {@link ColorThief} and the {@link ColorQuantizer} that replaced it.
+ * <p>
+ * ColorThief reads the pixels from an image, so it gets the image the sprite frames are stacked in, like the sprites were read before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ColorQuantizerBenchmark {
+	private static final int SPRITE_COUNT = 2000;
+
+	@Param({"2", "8"})
+	public int colorCount;
+
+	private final List<Sprite> sprites = new ArrayList<>();
+	private int nextSprite;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(5678);
+		for (int i = 0; i < SPRITE_COUNT; i++) {
+			sprites.add(createSprite(random));
+		}
+	}
+
+	@Benchmark
+	public int[][] colorThief() {
+		Sprite sprite = getNextSprite();
+		return ColorThief.getPalette(sprite.image, colorCount);
+	}
+
+	@Benchmark
+	public int[] colorQuantizer() {
+		Sprite sprite = getNextSprite();
+		return ColorQuantizer.getPalette(sprite.frames, sprite.width * sprite.height, colorCount);
+	}
+
+	private Sprite getNextSprite() {
+		nextSprite = (nextSprite + 1) % sprites.size();
+		return sprites.get(nextSprite);
+	}
+
+	/**
+	 * Sprites like the ones in texture packs: mostly a few shades of some base colors, with transparent areas,
+	 * odd sizes and sometimes several animation frames.
+	 */
+	private static Sprite createSprite(Random random) {
+		int width = random.nextInt(4) == 0 ? 1 + random.nextInt(32) : 16;
+		int height = random.nextInt(4) == 0 ? 1 + random.nextInt(32) : 16;
+		int frameCount = random.nextInt(5) == 0 ? 1 + random.nextInt(8) : 1;
+		int baseColorCount = 1 + random.nextInt(6);
+		int[] baseColors = new int[baseColorCount];
+		for (int i = 0; i < baseColorCount; i++) {
+			baseColors[i] = random.nextInt(0x1000000);
+		}
+		int shadeRange = random.nextInt(3) == 0 ? 256 : 1 + random.nextInt(48);
+		int transparency = random.nextInt(3);
+
+		int[][] frames = new int[frameCount][width * height];
+		for (int[] frame : frames) {
+			for (int i = 0; i < frame.length; i++) {
+				int alpha = random.nextInt(4) < transparency ? random.nextInt(256) : 255;
+				int baseColor = baseColors[random.nextInt(baseColorCount)];
+				int red = shade(baseColor >> 16 & 255, shadeRange, random);
+				int green = shade(baseColor >> 8 & 255, shadeRange, random);
+				int blue = shade(baseColor & 255, shadeRange, random);
+				frame[i] = alpha << 24 | red << 16 | green << 8 | blue;
+			}
+		}
+		return new Sprite(width, height, frames);
+	}
+
+	private static int shade(int value, int range, Random random) {
+		int shaded = value + random.nextInt(range) - range / 2;
+		return Math.max(0, Math.min(255, shaded));
+	}
+
+	private static class Sprite {
+		private final int width;
+		private final int height;
+		private final int[][] frames;
+		private final BufferedImage image;
+
+		public Sprite(int width, int height, int[][] frames) {
+			this.width = width;
+			this.height = height;
+			this.frames = frames;
+			this.image = new BufferedImage(width, height * frames.length, BufferedImage.TYPE_4BYTE_ABGR);
+			for (int i = 0; i < frames.length; i++) {
+				this.image.setRGB(0, i * height, width, height, frames[i], 0, width);
+			}
+		}
+	}
+}
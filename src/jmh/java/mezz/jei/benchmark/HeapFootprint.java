@@ -0,0 +1,25 @@
+package mezz.jei.benchmark;
+
+/**
+ * Measures the heap retained by data structures, for the footprint tools next to the benchmarks.
+ * <p>
+ * JMH measures time and allocation, not how much of the heap is still in use afterwards,
+ * so the footprint tools are plain main methods. Run them with the runtime classpath of the jmh source set
+ * and a heap large enough for the structures they build.
+ */
+final class HeapFootprint {
+	private HeapFootprint() {
+	}
+
+	public static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	public static String toKiB(long bytes) {
+		return (bytes / 1024) + " KiB";
+	}
+}
@@ -0,0 +1,78 @@
+package mezz.jei.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import mezz.jei.api.recipe.IRecipeWrapper;
+import mezz.jei.recipes.HiddenRecipes;
+import mezz.jei.test.lib.TestIngredient;
+import mezz.jei.test.lib.TestRecipeWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Gets the visible recipes of a category with some hidden recipes, as a {@link HiddenRecipes} view
+ * and by removing an identity set of the hidden recipes from a copy, the way the recipe registry filtered them before.
+ * Each call then gets one of the recipes, like the recipes gui showing a page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HiddenRecipesBenchmark {
+	@Param({"50000"})
+	public int recipeCount;
+
+	@Param({"1000"})
+	public int hiddenEvery;
+
+	private final List<IRecipeWrapper> categoryRecipes = new ArrayList<>();
+	private final Set<IRecipeWrapper> hiddenSet = Collections.newSetFromMap(new IdentityHashMap<>());
+	private HiddenRecipes hiddenRecipes;
+	private int nextIndex;
+
+	@Setup
+	public void setup() {
+		for (int i = 0; i < recipeCount; i++) {
+			categoryRecipes.add(new TestRecipeWrapper(Collections.singletonList(new TestIngredient(i)), Collections.emptyList()));
+		}
+		hiddenRecipes = new HiddenRecipes(categoryRecipes);
+		for (int i = 0; i < recipeCount; i += hiddenEvery) {
+			hiddenRecipes.hide(categoryRecipes.get(i));
+			hiddenSet.add(categoryRecipes.get(i));
+		}
+	}
+
+	@Benchmark
+	public IRecipeWrapper copyAndRemoveAll() {
+		List<IRecipeWrapper> visibleRecipes = new ArrayList<>(categoryRecipes);
+		visibleRecipes.removeAll(hiddenSet);
+		return visibleRecipes.get(getNextIndex(visibleRecipes.size()));
+	}
+
+	@Benchmark
+	public IRecipeWrapper view() {
+		List<IRecipeWrapper> visibleRecipes = hiddenRecipes.getVisibleCategoryRecipes();
+		return visibleRecipes.get(getNextIndex(visibleRecipes.size()));
+	}
+
+	private int getNextIndex(int size) {
+		nextIndex = (nextIndex + 1) % size;
+		return nextIndex;
+	}
+}
@@ -0,0 +1,70 @@
+package mezz.jei.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mezz.jei.gui.ingredients.IIngredientListElement;
+import mezz.jei.ingredients.IngredientFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Filters a large ingredient list with queries that match a few, some, most and all of the ingredients.
+ * <p>
+ * Search results for each word are cached across queries, so after the first iteration this measures
+ * combining the cached matches, hiding and ordering them, which is what happens every time the filter is invalidated.
+ * {@link SearchTreeBenchmark} measures the uncached word searches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngredientFilterBenchmark {
+	@Param({"100000"})
+	public int ingredientCount;
+
+	@Param({"testingredient#12345", "testingredient#123", "testingredient#1", "display", "display -testingredient#1"})
+	public String filterText;
+
+	private IngredientFilter ingredientFilter;
+
+	@Setup
+	public void setup() {
+		BenchmarkIngredients ingredients = new BenchmarkIngredients(ingredientCount);
+		this.ingredientFilter = new IngredientFilter(ingredients.getBlacklist());
+		this.ingredientFilter.addIngredients(ingredients.createElements());
+		this.ingredientFilter.setFilterText(filterText);
+	}
+
+	@TearDown
+	public void tearDown() {
+		ingredientFilter.setFilterText("");
+	}
+
+	@Benchmark
+	public List<IIngredientListElement> getIngredientList() {
+		ingredientFilter.invalidateCache();
+		return ingredientFilter.getIngredientList();
+	}
+
+	/**
+	 * Only looks up the first page, as the ingredient list overlay does.
+	 */
+	@Benchmark
+	public List<IIngredientListElement> getFirstPage() {
+		ingredientFilter.invalidateCache();
+		return ingredientFilter.getIngredients(0, 100);
+	}
+}
@@ -0,0 +1,115 @@
+package mezz.jei.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import mezz.jei.api.ingredients.IIngredientHelper;
+import mezz.jei.api.recipe.IIngredientType;
+import mezz.jei.api.recipe.IRecipeCategory;
+import mezz.jei.api.recipe.IRecipeWrapper;
+import mezz.jei.collect.ListMultiMap;
+import mezz.jei.collect.Table;
+import mezz.jei.collect.UidInterner;
+import mezz.jei.ingredients.IngredientRegistry;
+import mezz.jei.recipes.RecipeCategoryComparator;
+import mezz.jei.recipes.RecipeMap;
+import mezz.jei.test.lib.TestIngredient;
+import mezz.jei.test.lib.TestRecipeCategory;
+import mezz.jei.test.lib.TestRecipeWrapper;
+
+/**
+ * Prints the heap retained by a trimmed {@link RecipeMap} and by the string keyed maps it used before it interned uids,
+ * both filled with the same random recipes of the test ingredients.
+ * <p>
+ * The first argument changes the number of recipes, the default is 200000 recipes of 20000 ingredients.
+ */
+public final class RecipeMapFootprint {
+	private static final int INGREDIENT_COUNT = 20_000;
+	private static final int INPUT_COUNT = 3;
+	private static final int CATEGORY_COUNT = 20;
+
+	private RecipeMapFootprint() {
+	}
+
+	public static void main(String[] args) {
+		final int recipeCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		IngredientRegistry ingredientRegistry = new BenchmarkIngredients(INGREDIENT_COUNT).getIngredientRegistry();
+		IIngredientHelper<TestIngredient> ingredientHelper = ingredientRegistry.getIngredientHelper(TestIngredient.TYPE);
+		List<IRecipeCategory> recipeCategories = new ArrayList<>();
+		for (int i = 0; i < CATEGORY_COUNT; i++) {
+			recipeCategories.add(new TestRecipeCategory("category" + i));
+		}
+
+		Random random = new Random(5678);
+		List<TestRecipeWrapper> recipes = new ArrayList<>();
+		List<IRecipeCategory> recipeCategoriesOfRecipes = new ArrayList<>();
+		List<List<TestIngredient>> inputsOfRecipes = new ArrayList<>();
+		List<Map<IIngredientType, List>> ingredientsOfRecipes = new ArrayList<>();
+		for (int i = 0; i < recipeCount; i++) {
+			List<TestIngredient> inputs = new ArrayList<>();
+			for (int j = 0; j < INPUT_COUNT; j++) {
+				inputs.add(new TestIngredient(random.nextInt(INGREDIENT_COUNT)));
+			}
+			recipes.add(new TestRecipeWrapper(inputs, Collections.emptyList()));
+			recipeCategoriesOfRecipes.add(recipeCategories.get(random.nextInt(recipeCategories.size())));
+			inputsOfRecipes.add(inputs);
+			ingredientsOfRecipes.add(Collections.singletonMap(TestIngredient.TYPE, inputs));
+		}
+
+		long baseline = HeapFootprint.usedMemory();
+		RecipeMap recipeMap = new RecipeMap(new RecipeCategoryComparator(recipeCategories), ingredientRegistry, new UidInterner());
+		for (int i = 0; i < recipeCount; i++) {
+			recipeMap.addRecipe(recipes.get(i), recipeCategoriesOfRecipes.get(i), ingredientsOfRecipes.get(i));
+		}
+		recipeMap.trimToSize();
+		long recipeMapFootprint = HeapFootprint.usedMemory() - baseline;
+
+		baseline = HeapFootprint.usedMemory();
+		StringKeyedRecipeMap stringKeyedRecipeMap = new StringKeyedRecipeMap(ingredientHelper);
+		for (int i = 0; i < recipeCount; i++) {
+			stringKeyedRecipeMap.addRecipe(recipes.get(i), recipeCategoriesOfRecipes.get(i), inputsOfRecipes.get(i));
+		}
+		long stringKeyedFootprint = HeapFootprint.usedMemory() - baseline;
+
+		System.out.println("Recipe map footprint for " + recipeCount + " recipes: " +
+			"int keys " + HeapFootprint.toKiB(recipeMapFootprint) + ", " +
+			"string keys " + HeapFootprint.toKiB(stringKeyedFootprint));
+		// looking up afterwards keeps both reachable while they are measured
+		TestIngredient ingredient = new TestIngredient(0);
+		System.out.println("Recipe categories of " + ingredient + ": " +
+			"int keys " + recipeMap.getRecipeCategories(ingredient).size() + ", " +
+			"string keys " + stringKeyedRecipeMap.categoryUidMap.get(ingredientHelper.getUniqueId(ingredient)).size());
+	}
+
+	/**
+	 * The layout of {@link RecipeMap} before it interned uids: maps keyed by the uid strings of each recipe's ingredients.
+	 */
+	private static class StringKeyedRecipeMap {
+		private final Table<IRecipeCategory, String, List<IRecipeWrapper>> recipeWrapperTable = Table.hashBasedTable();
+		private final ListMultiMap<String, String> categoryUidMap = new ListMultiMap<>();
+		private final IIngredientHelper<TestIngredient> ingredientHelper;
+
+		public StringKeyedRecipeMap(IIngredientHelper<TestIngredient> ingredientHelper) {
+			this.ingredientHelper = ingredientHelper;
+		}
+
+		public void addRecipe(IRecipeWrapper recipeWrapper, IRecipeCategory recipeCategory, List<TestIngredient> ingredients) {
+			Set<String> uniqueIds = new HashSet<>();
+			for (TestIngredient ingredient : ingredients) {
+				String key = ingredientHelper.getUniqueId(ingredient);
+				if (uniqueIds.add(key)) {
+					recipeWrapperTable.computeIfAbsent(recipeCategory, key, ArrayList::new).add(recipeWrapper);
+					List<String> recipeCategoryUids = categoryUidMap.get(key);
+					if (!recipeCategoryUids.contains(recipeCategory.getUid())) {
+						recipeCategoryUids.add(recipeCategory.getUid());
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package mezz.jei.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.client.gui.inventory.GuiContainer;
+
+import com.google.common.collect.ImmutableTable;
+import mezz.jei.Internal;
+import mezz.jei.api.recipe.IFocus;
+import mezz.jei.api.recipe.IRecipeCategory;
+import mezz.jei.api.recipe.IRecipeHandler;
+import mezz.jei.api.recipe.IRecipeWrapper;
+import mezz.jei.collect.ListMultiMap;
+import mezz.jei.gui.Focus;
+import mezz.jei.gui.recipes.RecipeClickableArea;
+import mezz.jei.ingredients.IngredientFilter;
+import mezz.jei.recipes.RecipeRegistry;
+import mezz.jei.test.lib.TestIngredient;
+import mezz.jei.test.lib.TestRecipeCategory;
+import mezz.jei.test.lib.TestRecipeWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up the recipes of a focused ingredient in a large recipe registry, the way the recipes gui does when it opens.
+ * Each recipe uses a few random test ingredients, and every category has one catalyst.
+ * <p>
+ * The lookups cycle through {@link #focusCount} focuses. A few focuses are answered by the recipe lookup cache,
+ * like going back and forth in the recipes gui, while more focuses than the cache holds always miss it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2G")
+public class RecipeRegistryBenchmark {
+	private static final int INPUT_COUNT = 3;
+
+	@Param({"10000"})
+	public int ingredientCount;
+
+	@Param({"100000"})
+	public int recipeCount;
+
+	@Param({"20"})
+	public int categoryCount;
+
+	@Param({"INPUT", "OUTPUT"})
+	public IFocus.Mode mode;
+
+	@Param({"16", "1024"})
+	public int focusCount;
+
+	private RecipeRegistry recipeRegistry;
+	private final List<IFocus<TestIngredient>> focuses = new ArrayList<>();
+	private final List<IRecipeCategory<TestRecipeWrapper>> focusCategories = new ArrayList<>();
+	private int next;
+
+	@Setup
+	public void setup() {
+		BenchmarkIngredients ingredients = new BenchmarkIngredients(ingredientCount);
+		// categories are only visible while one of their catalysts is
+		IngredientFilter ingredientFilter = new IngredientFilter(ingredients.getBlacklist());
+		ingredientFilter.addIngredients(ingredients.createElements());
+		Internal.setIngredientFilter(ingredientFilter);
+		Random random = new Random(1234);
+
+		List<IRecipeCategory> recipeCategories = new ArrayList<>();
+		ListMultiMap<String, Object> recipes = new ListMultiMap<>();
+		ListMultiMap<String, Object> recipeCatalysts = new ListMultiMap<>();
+		for (int i = 0; i < categoryCount; i++) {
+			TestRecipeCategory recipeCategory = new TestRecipeCategory("category" + i);
+			recipeCategories.add(recipeCategory);
+			recipeCatalysts.put(recipeCategory.getUid(), new TestIngredient(random.nextInt(ingredientCount)));
+		}
+		for (int i = 0; i < recipeCount; i++) {
+			List<TestIngredient> inputs = new ArrayList<>();
+			for (int j = 0; j < INPUT_COUNT; j++) {
+				inputs.add(new TestIngredient(random.nextInt(ingredientCount)));
+			}
+			List<TestIngredient> outputs = Collections.singletonList(new TestIngredient(random.nextInt(ingredientCount)));
+			String recipeCategoryUid = recipeCategories.get(random.nextInt(categoryCount)).getUid();
+			recipes.put(recipeCategoryUid, new TestRecipeWrapper(inputs, outputs));
+		}
+
+		this.recipeRegistry = new RecipeRegistry(
+			recipeCategories,
+			Collections.<IRecipeHandler>emptyList(),
+			new ListMultiMap<>(),
+			ImmutableTable.of(),
+			Collections.emptyList(),
+			recipes,
+			new ListMultiMap<Class<? extends GuiContainer>, RecipeClickableArea>(),
+			recipeCatalysts,
+			ingredients.getIngredientRegistry(),
+			Collections.emptyList()
+		);
+
+		while (focuses.size() < focusCount) {
+			IFocus<TestIngredient> focus = new Focus<>(mode, new TestIngredient(random.nextInt(ingredientCount)));
+			List<IRecipeCategory> categories = recipeRegistry.getRecipeCategories(focus);
+			if (!categories.isEmpty()) {
+				focuses.add(focus);
+				//noinspection unchecked
+				focusCategories.add(categories.get(random.nextInt(categories.size())));
+			}
+		}
+	}
+
+	@Benchmark
+	public List<TestRecipeWrapper> getRecipeWrappers() {
+		int index = nextIndex();
+		return recipeRegistry.getRecipeWrappers(focusCategories.get(index), focuses.get(index));
+	}
+
+	@Benchmark
+	public List<IRecipeCategory> getRecipeCategories() {
+		return recipeRegistry.getRecipeCategories(focuses.get(nextIndex()));
+	}
+
+	/**
+	 * Opening the recipes gui for a focus looks up its categories, then the recipes of the first one.
+	 */
+	@Benchmark
+	public List<? extends IRecipeWrapper> getRecipeCategoriesAndWrappers() {
+		IFocus<TestIngredient> focus = focuses.get(nextIndex());
+		List<IRecipeCategory> recipeCategories = recipeRegistry.getRecipeCategories(focus);
+		//noinspection unchecked
+		IRecipeCategory<IRecipeWrapper> recipeCategory = recipeCategories.get(0);
+		return recipeRegistry.getRecipeWrappers(recipeCategory, focus);
+	}
+
+	private int nextIndex() {
+		next = (next + 1) % focusCount;
+		return next;
+	}
+}
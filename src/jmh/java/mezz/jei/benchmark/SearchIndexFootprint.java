@@ -0,0 +1,45 @@
+package mezz.jei.benchmark;
+
+import java.util.List;
+
+import mezz.jei.suffixtree.GeneralizedSuffixArray;
+import mezz.jei.suffixtree.GeneralizedSuffixTree;
+
+/**
+ * Prints the heap retained by a {@link GeneralizedSuffixArray} and by the {@link GeneralizedSuffixTree} it replaced,
+ * both trimmed after putting the display names of the test ingredients.
+ * <p>
+ * Run with -Xmx2G, the suffix tree of the default 200000 ingredients takes about a gigabyte.
+ * The first argument changes the number of ingredients.
+ */
+public final class SearchIndexFootprint {
+	private SearchIndexFootprint() {
+	}
+
+	public static void main(String[] args) {
+		final int ingredientCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		List<String> displayNames = BenchmarkIngredients.createDisplayNames(ingredientCount);
+
+		long baseline = HeapFootprint.usedMemory();
+		GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+		for (int i = 0; i < displayNames.size(); i++) {
+			array.put(displayNames.get(i), i);
+		}
+		array.trimToSize();
+		long arrayFootprint = HeapFootprint.usedMemory() - baseline;
+
+		baseline = HeapFootprint.usedMemory();
+		GeneralizedSuffixTree tree = new GeneralizedSuffixTree();
+		for (int i = 0; i < displayNames.size(); i++) {
+			tree.put(displayNames.get(i), i);
+		}
+		tree.trimToSize();
+		long treeFootprint = HeapFootprint.usedMemory() - baseline;
+
+		System.out.println("Search index footprint for " + ingredientCount + " ingredients: " +
+			"suffix array " + HeapFootprint.toKiB(arrayFootprint) + ", " +
+			"suffix tree " + HeapFootprint.toKiB(treeFootprint));
+		// searching afterwards keeps both reachable while they are measured
+		System.out.println("Results for \"1\": suffix array " + array.search("1").cardinality() + ", suffix tree " + tree.search("1").cardinality());
+	}
+}
@@ -0,0 +1,91 @@
+package mezz.jei.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mezz.jei.collect.IntBitmap;
+import mezz.jei.suffixtree.GeneralizedSuffixArray;
+import mezz.jei.suffixtree.GeneralizedSuffixTree;
+import mezz.jei.suffixtree.ISearchTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds and searches {@link GeneralizedSuffixTree} and the {@link GeneralizedSuffixArray} that replaced it,
+ * with the display names of the test ingredients.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2G")
+public class SearchTreeBenchmark {
+	public static final String SUFFIX_TREE = "GeneralizedSuffixTree";
+	public static final String SUFFIX_ARRAY = "GeneralizedSuffixArray";
+
+	@State(Scope.Benchmark)
+	public static class Keys {
+		@Param({"10000", "100000"})
+		public int ingredientCount;
+
+		@Param({SUFFIX_TREE, SUFFIX_ARRAY})
+		public String treeType;
+
+		private List<String> displayNames;
+
+		@Setup
+		public void setup() {
+			this.displayNames = BenchmarkIngredients.createDisplayNames(ingredientCount);
+		}
+
+		public ISearchTree createSearchTree() {
+			if (SUFFIX_TREE.equals(treeType)) {
+				GeneralizedSuffixTree tree = new GeneralizedSuffixTree();
+				for (int i = 0; i < displayNames.size(); i++) {
+					tree.put(displayNames.get(i), i);
+				}
+				return tree;
+			} else {
+				GeneralizedSuffixArray tree = new GeneralizedSuffixArray();
+				for (int i = 0; i < displayNames.size(); i++) {
+					tree.put(displayNames.get(i), i);
+				}
+				tree.index();
+				return tree;
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Tree {
+		@Param({"testingredient#12345", "testingredient#123", "testingredient#1", "display", "missing"})
+		public String word;
+
+		private ISearchTree searchTree;
+
+		@Setup
+		public void setup(Keys keys) {
+			this.searchTree = keys.createSearchTree();
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public ISearchTree put(Keys keys) {
+		return keys.createSearchTree();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public IntBitmap search(Tree tree) {
+		return tree.searchTree.search(tree.word);
+	}
+}
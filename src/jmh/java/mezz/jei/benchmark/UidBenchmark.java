@@ -0,0 +1,81 @@
+package mezz.jei.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.init.Bootstrap;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+
+import mezz.jei.runtime.SubtypeRegistry;
+import mezz.jei.startup.StackHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generates unique ids for the vanilla items, with and without subtypes and nbt.
+ * <p>
+ * The {@link StackHelper} uid cache is keyed by stack identity, so it is measured both enabled and disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UidBenchmark {
+	@Param({"NORMAL", "WILDCARD", "FULL"})
+	public StackHelper.UidMode uidMode;
+
+	@Param({"false", "true"})
+	public boolean uidCacheEnabled;
+
+	private StackHelper stackHelper;
+	private final List<ItemStack> itemStacks = new ArrayList<>();
+	private int nextItemStack;
+
+	@Setup
+	public void setup() {
+		Bootstrap.register();
+
+		this.stackHelper = new StackHelper(new SubtypeRegistry());
+		if (!uidCacheEnabled) {
+			this.stackHelper.disableUidCache();
+		}
+
+		for (Item item : Item.REGISTRY) {
+			int subtypeCount = item.getHasSubtypes() ? 4 : 1;
+			for (int meta = 0; meta < subtypeCount; meta++) {
+				ItemStack itemStack = new ItemStack(item, 1, meta);
+				if (!itemStack.isEmpty()) {
+					itemStacks.add(itemStack);
+				}
+			}
+			ItemStack itemStackWithNbt = new ItemStack(item);
+			if (!itemStackWithNbt.isEmpty()) {
+				NBTTagCompound tag = new NBTTagCompound();
+				tag.setString("name", item.getTranslationKey());
+				tag.setInteger("count", itemStacks.size());
+				itemStackWithNbt.setTagCompound(tag);
+				itemStacks.add(itemStackWithNbt);
+			}
+		}
+	}
+
+	@Benchmark
+	public String getUniqueIdentifierForStack() {
+		nextItemStack = (nextItemStack + 1) % itemStacks.size();
+		return stackHelper.getUniqueIdentifierForStack(itemStacks.get(nextItemStack), uidMode);
+	}
+}
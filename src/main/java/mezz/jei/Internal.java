@@ -101,6 +101,16 @@ public final class Internal {
 		MinecraftForge.EVENT_BUS.register(ingredientFilter);
 	}
 
+	/**
+	 * Unregisters the ingredient filter from the event bus and forgets it.
+	 */
+	public static void clearIngredientFilter() {
+		if (Internal.ingredientFilter != null) {
+			MinecraftForge.EVENT_BUS.unregister(Internal.ingredientFilter);
+			Internal.ingredientFilter = null;
+		}
+	}
+
 	public static void setGuiEventHandler(GuiEventHandler guiEventHandler) {
 		if (Internal.guiEventHandler != null) {
 			MinecraftForge.EVENT_BUS.unregister(Internal.guiEventHandler);
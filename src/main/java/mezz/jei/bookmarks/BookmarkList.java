@@ -201,6 +201,13 @@ public class BookmarkList implements IIngredientGridSource {
 		return ingredientListElements;
 	}
 
+	@Override
+	public List<IIngredientListElement> getIngredients(int start, int count) {
+		int from = Math.min(start, ingredientListElements.size());
+		int to = Math.min(from + count, ingredientListElements.size());
+		return new ArrayList<>(ingredientListElements.subList(from, to));
+	}
+
 	@Override
 	public int size() {
 		return ingredientListElements.size();
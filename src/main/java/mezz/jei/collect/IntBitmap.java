@@ -0,0 +1,649 @@
+package mezz.jei.collect;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntIterator;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+/**
+ * An immutable, compressed set of non-negative ints, laid out like a Roaring bitmap.
+ * <p>
+ * Values are grouped into chunks of 65536 by their high 16 bits.
+ * Each chunk is stored in the cheaper of two containers:
+ * a sorted char array of the low 16 bits when the chunk is sparse,
+ * or a fixed 8 KiB bitmap when it has more than {@link #ARRAY_CONTAINER_MAX_SIZE} values.
+ * <p>
+ * {@link #and}, {@link #or} and {@link #andNot} work a container at a time (merging arrays, or combining whole
+ * 64-bit words of bitmaps) and always return a new instance, so a bitmap can be shared and cached freely.
+ * Iteration is always in ascending order.
+ */
+public final class IntBitmap {
+	public static final IntBitmap EMPTY = new IntBitmap(new char[0], new Container[0], 0);
+
+	private static final int ARRAY_CONTAINER_MAX_SIZE = 4096;
+	private static final int BITMAP_CONTAINER_WORDS = 1 << 10;
+
+	/**
+	 * The high 16 bits of the values in each container, in ascending order.
+	 */
+	private final char[] keys;
+	private final Container[] containers;
+	private final int size;
+	private final int cardinality;
+
+	private IntBitmap(char[] keys, Container[] containers, int size) {
+		this.keys = keys;
+		this.containers = containers;
+		this.size = size;
+		int cardinality = 0;
+		for (int i = 0; i < size; i++) {
+			cardinality += containers[i].cardinality();
+		}
+		this.cardinality = cardinality;
+	}
+
+	public static IntBitmap of(int... values) {
+		Builder builder = new Builder(values.length);
+		for (int value : values) {
+			builder.add(value);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Returns a bitmap containing all the values from start (inclusive) to end (exclusive).
+	 */
+	public static IntBitmap range(int start, int end) {
+		if (start < 0 || end < start) {
+			throw new IllegalArgumentException("Invalid range: " + start + " to " + end);
+		}
+		Builder builder = new Builder(end - start);
+		for (int i = start; i < end; i++) {
+			builder.add(i);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Returns a bitmap containing the set bits of the given BitSet, copied a chunk of 64-bit words at a time.
+	 */
+	public static IntBitmap fromBitSet(BitSet bitSet) {
+		final long[] words = bitSet.toLongArray();
+		final int chunkCount = (words.length + BITMAP_CONTAINER_WORDS - 1) / BITMAP_CONTAINER_WORDS;
+		final char[] keys = new char[chunkCount];
+		final Container[] containers = new Container[chunkCount];
+		int size = 0;
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			int from = chunk * BITMAP_CONTAINER_WORDS;
+			long[] chunkWords = Arrays.copyOfRange(words, from, from + BITMAP_CONTAINER_WORDS);
+			Container container = BitmapContainer.create(chunkWords);
+			if (container.cardinality() > 0) {
+				keys[size] = (char) chunk;
+				containers[size] = container;
+				size++;
+			}
+		}
+		return size == 0 ? EMPTY : new IntBitmap(keys, containers, size);
+	}
+
+	public int cardinality() {
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	public boolean contains(int value) {
+		if (value < 0) {
+			return false;
+		}
+		int index = Arrays.binarySearch(keys, 0, size, highBits(value));
+		return index >= 0 && containers[index].contains(lowBits(value));
+	}
+
+	/**
+	 * Returns the values that are in both this and the other bitmap.
+	 */
+	public IntBitmap and(IntBitmap other) {
+		char[] newKeys = new char[Math.min(size, other.size)];
+		Container[] newContainers = new Container[newKeys.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) {
+			char key = keys[i];
+			char otherKey = other.keys[j];
+			if (key < otherKey) {
+				i++;
+			} else if (key > otherKey) {
+				j++;
+			} else {
+				Container container = containers[i].and(other.containers[j]);
+				if (container.cardinality() > 0) {
+					newKeys[count] = key;
+					newContainers[count] = container;
+					count++;
+				}
+				i++;
+				j++;
+			}
+		}
+		return new IntBitmap(newKeys, newContainers, count);
+	}
+
+	/**
+	 * Returns the values that are in this bitmap, the other bitmap, or both.
+	 */
+	public IntBitmap or(IntBitmap other) {
+		if (other.isEmpty()) {
+			return this;
+		} else if (isEmpty()) {
+			return other;
+		}
+		char[] newKeys = new char[size + other.size];
+		Container[] newContainers = new Container[newKeys.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < size || j < other.size) {
+			if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+				newKeys[count] = keys[i];
+				newContainers[count] = containers[i];
+				i++;
+			} else if (i >= size || keys[i] > other.keys[j]) {
+				newKeys[count] = other.keys[j];
+				newContainers[count] = other.containers[j];
+				j++;
+			} else {
+				newKeys[count] = keys[i];
+				newContainers[count] = containers[i].or(other.containers[j]);
+				i++;
+				j++;
+			}
+			count++;
+		}
+		return new IntBitmap(newKeys, newContainers, count);
+	}
+
+	/**
+	 * Returns the values that are in this bitmap but not in the other bitmap.
+	 */
+	public IntBitmap andNot(IntBitmap other) {
+		if (isEmpty() || other.isEmpty()) {
+			return this;
+		}
+		char[] newKeys = new char[size];
+		Container[] newContainers = new Container[size];
+		int count = 0;
+		int j = 0;
+		for (int i = 0; i < size; i++) {
+			char key = keys[i];
+			while (j < other.size && other.keys[j] < key) {
+				j++;
+			}
+			Container container = containers[i];
+			if (j < other.size && other.keys[j] == key) {
+				container = container.andNot(other.containers[j]);
+			}
+			if (container.cardinality() > 0) {
+				newKeys[count] = key;
+				newContainers[count] = container;
+				count++;
+			}
+		}
+		return new IntBitmap(newKeys, newContainers, count);
+	}
+
+	/**
+	 * Calls the consumer with every value, in ascending order.
+	 */
+	public void forEach(IntConsumer consumer) {
+		for (int i = 0; i < size; i++) {
+			containers[i].forEach(keys[i] << 16, consumer);
+		}
+	}
+
+	/**
+	 * Returns an iterator over the values in ascending order.
+	 */
+	public IntIterator iterator() {
+		return new BitmapIterator();
+	}
+
+	/**
+	 * Returns the values in ascending order.
+	 */
+	public int[] toArray() {
+		int[] values = new int[cardinality];
+		int offset = 0;
+		for (int i = 0; i < size; i++) {
+			offset = containers[i].toArray(keys[i] << 16, values, offset);
+		}
+		return values;
+	}
+
+	/**
+	 * Returns up to {@code length} values in ascending order, starting with the value at position {@code start}.
+	 * Whole containers before the start are skipped by their cardinality, without reading their values.
+	 */
+	public int[] toArray(int start, int length) {
+		if (start < 0 || length < 0) {
+			throw new IllegalArgumentException("Invalid range: " + length + " values from " + start);
+		}
+		final int count = Math.max(0, Math.min(length, cardinality - start));
+		int[] values = new int[count];
+		int offset = 0;
+		int skip = start;
+		for (int i = 0; i < size && offset < count; i++) {
+			Container container = containers[i];
+			if (skip >= container.cardinality()) {
+				skip -= container.cardinality();
+			} else {
+				offset = container.toArray(keys[i] << 16, skip, values, offset, count);
+				skip = 0;
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof IntBitmap)) {
+			return false;
+		}
+		IntBitmap other = (IntBitmap) obj;
+		return cardinality == other.cardinality && Arrays.equals(toArray(), other.toArray());
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(toArray());
+	}
+
+	@Override
+	public String toString() {
+		return "IntBitmap{cardinality=" + cardinality + ", containers=" + size + '}';
+	}
+
+	private static char highBits(int value) {
+		return (char) (value >>> 16);
+	}
+
+	private static char lowBits(int value) {
+		return (char) value;
+	}
+
+	/**
+	 * Collects values in any order, with duplicates, and builds an {@link IntBitmap} from them.
+	 */
+	public static class Builder {
+		private int[] values;
+		private int count;
+
+		public Builder() {
+			this(16);
+		}
+
+		public Builder(int expectedSize) {
+			this.values = new int[Math.max(expectedSize, 1)];
+		}
+
+		public Builder add(int value) {
+			if (value < 0) {
+				throw new IllegalArgumentException("Only non-negative values can be added: " + value);
+			}
+			if (count == values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[count++] = value;
+			return this;
+		}
+
+		public Builder addAll(IntBitmap bitmap) {
+			bitmap.forEach(this::add);
+			return this;
+		}
+
+		public IntBitmap build() {
+			if (count == 0) {
+				return EMPTY;
+			}
+			Arrays.sort(values, 0, count);
+
+			char[] keys = new char[highBits(values[count - 1]) - highBits(values[0]) + 1];
+			Container[] containers = new Container[keys.length];
+			int size = 0;
+			char[] chunk = new char[Math.min(count, 1 << 16)];
+			int i = 0;
+			while (i < count) {
+				char key = highBits(values[i]);
+				int chunkSize = 0;
+				int previous = -1;
+				for (; i < count && highBits(values[i]) == key; i++) {
+					char low = lowBits(values[i]);
+					if (low != previous) {
+						chunk[chunkSize++] = low;
+						previous = low;
+					}
+				}
+				keys[size] = key;
+				containers[size] = Container.fromSorted(chunk, chunkSize);
+				size++;
+			}
+			return new IntBitmap(keys, containers, size);
+		}
+	}
+
+	private class BitmapIterator extends AbstractIntIterator {
+		private int containerIndex = -1;
+		private int[] buffer = new int[0];
+		private int bufferSize;
+		private int bufferIndex;
+
+		@Override
+		public boolean hasNext() {
+			while (bufferIndex >= bufferSize) {
+				containerIndex++;
+				if (containerIndex >= size) {
+					return false;
+				}
+				Container container = containers[containerIndex];
+				if (buffer.length < container.cardinality()) {
+					buffer = new int[container.cardinality()];
+				}
+				bufferSize = container.toArray(keys[containerIndex] << 16, buffer, 0);
+				bufferIndex = 0;
+			}
+			return true;
+		}
+
+		@Override
+		public int nextInt() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return buffer[bufferIndex++];
+		}
+	}
+
+	private abstract static class Container {
+		static Container fromSorted(char[] values, int length) {
+			if (length > ARRAY_CONTAINER_MAX_SIZE) {
+				long[] words = new long[BITMAP_CONTAINER_WORDS];
+				for (int i = 0; i < length; i++) {
+					char value = values[i];
+					words[value >>> 6] |= 1L << value;
+				}
+				return new BitmapContainer(words, length);
+			}
+			return new ArrayContainer(Arrays.copyOf(values, length));
+		}
+
+		abstract int cardinality();
+
+		abstract boolean contains(char value);
+
+		abstract Container and(Container other);
+
+		abstract Container or(Container other);
+
+		abstract Container andNot(Container other);
+
+		abstract void forEach(int high, IntConsumer consumer);
+
+		/**
+		 * Writes the full values of this container to the array, returns the offset after the last one written.
+		 */
+		abstract int toArray(int high, int[] array, int offset);
+
+		/**
+		 * Like {@link #toArray(int, int[], int)}, but skips the first values and stops when the array is filled up to the limit.
+		 */
+		abstract int toArray(int high, int skip, int[] array, int offset, int limit);
+	}
+
+	private static class ArrayContainer extends Container {
+		private final char[] values;
+
+		ArrayContainer(char[] values) {
+			this.values = values;
+		}
+
+		@Override
+		int cardinality() {
+			return values.length;
+		}
+
+		@Override
+		boolean contains(char value) {
+			return Arrays.binarySearch(values, value) >= 0;
+		}
+
+		@Override
+		Container and(Container other) {
+			char[] result = new char[values.length];
+			int count = 0;
+			if (other instanceof ArrayContainer) {
+				char[] otherValues = ((ArrayContainer) other).values;
+				int i = 0;
+				int j = 0;
+				while (i < values.length && j < otherValues.length) {
+					if (values[i] < otherValues[j]) {
+						i++;
+					} else if (values[i] > otherValues[j]) {
+						j++;
+					} else {
+						result[count++] = values[i];
+						i++;
+						j++;
+					}
+				}
+			} else {
+				for (char value : values) {
+					if (other.contains(value)) {
+						result[count++] = value;
+					}
+				}
+			}
+			return new ArrayContainer(Arrays.copyOf(result, count));
+		}
+
+		@Override
+		Container or(Container other) {
+			if (other instanceof BitmapContainer) {
+				return other.or(this);
+			}
+			char[] otherValues = ((ArrayContainer) other).values;
+			char[] result = new char[values.length + otherValues.length];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < values.length || j < otherValues.length) {
+				if (j >= otherValues.length || (i < values.length && values[i] < otherValues[j])) {
+					result[count++] = values[i++];
+				} else if (i >= values.length || values[i] > otherValues[j]) {
+					result[count++] = otherValues[j++];
+				} else {
+					result[count++] = values[i];
+					i++;
+					j++;
+				}
+			}
+			return fromSorted(result, count);
+		}
+
+		@Override
+		Container andNot(Container other) {
+			char[] result = new char[values.length];
+			int count = 0;
+			for (char value : values) {
+				if (!other.contains(value)) {
+					result[count++] = value;
+				}
+			}
+			return new ArrayContainer(Arrays.copyOf(result, count));
+		}
+
+		@Override
+		void forEach(int high, IntConsumer consumer) {
+			for (char value : values) {
+				consumer.accept(high | value);
+			}
+		}
+
+		@Override
+		int toArray(int high, int[] array, int offset) {
+			for (char value : values) {
+				array[offset++] = high | value;
+			}
+			return offset;
+		}
+
+		@Override
+		int toArray(int high, int skip, int[] array, int offset, int limit) {
+			for (int i = skip; i < values.length && offset < limit; i++) {
+				array[offset++] = high | values[i];
+			}
+			return offset;
+		}
+	}
+
+	private static class BitmapContainer extends Container {
+		private final long[] words;
+		private final int cardinality;
+
+		BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * Uses the smaller container type for the given words.
+		 */
+		static Container create(long[] words) {
+			int cardinality = 0;
+			for (long word : words) {
+				cardinality += Long.bitCount(word);
+			}
+			if (cardinality > ARRAY_CONTAINER_MAX_SIZE) {
+				return new BitmapContainer(words, cardinality);
+			}
+			char[] values = new char[cardinality];
+			int count = 0;
+			for (int i = 0; i < words.length; i++) {
+				long word = words[i];
+				while (word != 0) {
+					values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayContainer(values);
+		}
+
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		boolean contains(char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		@Override
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+			long[] otherWords = ((BitmapContainer) other).words;
+			long[] result = new long[BITMAP_CONTAINER_WORDS];
+			for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++) {
+				result[i] = words[i] & otherWords[i];
+			}
+			return create(result);
+		}
+
+		@Override
+		Container or(Container other) {
+			long[] result = words.clone();
+			if (other instanceof ArrayContainer) {
+				for (char value : ((ArrayContainer) other).values) {
+					result[value >>> 6] |= 1L << value;
+				}
+			} else {
+				long[] otherWords = ((BitmapContainer) other).words;
+				for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++) {
+					result[i] |= otherWords[i];
+				}
+			}
+			return create(result);
+		}
+
+		@Override
+		Container andNot(Container other) {
+			long[] result = words.clone();
+			if (other instanceof ArrayContainer) {
+				for (char value : ((ArrayContainer) other).values) {
+					result[value >>> 6] &= ~(1L << value);
+				}
+			} else {
+				long[] otherWords = ((BitmapContainer) other).words;
+				for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++) {
+					result[i] &= ~otherWords[i];
+				}
+			}
+			return create(result);
+		}
+
+		@Override
+		void forEach(int high, IntConsumer consumer) {
+			for (int i = 0; i < words.length; i++) {
+				long word = words[i];
+				while (word != 0) {
+					consumer.accept(high | ((i << 6) + Long.numberOfTrailingZeros(word)));
+					word &= word - 1;
+				}
+			}
+		}
+
+		@Override
+		int toArray(int high, int[] array, int offset) {
+			for (int i = 0; i < words.length; i++) {
+				long word = words[i];
+				while (word != 0) {
+					array[offset++] = high | ((i << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return offset;
+		}
+
+		@Override
+		int toArray(int high, int skip, int[] array, int offset, int limit) {
+			for (int i = 0; i < words.length && offset < limit; i++) {
+				long word = words[i];
+				final int wordCardinality = Long.bitCount(word);
+				if (skip >= wordCardinality) {
+					skip -= wordCardinality;
+					continue;
+				}
+				while (word != 0 && offset < limit) {
+					if (skip > 0) {
+						skip--;
+					} else {
+						array[offset++] = high | ((i << 6) + Long.numberOfTrailingZeros(word));
+					}
+					word &= word - 1;
+				}
+			}
+			return offset;
+		}
+	}
+}
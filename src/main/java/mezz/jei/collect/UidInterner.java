@@ -0,0 +1,55 @@
+package mezz.jei.collect;
+
+import java.util.ArrayList;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Assigns dense int ids to unique id strings, so that indexes can be keyed by ints and keep only one copy of each string.
+ * Ids start at 0 and are never reused or removed.
+ * <p>
+ * Not thread safe, it is only used from the client thread like the indexes that use it.
+ */
+public class UidInterner {
+	public static final int NO_ID = -1;
+
+	private final Object2IntOpenHashMap<String> ids = new Object2IntOpenHashMap<>();
+	private final ArrayList<String> uids = new ArrayList<>();
+
+	public UidInterner() {
+		this.ids.defaultReturnValue(NO_ID);
+	}
+
+	/**
+	 * Returns the id of the uid, assigning the next one if it is new.
+	 */
+	public int intern(String uid) {
+		int id = ids.getInt(uid);
+		if (id == NO_ID) {
+			id = uids.size();
+			uids.add(uid);
+			ids.put(uid, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the id of the uid, or {@link #NO_ID} if it was never interned. Unlike {@link #intern(String)} this never adds one.
+	 */
+	public int getId(String uid) {
+		return ids.getInt(uid);
+	}
+
+	public String getUid(int id) {
+		return uids.get(id);
+	}
+
+	public int size() {
+		return uids.size();
+	}
+
+	public void trimToSize() {
+		ids.trim();
+		uids.trimToSize();
+	}
+}
@@ -2,10 +2,14 @@ package mezz.jei.color;
 
 import javax.annotation.Nullable;
 import java.awt.Color;
-import java.awt.image.BufferedImage;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
@@ -23,6 +27,7 @@ import net.minecraft.item.ItemBlock;
 import net.minecraft.item.ItemStack;
 
 import com.google.common.base.Preconditions;
+import mezz.jei.util.ErrorUtil;
 import mezz.jei.util.MathUtil;
 
 public final class ColorGetter {
@@ -65,6 +70,8 @@ public final class ColorGetter {
 		"Silver:C0C0C0"
 	};
 
+	private static final SpritePaletteCache paletteCache = new SpritePaletteCache();
+
 	private ColorGetter() {
 
 	}
@@ -81,6 +88,46 @@ public final class ColorGetter {
 		}
 	}
 
+	/**
+	 * Takes the texture data of the items on the client thread and starts quantizing it on a worker pool,
+	 * so that {@link #getColors(ItemStack, int)} finds the palettes ready later.
+	 * Palettes are loaded from the cache file first, and saved to it once they have all been quantized.
+	 */
+	public static void prefetchColors(Collection<ItemStack> itemStacks, int colorCount, @Nullable File cacheFile) {
+		ErrorUtil.assertMainThread();
+		if (cacheFile != null) {
+			paletteCache.load(cacheFile);
+		}
+
+		final Set<TextureAtlasSprite> sprites = Collections.newSetFromMap(new IdentityHashMap<>());
+		final List<CompletableFuture<int[]>> palettes = new ArrayList<>();
+		for (ItemStack itemStack : itemStacks) {
+			try {
+				TextureAtlasSprite textureAtlasSprite = unsafeGetTextureAtlasSprite(itemStack);
+				if (textureAtlasSprite != null && sprites.add(textureAtlasSprite)) {
+					SpriteSnapshot snapshot = SpriteSnapshot.create(textureAtlasSprite);
+					if (snapshot != null) {
+						palettes.add(paletteCache.prefetch(snapshot, colorCount));
+					}
+				}
+			} catch (RuntimeException | LinkageError ignored) {
+				// getColors returns no colors for it
+			}
+		}
+
+		if (cacheFile != null) {
+			CompletableFuture.allOf(palettes.toArray(new CompletableFuture[0]))
+				.thenRun(() -> paletteCache.save(cacheFile));
+		}
+	}
+
+	/**
+	 * Called when the textures are stitched, because the sprites may have new texture data.
+	 */
+	public static void onTexturesReloaded() {
+		paletteCache.clearSprites();
+	}
+
 	private static List<Color> unsafeGetColors(ItemStack itemStack, int colorCount) {
 		final Item item = itemStack.getItem();
 		if (itemStack.isEmpty()) {
@@ -98,6 +145,24 @@ public final class ColorGetter {
 		}
 	}
 
+	@Nullable
+	private static TextureAtlasSprite unsafeGetTextureAtlasSprite(ItemStack itemStack) {
+		final Item item = itemStack.getItem();
+		if (itemStack.isEmpty()) {
+			return null;
+		} else if (item instanceof ItemBlock) {
+			final ItemBlock itemBlock = (ItemBlock) item;
+			final Block block = itemBlock.getBlock();
+			//noinspection ConstantConditions
+			if (block == null) {
+				return null;
+			}
+			return getTextureAtlasSprite(getBlockState(itemStack, block));
+		} else {
+			return getTextureAtlasSprite(itemStack);
+		}
+	}
+
 	private static List<Color> getItemColors(ItemStack itemStack, int colorCount) {
 		final ItemColors itemColors = Minecraft.getMinecraft().getItemColors();
 		final int renderColor = itemColors.colorMultiplier(itemStack, 0);
@@ -106,14 +171,7 @@ public final class ColorGetter {
 	}
 
 	private static List<Color> getBlockColors(ItemStack itemStack, Block block, int colorCount) {
-		final int meta = itemStack.getMetadata();
-		IBlockState blockState;
-		try {
-			blockState = block.getStateFromMeta(meta);
-		} catch (RuntimeException | LinkageError ignored) {
-			blockState = block.getDefaultState();
-		}
-
+		final IBlockState blockState = getBlockState(itemStack, block);
 		final BlockColors blockColors = Minecraft.getMinecraft().getBlockColors();
 		final int renderColor = blockColors.colorMultiplier(blockState, null, null, 0);
 		final TextureAtlasSprite textureAtlasSprite = getTextureAtlasSprite(blockState);
@@ -123,45 +181,33 @@ public final class ColorGetter {
 		return getColors(textureAtlasSprite, renderColor, colorCount);
 	}
 
-	public static List<Color> getColors(TextureAtlasSprite textureAtlasSprite, int renderColor, int colorCount) {
-		final BufferedImage bufferedImage = getBufferedImage(textureAtlasSprite);
-		if (bufferedImage == null) {
-			return Collections.emptyList();
-		}
-		final List<Color> colors = new ArrayList<>(colorCount);
-		final int[][] palette = ColorThief.getPalette(bufferedImage, colorCount);
-		if (palette != null) {
-			for (int[] colorInt : palette) {
-				int red = (int) ((colorInt[0] - 1) * (float) (renderColor >> 16 & 255) / 255.0F);
-				int green = (int) ((colorInt[1] - 1) * (float) (renderColor >> 8 & 255) / 255.0F);
-				int blue = (int) ((colorInt[2] - 1) * (float) (renderColor & 255) / 255.0F);
-				red = MathUtil.clamp(red, 0, 255);
-				green = MathUtil.clamp(green, 0, 255);
-				blue = MathUtil.clamp(blue, 0, 255);
-				Color color = new Color(red, green, blue);
-				colors.add(color);
-			}
+	private static IBlockState getBlockState(ItemStack itemStack, Block block) {
+		final int meta = itemStack.getMetadata();
+		try {
+			return block.getStateFromMeta(meta);
+		} catch (RuntimeException | LinkageError ignored) {
+			return block.getDefaultState();
 		}
-		return colors;
 	}
 
-	@Nullable
-	private static BufferedImage getBufferedImage(TextureAtlasSprite textureAtlasSprite) {
-		final int iconWidth = textureAtlasSprite.getIconWidth();
-		final int iconHeight = textureAtlasSprite.getIconHeight();
-		final int frameCount = textureAtlasSprite.getFrameCount();
-		if (iconWidth <= 0 || iconHeight <= 0 || frameCount <= 0) {
-			return null;
+	public static List<Color> getColors(TextureAtlasSprite textureAtlasSprite, int renderColor, int colorCount) {
+		final SpriteSnapshot snapshot = SpriteSnapshot.create(textureAtlasSprite);
+		if (snapshot == null) {
+			return Collections.emptyList();
 		}
-
-		BufferedImage bufferedImage = new BufferedImage(iconWidth, iconHeight * frameCount, BufferedImage.TYPE_4BYTE_ABGR);
-		for (int i = 0; i < frameCount; i++) {
-			int[][] frameTextureData = textureAtlasSprite.getFrameTextureData(i);
-			int[] largestMipMapTextureData = frameTextureData[0];
-			bufferedImage.setRGB(0, i * iconHeight, iconWidth, iconHeight, largestMipMapTextureData, 0, iconWidth);
+		final int[] palette = paletteCache.getPalette(snapshot, colorCount);
+		final List<Color> colors = new ArrayList<>(palette.length / 3);
+		for (int i = 0; i + 2 < palette.length; i += 3) {
+			int red = (int) ((palette[i] - 1) * (float) (renderColor >> 16 & 255) / 255.0F);
+			int green = (int) ((palette[i + 1] - 1) * (float) (renderColor >> 8 & 255) / 255.0F);
+			int blue = (int) ((palette[i + 2] - 1) * (float) (renderColor & 255) / 255.0F);
+			red = MathUtil.clamp(red, 0, 255);
+			green = MathUtil.clamp(green, 0, 255);
+			blue = MathUtil.clamp(blue, 0, 255);
+			Color color = new Color(red, green, blue);
+			colors.add(color);
 		}
-
-		return bufferedImage;
+		return colors;
 	}
 
 	@Nullable
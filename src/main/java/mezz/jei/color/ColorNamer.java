@@ -8,13 +8,70 @@ import java.util.Map;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import mezz.jei.util.Translator;
 
+/**
+ * Names colors after the closest of the configured search colors.
+ * <p>
+ * The color space is split into cells of 8x8x8 colors, and each cell lists the named colors that can be the closest
+ * to any color in it. Most cells only have one, so naming a color is usually a single array read,
+ * and otherwise only a few named colors have to be compared.
+ */
 public class ColorNamer {
-	private final ImmutableMap<Color, String> colorNames;
+	private static final int CELL_BITS = 5;
+	private static final int CELL_SHIFT = 8 - CELL_BITS;
+	private static final int CELL_SIZE = 1 << CELL_SHIFT;
+	private static final int CELLS_PER_SIDE = 1 << CELL_BITS;
+
+	private final String[] names;
+	private final int[][] colors;
+	/**
+	 * The candidates of a cell are at {@code cellStarts[cell]} until {@code cellStarts[cell + 1]} in {@link #candidates}.
+	 */
+	private final int[] cellStarts;
+	/**
+	 * Indexes into {@link #names}, in the order of the configured colors so that ties go to the same color as before.
+	 */
+	private final int[] candidates;
 
 	public ColorNamer(ImmutableMap<Color, String> colorNames) {
-		this.colorNames = colorNames;
+		this.names = new String[colorNames.size()];
+		this.colors = new int[colorNames.size()][];
+		int i = 0;
+		for (Map.Entry<Color, String> entry : colorNames.entrySet()) {
+			final Color color = entry.getKey();
+			this.names[i] = entry.getValue();
+			this.colors[i] = new int[]{color.getRed(), color.getGreen(), color.getBlue()};
+			i++;
+		}
+
+		final int cellCount = CELLS_PER_SIDE * CELLS_PER_SIDE * CELLS_PER_SIDE;
+		this.cellStarts = new int[cellCount + 1];
+		final IntArrayList candidates = new IntArrayList(cellCount);
+		final double[] lowerBounds = new double[this.colors.length];
+		final double[] upperBounds = new double[this.colors.length];
+		for (int cell = 0; cell < cellCount; cell++) {
+			this.cellStarts[cell] = candidates.size();
+			if (this.colors.length == 0) {
+				continue;
+			}
+			final int red = (cell >> (2 * CELL_BITS)) << CELL_SHIFT;
+			final int green = ((cell >> CELL_BITS) & (CELLS_PER_SIDE - 1)) << CELL_SHIFT;
+			final int blue = (cell & (CELLS_PER_SIDE - 1)) << CELL_SHIFT;
+			double closestUpperBound = Double.MAX_VALUE;
+			for (int j = 0; j < this.colors.length; j++) {
+				getDistanceBounds(this.colors[j], red, green, blue, lowerBounds, upperBounds, j);
+				closestUpperBound = Math.min(closestUpperBound, upperBounds[j]);
+			}
+			for (int j = 0; j < this.colors.length; j++) {
+				if (lowerBounds[j] <= closestUpperBound) {
+					candidates.add(j);
+				}
+			}
+		}
+		this.cellStarts[cellCount] = candidates.size();
+		this.candidates = candidates.toIntArray();
 	}
 
 	public Collection<String> getColorNames(Iterable<Color> colors, boolean lowercase) {
@@ -34,22 +91,91 @@ public class ColorNamer {
 
 	@Nullable
 	private String getClosestColorName(Color color) {
-		if (colorNames.isEmpty()) {
+		if (names.length == 0) {
 			return null;
 		}
 
-		String closestColorName = null;
-		Double closestColorDistance = Double.MAX_VALUE;
+		final int red = color.getRed();
+		final int green = color.getGreen();
+		final int blue = color.getBlue();
+		final int cell = (red >> CELL_SHIFT) << (2 * CELL_BITS) | (green >> CELL_SHIFT) << CELL_BITS | (blue >> CELL_SHIFT);
+		final int start = cellStarts[cell];
+		final int end = cellStarts[cell + 1];
+		if (end - start == 1) {
+			return names[candidates[start]];
+		}
 
-		for (Map.Entry<Color, String> entry : colorNames.entrySet()) {
-			final Color namedColor = entry.getKey();
-			final Double distance = ColorUtil.slowPerceptualColorDistanceSquared(namedColor, color);
+		final int[] colorInts = {red, green, blue};
+		String closestColorName = null;
+		double closestColorDistance = Double.MAX_VALUE;
+		for (int i = start; i < end; i++) {
+			final int candidate = candidates[i];
+			final double distance = ColorUtil.slowPerceptualColorDistanceSquared(colors[candidate], colorInts);
 			if (distance < closestColorDistance) {
 				closestColorDistance = distance;
-				closestColorName = entry.getValue();
+				closestColorName = names[candidate];
 			}
 		}
 
 		return closestColorName;
 	}
+
+	/**
+	 * Finds bounds for {@link ColorUtil#slowPerceptualColorDistanceSquared(int[], int[])}
+	 * between the named color and every color in the cell starting at the given color.
+	 * Each part of the distance is bounded on its own, so the bounds are not tight, but they are never wrong.
+	 */
+	private static void getDistanceBounds(int[] namedColor, int red, int green, int blue, double[] lowerBounds, double[] upperBounds, int index) {
+		final int namedRed = namedColor[0];
+		final int namedGreen = namedColor[1];
+		final int namedBlue = namedColor[2];
+
+		final int redMeanMin = (namedRed + red) >> 1;
+		final int redMeanMax = (namedRed + red + CELL_SIZE - 1) >> 1;
+		final int redSquaredMin = minSquared(namedRed - red - CELL_SIZE + 1, namedRed - red);
+		final int redSquaredMax = maxSquared(namedRed - red - CELL_SIZE + 1, namedRed - red);
+		final int greenSquaredMin = minSquared(namedGreen - green - CELL_SIZE + 1, namedGreen - green);
+		final int greenSquaredMax = maxSquared(namedGreen - green - CELL_SIZE + 1, namedGreen - green);
+		final int blueSquaredMin = minSquared(namedBlue - blue - CELL_SIZE + 1, namedBlue - blue);
+		final int blueSquaredMax = maxSquared(namedBlue - blue - CELL_SIZE + 1, namedBlue - blue);
+		final double colorDistanceMin = (((512 + redMeanMin) * redSquaredMin) >> 8) + 4 * greenSquaredMin + (((767 - redMeanMax) * blueSquaredMin) >> 8);
+		final double colorDistanceMax = (((512 + redMeanMax) * redSquaredMax) >> 8) + 4 * greenSquaredMax + (((767 - redMeanMin) * blueSquaredMax) >> 8);
+
+		final int namedGrey = (namedRed + namedGreen + namedBlue) / 3;
+		final int namedGreyDistance = Math.abs(namedGrey - namedRed) + Math.abs(namedGrey - namedGreen) + Math.abs(namedGrey - namedBlue);
+		final int greyMin = (red + green + blue) / 3;
+		final int greyMax = (red + green + blue + 3 * (CELL_SIZE - 1)) / 3;
+		final int greyDistanceMin = minAbs(greyMin - red - CELL_SIZE + 1, greyMax - red) +
+			minAbs(greyMin - green - CELL_SIZE + 1, greyMax - green) +
+			minAbs(greyMin - blue - CELL_SIZE + 1, greyMax - blue);
+		final int greyDistanceMax = maxAbs(greyMin - red - CELL_SIZE + 1, greyMax - red) +
+			maxAbs(greyMin - green - CELL_SIZE + 1, greyMax - green) +
+			maxAbs(greyMin - blue - CELL_SIZE + 1, greyMax - blue);
+		final int greyDifferenceMin = minSquared(namedGreyDistance - greyDistanceMax, namedGreyDistance - greyDistanceMin);
+		final int greyDifferenceMax = maxSquared(namedGreyDistance - greyDistanceMax, namedGreyDistance - greyDistanceMin);
+
+		lowerBounds[index] = colorDistanceMin + (greyDifferenceMin / 10.0);
+		upperBounds[index] = colorDistanceMax + (greyDifferenceMax / 10.0);
+	}
+
+	private static int minAbs(int min, int max) {
+		if (min <= 0 && max >= 0) {
+			return 0;
+		}
+		return Math.min(Math.abs(min), Math.abs(max));
+	}
+
+	private static int maxAbs(int min, int max) {
+		return Math.max(Math.abs(min), Math.abs(max));
+	}
+
+	private static int minSquared(int min, int max) {
+		final int abs = minAbs(min, max);
+		return abs * abs;
+	}
+
+	private static int maxSquared(int min, int max) {
+		final int abs = maxAbs(min, max);
+		return abs * abs;
+	}
 }
@@ -0,0 +1,434 @@
+package mezz.jei.color;
+
+import java.util.Arrays;
+
+/**
+ * The modified median cut quantization of {@link ColorThief} and {@link MMCQ}, on primitive scratch buffers.
+ * <p>
+ * Pixels are read as ARGB straight from the frames of a sprite, without a {@link java.awt.image.BufferedImage},
+ * and boxes are kept in int arrays instead of objects, so quantizing a sprite only allocates the palette it returns.
+ * The palettes are the same as {@link ColorThief#getPalette(java.awt.image.BufferedImage, int)} with the default quality,
+ * including the quirks of the original, so that saved palettes and color names do not change.
+ * <p>
+ * Every thread has its own scratch buffers.
+ */
+public final class ColorQuantizer {
+	private static final int SIGBITS = 5;
+	private static final int RSHIFT = 8 - SIGBITS;
+	private static final int MULT = 1 << RSHIFT;
+	private static final int HISTOSIZE = 1 << (3 * SIGBITS);
+	private static final int VBOX_LENGTH = 1 << SIGBITS;
+	private static final double FRACT_BY_POPULATION = 0.75;
+	private static final int MAX_ITERATIONS = 1000;
+	/**
+	 * Only every second pixel is sampled, the default quality of {@link ColorThief}.
+	 */
+	private static final int QUALITY = 2;
+	private static final int MIN_ALPHA = 125;
+	private static final int UNKNOWN_COUNT = -1;
+	private static final int[] EMPTY_PALETTE = new int[0];
+
+	private static final int SORT_BY_COUNT = 0;
+	private static final int SORT_BY_PRODUCT = 1;
+
+	private static final ThreadLocal<ColorQuantizer> SCRATCH = ThreadLocal.withInitial(ColorQuantizer::new);
+
+	private final int[] histo = new int[HISTOSIZE];
+	/**
+	 * The histogram entries that are not zero, so only they have to be cleared afterwards.
+	 */
+	private int[] usedColors = new int[256];
+	private int usedColorCount;
+	private final int[] partialSum = new int[VBOX_LENGTH];
+	private final int[] lookaheadSum = new int[VBOX_LENGTH];
+
+	/**
+	 * The bounds and cached pixel count of each box.
+	 * Every box is in the queue exactly once, so a box that is cut is reused for the first half.
+	 */
+	private int[] r1 = new int[8];
+	private int[] r2 = new int[8];
+	private int[] g1 = new int[8];
+	private int[] g2 = new int[8];
+	private int[] b1 = new int[8];
+	private int[] b2 = new int[8];
+	private int[] counts = new int[8];
+	private int boxCount;
+	/**
+	 * The boxes in priority order, the last one is cut next.
+	 */
+	private int[] queue = new int[8];
+	private int queueSize;
+
+	private ColorQuantizer() {
+	}
+
+	/**
+	 * Returns up to {@code maxColors} colors of the frames, the most important first.
+	 * Each color takes three entries: red, green and blue.
+	 * Like the original, a component can be 256 for a box at the very end of the color space.
+	 *
+	 * @param frames    the ARGB pixels of each frame, sampled as if the frames were stacked into one image
+	 * @param frameSize the number of pixels of each frame
+	 * @param maxColors the size of the palette, from 1 to 256
+	 */
+	public static int[] getPalette(int[][] frames, int frameSize, int maxColors) {
+		if (maxColors < 1 || maxColors > 256) {
+			return EMPTY_PALETTE;
+		}
+		ColorQuantizer quantizer = SCRATCH.get();
+		try {
+			return quantizer.quantize(frames, frameSize, maxColors);
+		} finally {
+			quantizer.clear();
+		}
+	}
+
+	private int[] quantize(int[][] frames, int frameSize, int maxColors) {
+		if (!addPixels(frames, frameSize)) {
+			return EMPTY_PALETTE;
+		}
+
+		// Round up to have the same behaviour as in JavaScript
+		int target = (int) Math.ceil(FRACT_BY_POPULATION * maxColors);
+
+		// first set of colors, sorted by population
+		iterate(SORT_BY_COUNT, target);
+
+		// Re-sort by the product of pixel occupancy times the size in color space.
+		sort(SORT_BY_PRODUCT);
+
+		// next set - generate the median cuts using the (npix * vol) sorting.
+		iterate(SORT_BY_PRODUCT, maxColors - queueSize);
+
+		// the highest elements come first in the palette
+		int[] palette = new int[queueSize * 3];
+		for (int i = 0; i < queueSize; i++) {
+			average(queue[queueSize - 1 - i], palette, i * 3);
+		}
+		return palette;
+	}
+
+	/**
+	 * Fills the histogram and creates the first box.
+	 * Returns false if no pixel is opaque enough.
+	 */
+	private boolean addPixels(int[][] frames, int frameSize) {
+		int rmin = 1000000, rmax = 0;
+		int gmin = 1000000, gmax = 0;
+		int bmin = 1000000, bmax = 0;
+		int pixelCount = 0;
+
+		for (int frame = 0; frame < frames.length; frame++) {
+			final int[] pixels = frames[frame];
+			final int start = (int) ((QUALITY - (long) frame * frameSize % QUALITY) % QUALITY);
+			for (int i = start; i < frameSize; i += QUALITY) {
+				final int argb = pixels[i];
+				if ((argb >>> 24) < MIN_ALPHA) {
+					continue;
+				}
+				final int rval = (argb >> 16 & 255) >> RSHIFT;
+				final int gval = (argb >> 8 & 255) >> RSHIFT;
+				final int bval = (argb & 255) >> RSHIFT;
+				final int index = MMCQ.getColorIndex(rval, gval, bval);
+				if (histo[index]++ == 0) {
+					if (usedColorCount == usedColors.length) {
+						usedColors = Arrays.copyOf(usedColors, usedColorCount * 2);
+					}
+					usedColors[usedColorCount++] = index;
+				}
+				pixelCount++;
+
+				// a new minimum is never checked against the maximum, as in the original
+				if (rval < rmin) {
+					rmin = rval;
+				} else if (rval > rmax) {
+					rmax = rval;
+				}
+				if (gval < gmin) {
+					gmin = gval;
+				} else if (gval > gmax) {
+					gmax = gval;
+				}
+				if (bval < bmin) {
+					bmin = bval;
+				} else if (bval > bmax) {
+					bmax = bval;
+				}
+			}
+		}
+
+		if (pixelCount == 0) {
+			return false;
+		}
+		final int box = newBox(rmin, rmax, gmin, gmax, bmin, bmax);
+		queue[queueSize++] = box;
+		return true;
+	}
+
+	private void clear() {
+		for (int i = 0; i < usedColorCount; i++) {
+			histo[usedColors[i]] = 0;
+		}
+		usedColorCount = 0;
+		boxCount = 0;
+		queueSize = 0;
+	}
+
+	private void iterate(int sortOrder, int target) {
+		int ncolors = 1;
+		int niters = 0;
+
+		while (niters < MAX_ITERATIONS) {
+			final int box = queue[queueSize - 1];
+			if (count(box) == 0) {
+				sort(sortOrder);
+				niters++;
+				continue;
+			}
+			queueSize--;
+
+			if (cut(box)) {
+				ncolors++;
+			}
+			sort(sortOrder);
+
+			if (ncolors >= target) {
+				return;
+			}
+			if (niters++ > MAX_ITERATIONS) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Cuts the box at the median of its longest side and adds both halves to the queue.
+	 * Returns false if the box only has one pixel and is added back as it is.
+	 */
+	private boolean cut(int box) {
+		if (count(box) == 1) {
+			queue[queueSize++] = box;
+			return false;
+		}
+
+		final int rw = r2[box] - r1[box] + 1;
+		final int gw = g2[box] - g1[box] + 1;
+		final int bw = b2[box] - b1[box] + 1;
+		final int maxw = Math.max(Math.max(rw, gw), bw);
+
+		// Find the partial sum arrays along the selected axis.
+		Arrays.fill(partialSum, -1);
+		Arrays.fill(lookaheadSum, -1);
+		int total = 0;
+		final int dim1;
+		final int dim2;
+		if (maxw == rw) {
+			dim1 = r1[box];
+			dim2 = r2[box];
+			for (int i = dim1; i <= dim2; i++) {
+				total += sum(i, i, g1[box], g2[box], b1[box], b2[box]);
+				partialSum[i] = total;
+			}
+		} else if (maxw == gw) {
+			dim1 = g1[box];
+			dim2 = g2[box];
+			for (int i = dim1; i <= dim2; i++) {
+				total += sum(r1[box], r2[box], i, i, b1[box], b2[box]);
+				partialSum[i] = total;
+			}
+		} else {
+			dim1 = b1[box];
+			dim2 = b2[box];
+			for (int i = dim1; i <= dim2; i++) {
+				total += sum(r1[box], r2[box], g1[box], g2[box], i, i);
+				partialSum[i] = total;
+			}
+		}
+		for (int i = 0; i < VBOX_LENGTH; i++) {
+			if (partialSum[i] != -1) {
+				lookaheadSum[i] = total - partialSum[i];
+			}
+		}
+
+		// determine the cut plane
+		for (int i = dim1; i <= dim2; i++) {
+			if (partialSum[i] > total / 2) {
+				final int left = i - dim1;
+				final int right = dim2 - i;
+				int d2;
+				if (left <= right) {
+					d2 = Math.min(dim2 - 1, i + right / 2);
+				} else {
+					d2 = Math.max(dim1, (int) (i - 1 - left / 2.0));
+				}
+
+				// avoid 0-count boxes
+				while (d2 < 0 || partialSum[d2] <= 0) {
+					d2++;
+				}
+				int count2 = lookaheadSum[d2];
+				while (count2 == 0 && d2 > 0 && partialSum[d2 - 1] > 0) {
+					count2 = lookaheadSum[--d2];
+				}
+
+				final int secondBox = newBox(r1[box], r2[box], g1[box], g2[box], b1[box], b2[box]);
+				if (maxw == rw) {
+					r2[box] = d2;
+					r1[secondBox] = d2 + 1;
+				} else if (maxw == gw) {
+					g2[box] = d2;
+					g1[secondBox] = d2 + 1;
+				} else {
+					b2[box] = d2;
+					b1[secondBox] = d2 + 1;
+				}
+				counts[box] = UNKNOWN_COUNT;
+
+				queue[queueSize++] = box;
+				queue[queueSize++] = secondBox;
+				return true;
+			}
+		}
+
+		throw new RuntimeException("VBox can't be cut");
+	}
+
+	private int newBox(int rmin, int rmax, int gmin, int gmax, int bmin, int bmax) {
+		if (boxCount == counts.length) {
+			int capacity = boxCount * 2;
+			r1 = Arrays.copyOf(r1, capacity);
+			r2 = Arrays.copyOf(r2, capacity);
+			g1 = Arrays.copyOf(g1, capacity);
+			g2 = Arrays.copyOf(g2, capacity);
+			b1 = Arrays.copyOf(b1, capacity);
+			b2 = Arrays.copyOf(b2, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+			queue = Arrays.copyOf(queue, capacity);
+		}
+		final int box = boxCount++;
+		r1[box] = rmin;
+		r2[box] = rmax;
+		g1[box] = gmin;
+		g2[box] = gmax;
+		b1[box] = bmin;
+		b2[box] = bmax;
+		counts[box] = UNKNOWN_COUNT;
+		return box;
+	}
+
+	private int count(int box) {
+		int count = counts[box];
+		if (count == UNKNOWN_COUNT) {
+			count = sum(r1[box], r2[box], g1[box], g2[box], b1[box], b2[box]);
+			counts[box] = count;
+		}
+		return count;
+	}
+
+	private int volume(int box) {
+		return (r2[box] - r1[box] + 1) * (g2[box] - g1[box] + 1) * (b2[box] - b1[box] + 1);
+	}
+
+	private int sum(int rmin, int rmax, int gmin, int gmax, int bmin, int bmax) {
+		int sum = 0;
+		for (int r = rmin; r <= rmax; r++) {
+			for (int g = gmin; g <= gmax; g++) {
+				for (int b = bmin; b <= bmax; b++) {
+					sum += histo[MMCQ.getColorIndex(r, g, b)];
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Writes the average color of the pixels in the box to the palette.
+	 * The sums are rounded down after every pixel, as in the original.
+	 */
+	private void average(int box, int[] palette, int offset) {
+		int ntot = 0;
+		int rsum = 0;
+		int gsum = 0;
+		int bsum = 0;
+		for (int r = r1[box]; r <= r2[box]; r++) {
+			for (int g = g1[box]; g <= g2[box]; g++) {
+				for (int b = b1[box]; b <= b2[box]; b++) {
+					final int hval = histo[MMCQ.getColorIndex(r, g, b)];
+					ntot += hval;
+					rsum = (int) (rsum + hval * (r + 0.5) * MULT);
+					gsum = (int) (gsum + hval * (g + 0.5) * MULT);
+					bsum = (int) (bsum + hval * (b + 0.5) * MULT);
+				}
+			}
+		}
+
+		if (ntot > 0) {
+			palette[offset] = rsum / ntot;
+			palette[offset + 1] = gsum / ntot;
+			palette[offset + 2] = bsum / ntot;
+		} else {
+			palette[offset] = MULT * (r1[box] + r2[box] + 1) / 2;
+			palette[offset + 1] = MULT * (g1[box] + g2[box] + 1) / 2;
+			palette[offset + 2] = MULT * (b1[box] + b2[box] + 1) / 2;
+		}
+	}
+
+	private int compare(int sortOrder, int a, int b) {
+		final int aCount = count(a);
+		final int bCount = count(b);
+		if (sortOrder == SORT_BY_COUNT) {
+			return aCount - bCount;
+		}
+		// If count is 0 for both (or the same), sort by volume
+		if (aCount == bCount) {
+			return volume(a) - volume(b);
+		}
+		// Otherwise sort by products
+		return aCount * volume(a) - bCount * volume(b);
+	}
+
+	/**
+	 * Sorts the queue like {@link java.util.Collections#sort(java.util.List, java.util.Comparator)} does for short lists:
+	 * the leading run is made ascending, then the rest is added with a binary insertion sort.
+	 * This keeps equal boxes in the same order as the original, even when the product comparison overflows.
+	 */
+	private void sort(int sortOrder) {
+		final int size = queueSize;
+		if (size < 2) {
+			return;
+		}
+
+		int runEnd = 1;
+		if (compare(sortOrder, queue[runEnd++], queue[0]) < 0) {
+			while (runEnd < size && compare(sortOrder, queue[runEnd], queue[runEnd - 1]) < 0) {
+				runEnd++;
+			}
+			for (int i = 0, j = runEnd - 1; i < j; i++, j--) {
+				int box = queue[i];
+				queue[i] = queue[j];
+				queue[j] = box;
+			}
+		} else {
+			while (runEnd < size && compare(sortOrder, queue[runEnd], queue[runEnd - 1]) >= 0) {
+				runEnd++;
+			}
+		}
+
+		for (int start = runEnd; start < size; start++) {
+			final int pivot = queue[start];
+			int left = 0;
+			int right = start;
+			while (left < right) {
+				int middle = (left + right) >>> 1;
+				if (compare(sortOrder, pivot, queue[middle]) < 0) {
+					right = middle;
+				} else {
+					left = middle + 1;
+				}
+			}
+			System.arraycopy(queue, left, queue, left + 1, start - left);
+			queue[left] = pivot;
+		}
+	}
+}
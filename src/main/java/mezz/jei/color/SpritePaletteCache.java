@@ -0,0 +1,177 @@
+package mezz.jei.color;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import mezz.jei.util.FileUtil;
+import mezz.jei.util.Log;
+
+/**
+ * Remembers the palette of each sprite, so that every sprite is only quantized once.
+ * <p>
+ * Palettes are looked up by sprite name, palette size and sprite size until the textures are reloaded, see {@link #clearSprites()}.
+ * Behind that they are keyed by a hash of the texture data as well, so a resource pack change only affects the sprites it changed.
+ * The hash is only made when a sprite is first looked up, on the worker pool for sprites that were prefetched.
+ * <p>
+ * Palettes can be quantized ahead of time on a worker pool from {@link SpriteSnapshot}s taken on the client thread,
+ * and are saved so the next launch can load them instead.
+ */
+class SpritePaletteCache {
+	private static final int FORMAT_VERSION = 2;
+	private static final int THREAD_COUNT = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+	private static final ExecutorService QUANTIZE_EXECUTOR = Executors.newFixedThreadPool(THREAD_COUNT,
+		new ThreadFactoryBuilder()
+			.setNameFormat("JEI Color Quantizer %d")
+			.setDaemon(true)
+			.build()
+	);
+
+	/**
+	 * The palettes of the sprites since the textures were last reloaded, including the ones still being quantized.
+	 */
+	private final Map<String, CompletableFuture<int[]>> spritePalettes = new ConcurrentHashMap<>();
+	/**
+	 * The palettes used since launch, keyed by texture data.
+	 */
+	private final Map<String, int[]> palettes = new ConcurrentHashMap<>();
+	/**
+	 * The palettes saved by the previous launch, they are moved to {@link #palettes} when they are used.
+	 */
+	private final Map<String, int[]> savedPalettes = new ConcurrentHashMap<>();
+	private boolean loaded;
+	private volatile boolean changed;
+
+	/**
+	 * Returns the palette of the sprite as red, green and blue of each color, waiting for it if it is being quantized.
+	 */
+	public int[] getPalette(SpriteSnapshot snapshot, int colorCount) {
+		final String key = getSpriteKey(snapshot, colorCount);
+		CompletableFuture<int[]> palette = spritePalettes.get(key);
+		if (palette == null) {
+			CompletableFuture<int[]> newPalette = new CompletableFuture<>();
+			palette = spritePalettes.putIfAbsent(key, newPalette);
+			if (palette == null) {
+				newPalette.complete(getSavedOrQuantize(snapshot, colorCount));
+				palette = newPalette;
+			}
+		}
+		return palette.join();
+	}
+
+	/**
+	 * Starts quantizing the sprite on the worker pool, unless its palette is already known.
+	 */
+	public CompletableFuture<int[]> prefetch(SpriteSnapshot snapshot, int colorCount) {
+		final String key = getSpriteKey(snapshot, colorCount);
+		return spritePalettes.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> getSavedOrQuantize(snapshot, colorCount), QUANTIZE_EXECUTOR));
+	}
+
+	/**
+	 * Forgets which palette each sprite has, because the texture data of a sprite can change when the textures are reloaded.
+	 * The palettes themselves are kept, so sprites that did not change are not quantized again.
+	 */
+	public void clearSprites() {
+		spritePalettes.clear();
+	}
+
+	private static String getSpriteKey(SpriteSnapshot snapshot, int colorCount) {
+		return snapshot.getSpriteName() + '/' + colorCount + '/' + snapshot.getWidth() + 'x' + snapshot.getHeight() + 'x' + snapshot.getFrameCount();
+	}
+
+	private static String getDataKey(SpriteSnapshot snapshot, int colorCount) {
+		return snapshot.getSpriteName() + '/' + colorCount + '/' + snapshot.getDataHash();
+	}
+
+	private int[] getSavedOrQuantize(SpriteSnapshot snapshot, int colorCount) {
+		final String key = getDataKey(snapshot, colorCount);
+		int[] palette = palettes.get(key);
+		if (palette != null) {
+			return palette;
+		}
+		palette = savedPalettes.remove(key);
+		if (palette == null) {
+			changed = true;
+			try {
+				palette = snapshot.quantize(colorCount);
+			} catch (RuntimeException e) {
+				Log.get().debug("Failed to quantize sprite {}", snapshot.getSpriteName(), e);
+				return new int[0];
+			}
+		}
+		palettes.put(key, palette);
+		return palette;
+	}
+
+	/**
+	 * Loads the palettes saved by a previous launch, the first time it is called.
+	 */
+	public void load(File file) {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (!file.exists()) {
+			return;
+		}
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (input.readInt() != FORMAT_VERSION) {
+				return;
+			}
+			final int paletteCount = input.readInt();
+			for (int i = 0; i < paletteCount; i++) {
+				String key = input.readUTF();
+				int[] palette = new int[input.readInt()];
+				for (int j = 0; j < palette.length; j++) {
+					palette[j] = input.readInt();
+				}
+				savedPalettes.put(key, palette);
+			}
+		} catch (IOException | RuntimeException e) {
+			Log.get().error("Failed to read color cache file {}", file, e);
+			savedPalettes.clear();
+		}
+	}
+
+	/**
+	 * Saves the palettes used since launch, if any of them had to be quantized.
+	 * Palettes of sprites that were not used are left out, so the file does not keep ones from old texture data.
+	 */
+	public void save(File file) {
+		if (!changed) {
+			return;
+		}
+		changed = false;
+
+		final List<Map.Entry<String, int[]>> entries = new ArrayList<>(palettes.entrySet());
+
+		FileUtil.writeFileSafely(file, fileTemp -> {
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileTemp)))) {
+				output.writeInt(FORMAT_VERSION);
+				output.writeInt(entries.size());
+				for (Map.Entry<String, int[]> entry : entries) {
+					output.writeUTF(entry.getKey());
+					int[] palette = entry.getValue();
+					output.writeInt(palette.length);
+					for (int component : palette) {
+						output.writeInt(component);
+					}
+				}
+			}
+		});
+	}
+}
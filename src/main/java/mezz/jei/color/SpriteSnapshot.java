@@ -0,0 +1,83 @@
+package mezz.jei.color;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * The texture data of a sprite, taken on the client thread so that it can be quantized on another one.
+ * Only the largest mip map of each frame is kept.
+ */
+class SpriteSnapshot {
+	private final String spriteName;
+	private final int width;
+	private final int height;
+	private final int[][] frames;
+
+	private SpriteSnapshot(String spriteName, int width, int height, int[][] frames) {
+		this.spriteName = spriteName;
+		this.width = width;
+		this.height = height;
+		this.frames = frames;
+	}
+
+	@Nullable
+	public static SpriteSnapshot create(TextureAtlasSprite textureAtlasSprite) {
+		final int iconWidth = textureAtlasSprite.getIconWidth();
+		final int iconHeight = textureAtlasSprite.getIconHeight();
+		final int frameCount = textureAtlasSprite.getFrameCount();
+		if (iconWidth <= 0 || iconHeight <= 0 || frameCount <= 0) {
+			return null;
+		}
+
+		int[][] frames = new int[frameCount][];
+		for (int i = 0; i < frameCount; i++) {
+			int[][] frameTextureData = textureAtlasSprite.getFrameTextureData(i);
+			frames[i] = frameTextureData[0];
+		}
+		return new SpriteSnapshot(textureAtlasSprite.getIconName(), iconWidth, iconHeight, frames);
+	}
+
+	public String getSpriteName() {
+		return spriteName;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getFrameCount() {
+		return frames.length;
+	}
+
+	/**
+	 * Identifies the texture data, so that saved palettes are only reused for sprites that did not change.
+	 * This reads every pixel, so it is only called once per sprite, see {@link SpritePaletteCache}.
+	 */
+	public String getDataHash() {
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+		hasher.putInt(width);
+		hasher.putInt(height);
+		hasher.putInt(frames.length);
+		for (int[] frame : frames) {
+			for (int pixel : frame) {
+				hasher.putInt(pixel);
+			}
+		}
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Returns the palette of the frames as red, green and blue of each color, quantized on the calling thread.
+	 */
+	public int[] quantize(int colorCount) {
+		return ColorQuantizer.getPalette(frames, width * height, colorCount);
+	}
+}
@@ -61,6 +61,12 @@ public final class Config {
 	private static LocalizedConfiguration searchColorsConfig;
 	@Nullable
 	private static File bookmarkFile;
+	@Nullable
+	private static File searchIndexFile;
+	@Nullable
+	private static File tooltipCacheFile;
+	@Nullable
+	private static File colorCacheFile;
 
 	private static final ConfigValues defaultValues = new ConfigValues();
 	private static final ConfigValues values = new ConfigValues();
@@ -183,6 +189,10 @@ public final class Config {
 		return values.optimizeMemoryUsage;
 	}
 
+	public static boolean isAsyncSearchEnabled() {
+		return values.asyncSearchEnabled;
+	}
+
 	public static GiveMode getGiveMode() {
 		return values.giveMode;
 	}
@@ -288,6 +298,21 @@ public final class Config {
 		return bookmarkFile;
 	}
 
+	@Nullable
+	public static File getSearchIndexFile() {
+		return searchIndexFile;
+	}
+
+	@Nullable
+	public static File getTooltipCacheFile() {
+		return tooltipCacheFile;
+	}
+
+	@Nullable
+	public static File getColorCacheFile() {
+		return colorCacheFile;
+	}
+
 	public static void preInit(FMLPreInitializationEvent event) {
 
 		File jeiConfigurationDir = new File(event.getModConfigurationDirectory(), Constants.MOD_ID);
@@ -308,6 +333,9 @@ public final class Config {
 		final File searchColorsConfigFile = new File(jeiConfigurationDir, "searchColors.cfg");
 		final File worldConfigFile = new File(jeiConfigurationDir, "worldSettings.cfg");
 		bookmarkFile = new File(jeiConfigurationDir, "bookmarks.ini");
+		searchIndexFile = new File(jeiConfigurationDir, "searchIndex.bin");
+		tooltipCacheFile = new File(jeiConfigurationDir, "tooltipCache.bin");
+		colorCacheFile = new File(jeiConfigurationDir, "colorCache.bin");
 		worldConfig = new Configuration(worldConfigFile, "0.1.0");
 		config = new LocalizedConfiguration(configKeyPrefix, configFile, "0.4.0");
 		itemBlacklistConfig = new LocalizedConfiguration(configKeyPrefix, itemBlacklistConfigFile, "0.1.0");
@@ -405,6 +433,8 @@ public final class Config {
 
 		values.optimizeMemoryUsage = config.getBoolean(CATEGORY_ADVANCED, "optimizeMemoryUsage", defaultValues.optimizeMemoryUsage);
 
+		values.asyncSearchEnabled = config.getBoolean(CATEGORY_ADVANCED, "asyncSearchEnabled", defaultValues.asyncSearchEnabled);
+
 		values.giveMode = config.getEnum("giveMode", CATEGORY_ADVANCED, defaultValues.giveMode, GiveMode.values());
 
 		values.maxColumns = config.getInt("maxColumns", CATEGORY_ADVANCED, defaultValues.maxColumns, smallestNumColumns, largestNumColumns);
@@ -577,16 +607,29 @@ public final class Config {
 		// combine item-level blacklist into wildcard-level ones
 		if (blacklistType == IngredientBlacklistType.ITEM) {
 			final String uid = getIngredientUid(ingredient, IngredientBlacklistType.ITEM, ingredientHelper);
-			List<IIngredientListElement<V>> elementsToBeBlacklisted = ingredientFilter.getMatches(element, (input) -> getIngredientUid(input, IngredientBlacklistType.WILDCARD));
+			List<IIngredientListElement<V>> elementsToBeBlacklisted = ingredientFilter.findWildcardMatchingElements(element);
 			if (areAllBlacklisted(elementsToBeBlacklisted, uid, IngredientBlacklistType.ITEM)) {
 				if (addIngredientToConfigBlacklist(ingredientFilter, element, ingredient, IngredientBlacklistType.WILDCARD, ingredientHelper)) {
 					updateBlacklist();
+					updateHiddenState(ingredientFilter, element);
 				}
 				return;
 			}
 		}
 		if (addIngredientToConfigBlacklist(ingredientFilter, element, ingredient, blacklistType, ingredientHelper)) {
 			updateBlacklist();
+			updateHiddenState(ingredientFilter, element);
+		}
+	}
+
+	/**
+	 * Every element whose config blacklist entry can change shares the wildcard id of the edited one, only those are checked again.
+	 * Removing a mod id entry is the exception, {@link #removeIngredientFromConfigBlacklist} checks the elements of the mod itself.
+	 */
+	private static <V> void updateHiddenState(IngredientFilter ingredientFilter, IIngredientListElement<V> element) {
+		List<IIngredientListElement<V>> matches = ingredientFilter.findWildcardMatchingElements(element);
+		for (IIngredientListElement<V> match : matches) {
+			ingredientFilter.updateHiddenState(match);
 		}
 	}
 
@@ -595,7 +638,7 @@ public final class Config {
 
 		// remove lower-level blacklist entries when a higher-level one is added
 		if (blacklistType == IngredientBlacklistType.WILDCARD) {
-			List<IIngredientListElement<V>> elementsToBeBlacklisted = ingredientFilter.getMatches(element, (input) -> getIngredientUid(input, blacklistType));
+			List<IIngredientListElement<V>> elementsToBeBlacklisted = ingredientFilter.findWildcardMatchingElements(element);
 			for (IIngredientListElement<V> elementToBeBlacklisted : elementsToBeBlacklisted) {
 				String uid = getIngredientUid(elementToBeBlacklisted, IngredientBlacklistType.ITEM);
 				updated |= itemBlacklist.remove(uid);
@@ -623,6 +666,7 @@ public final class Config {
 		Preconditions.checkNotNull(element, "Failed to create element for blacklist");
 
 		boolean updated = false;
+		List<IIngredientListElement<V>> modIdMatches = Collections.emptyList();
 
 		// deconstruct any mod-id blacklists into lower-level ones first. mod-id blacklist is deprecated
 		{
@@ -630,8 +674,8 @@ public final class Config {
 			if (itemBlacklist.contains(modUid)) {
 				updated = true;
 				itemBlacklist.remove(modUid);
-				List<IIngredientListElement<V>> modMatches = ingredientFilter.getMatches(element, (input) -> getIngredientUid(input, IngredientBlacklistType.MOD_ID));
-				for (IIngredientListElement<V> modMatch : modMatches) {
+				modIdMatches = ingredientFilter.getMatches(element, (input) -> getIngredientUid(input, IngredientBlacklistType.MOD_ID));
+				for (IIngredientListElement<V> modMatch : modIdMatches) {
 					addIngredientToConfigBlacklist(ingredientFilter, modMatch, modMatch.getIngredient(), IngredientBlacklistType.ITEM, ingredientHelper);
 				}
 			}
@@ -643,14 +687,14 @@ public final class Config {
 			if (itemBlacklist.contains(wildUid)) {
 				updated = true;
 				itemBlacklist.remove(wildUid);
-				List<IIngredientListElement<V>> modMatches = ingredientFilter.getMatches(element, (input) -> getIngredientUid(input, IngredientBlacklistType.WILDCARD));
+				List<IIngredientListElement<V>> modMatches = ingredientFilter.findWildcardMatchingElements(element);
 				for (IIngredientListElement<V> modMatch : modMatches) {
 					addIngredientToConfigBlacklist(ingredientFilter, modMatch, modMatch.getIngredient(), IngredientBlacklistType.ITEM, ingredientHelper);
 				}
 			}
 		} else if (blacklistType == IngredientBlacklistType.WILDCARD) {
 			// remove any item-level blacklist on items that match this wildcard
-			List<IIngredientListElement<V>> modMatches = ingredientFilter.getMatches(element, (input) -> getIngredientUid(input, IngredientBlacklistType.WILDCARD));
+			List<IIngredientListElement<V>> modMatches = ingredientFilter.findWildcardMatchingElements(element);
 			for (IIngredientListElement<V> modMatch : modMatches) {
 				final String uid = getIngredientUid(modMatch, IngredientBlacklistType.ITEM);
 				updated |= itemBlacklist.remove(uid);
@@ -661,6 +705,11 @@ public final class Config {
 		updated |= itemBlacklist.remove(uid);
 		if (updated) {
 			updateBlacklist();
+			updateHiddenState(ingredientFilter, element);
+			// the elements of the removed mod id entry do not all share the wildcard id of this one
+			for (IIngredientListElement<V> modIdMatch : modIdMatches) {
+				ingredientFilter.updateHiddenState(modIdMatch);
+			}
 		}
 	}
 
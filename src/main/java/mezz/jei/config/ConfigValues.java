@@ -7,6 +7,7 @@ public class ConfigValues {
 	public boolean debugModeEnabled = false;
 	public boolean centerSearchBarEnabled = false;
 	public boolean optimizeMemoryUsage = true;
+	public boolean asyncSearchEnabled = false;
 	public GiveMode giveMode = GiveMode.MOUSE_PICKUP;
 	public String modNameFormat = Config.parseFriendlyModNameFormat(Config.defaultModNameFormatFriendly);
 	public int maxColumns = 100;
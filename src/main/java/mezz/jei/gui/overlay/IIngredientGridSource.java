@@ -7,6 +7,12 @@ import mezz.jei.gui.ingredients.IIngredientListElement;
 public interface IIngredientGridSource {
 	List<IIngredientListElement> getIngredientList();
 
+	/**
+	 * Returns the elements from {@code start} up to {@code start + count}, or fewer at the end of the list.
+	 * Only these elements need to be looked up, so paging through a long list does not build all of it.
+	 */
+	List<IIngredientListElement> getIngredients(int start, int count);
+
 	int size();
 
 	void addListener(Listener listener);
@@ -55,11 +55,13 @@ public class IngredientGridWithNavigation implements IShowsRecipeFocuses, IMouse
 		if (resetToFirstPage) {
 			firstItemIndex = 0;
 		}
-		List<IIngredientListElement> ingredientList = ingredientSource.getIngredientList();
-		if (firstItemIndex >= ingredientList.size()) {
+		if (firstItemIndex >= ingredientSource.size()) {
 			firstItemIndex = 0;
 		}
-		this.ingredientGrid.guiIngredientSlots.set(firstItemIndex, ingredientList);
+		// blocked slots are skipped, so ask for enough elements to fill every slot
+		int slotCount = this.ingredientGrid.guiIngredientSlots.getAllGuiIngredientSlots().size();
+		List<IIngredientListElement> ingredients = ingredientSource.getIngredients(firstItemIndex, slotCount);
+		this.ingredientGrid.guiIngredientSlots.set(0, ingredients);
 		this.navigation.updatePageState();
 	}
 
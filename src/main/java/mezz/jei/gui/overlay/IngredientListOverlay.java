@@ -168,6 +168,7 @@ public class IngredientListOverlay implements IIngredientListOverlay, IMouseHand
 
 	public void drawTooltips(Minecraft minecraft, int mouseX, int mouseY) {
 		if (isListDisplayed()) {
+			this.searchField.drawTooltips(minecraft, mouseX, mouseY);
 			this.configButton.drawTooltips(minecraft, mouseX, mouseY);
 			this.ghostIngredientDragManager.drawTooltips(minecraft, mouseX, mouseY);
 			this.contents.drawTooltips(minecraft, mouseX, mouseY);
@@ -344,7 +345,10 @@ public class IngredientListOverlay implements IIngredientListOverlay, IMouseHand
 	}
 
 	public void onSetFilterText(String filterText) {
-		this.searchField.setText(filterText);
+		// the filter also notifies when background search results arrive, keep the cursor where it is
+		if (!filterText.equals(this.searchField.getText())) {
+			this.searchField.setText(filterText);
+		}
 		updateLayout(true);
 	}
 
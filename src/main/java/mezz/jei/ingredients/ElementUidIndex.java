@@ -0,0 +1,55 @@
+package mezz.jei.ingredients;
+
+import java.util.function.Function;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import mezz.jei.gui.ingredients.IIngredientListElement;
+
+/**
+ * Maps a uid of each element to its index in the ingredient list, so elements can be found without searching.
+ * Elements with the same uid are chained together, from the last one added back to the first.
+ */
+class ElementUidIndex {
+	private final Function<IIngredientListElement<?>, String> uidFunction;
+	private final Object2IntMap<String> lastIndexes = new Object2IntOpenHashMap<>();
+	/**
+	 * For each element index, the index of the previous element with the same uid, or -1.
+	 */
+	private final IntArrayList previousIndexes = new IntArrayList();
+
+	public ElementUidIndex(Function<IIngredientListElement<?>, String> uidFunction) {
+		this.uidFunction = uidFunction;
+		this.lastIndexes.defaultReturnValue(-1);
+	}
+
+	/**
+	 * Elements must be added in index order.
+	 */
+	public void add(IIngredientListElement<?> element, int index) {
+		if (index != previousIndexes.size()) {
+			throw new IllegalArgumentException("Elements must be added in index order, expected " + previousIndexes.size() + " but got " + index);
+		}
+		String uid = uidFunction.apply(element);
+		previousIndexes.add(lastIndexes.put(uid, index));
+	}
+
+	/**
+	 * Returns the indexes of the elements with the given uid, in ascending order.
+	 */
+	public IntList get(String uid) {
+		IntArrayList indexes = new IntArrayList();
+		for (int index = lastIndexes.getInt(uid); index >= 0; index = previousIndexes.getInt(index)) {
+			indexes.add(index);
+		}
+		// the chain runs backwards
+		for (int i = 0, j = indexes.size() - 1; i < j; i++, j--) {
+			int index = indexes.getInt(i);
+			indexes.set(i, indexes.getInt(j));
+			indexes.set(j, index);
+		}
+		return indexes;
+	}
+}
@@ -1,42 +1,62 @@
 package mezz.jei.ingredients;
 
 import javax.annotation.Nullable;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import net.minecraftforge.fml.common.ProgressManager;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraft.client.Minecraft;
 import net.minecraft.util.NonNullList;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import it.unimi.dsi.fastutil.chars.Char2IntMap;
 import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
 import it.unimi.dsi.fastutil.chars.Char2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import mezz.jei.api.IIngredientFilter;
 import mezz.jei.api.ingredients.IIngredientHelper;
+import mezz.jei.collect.IntBitmap;
 import mezz.jei.config.Config;
 import mezz.jei.config.EditModeToggleEvent;
 import mezz.jei.gui.ingredients.IIngredientListElement;
 import mezz.jei.gui.overlay.IIngredientGridSource;
 import mezz.jei.startup.PlayerJoinedWorldEvent;
 import mezz.jei.suffixtree.CombinedSearchTrees;
-import mezz.jei.suffixtree.GeneralizedSuffixTree;
+import mezz.jei.suffixtree.GeneralizedSuffixArray;
 import mezz.jei.suffixtree.ISearchTree;
 import mezz.jei.util.ErrorUtil;
+import mezz.jei.util.Log;
 import mezz.jei.util.Translator;
 
 public class IngredientFilter implements IIngredientFilter, IIngredientGridSource {
-	private static final Pattern QUOTE_PATTERN = Pattern.compile("\"");
-	private static final Pattern FILTER_SPLIT_PATTERN = Pattern.compile("(-?\".*?(?:\"|$)|\\S+)");
+	/**
+	 * Runs searches off the client thread when {@link Config#isAsyncSearchEnabled()}.
+	 * A single thread is enough, each new search cancels the one before it.
+	 */
+	private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor(
+		new ThreadFactoryBuilder()
+			.setNameFormat("JEI Ingredient Search")
+			.setDaemon(true)
+			.build()
+	);
 
 	private final IngredientBlacklistInternal blacklist;
 	/**
@@ -44,45 +64,103 @@ public class IngredientFilter implements IIngredientFilter, IIngredientGridSourc
 	 * includes all elements (even hidden ones) for use when rebuilding
 	 */
 	private final NonNullList<IIngredientListElement> elementList;
-	private final GeneralizedSuffixTree searchTree;
+	/**
+	 * The elements of {@link #elementList} in a growing array that search snapshots share instead of copying.
+	 * Elements are only ever appended, and slots past the size of a snapshot are never read by it, so the array is only replaced when it is full.
+	 */
+	private IIngredientListElement[] elementArray = new IIngredientListElement[0];
+	/**
+	 * The index of each element in {@link #elementList}.
+	 */
+	private final Reference2IntMap<IIngredientListElement> elementIndexes = new Reference2IntOpenHashMap<>();
+	/**
+	 * The display position of each element index, or null while {@link #elementList} is already in display order.
+	 * The arrays are replaced instead of changed, so search snapshots can share them.
+	 */
+	@Nullable
+	private int[] ranks;
+	/**
+	 * The element index at each display position, the inverse of {@link #ranks}.
+	 */
+	@Nullable
+	private int[] displayOrder;
+	/**
+	 * Indexes of the elements that are hidden in every mode, because they are blacklisted by the API or not on the server.
+	 */
+	private final BitSet blacklistedIndexes = new BitSet();
+	/**
+	 * Indexes of the elements on the config blacklist, they are only shown in edit mode.
+	 */
+	private final BitSet configBlacklistedIndexes = new BitSet();
+	/**
+	 * Finds elements by uid and by wildcard uid, built the first time an element is looked up.
+	 */
+	@Nullable
+	private ElementUidIndex uidIndex;
+	@Nullable
+	private ElementUidIndex wildcardUidIndex;
+	@Nullable
+	private IntBitmap visibleIndexesCached;
+	/**
+	 * Increased whenever an element is added, shown or hidden, so that results that depend on which ingredients are visible can be dropped.
+	 */
+	private int visibilityGeneration;
+	private GeneralizedSuffixArray searchTree;
 	private final Char2ObjectMap<PrefixedSearchTree> prefixedSearchTrees = new Char2ObjectOpenHashMap<>();
+	/**
+	 * The search mode of each prefixed tree when the modes last changed.
+	 */
+	private final Char2ObjectMap<Config.SearchMode> searchModes = new Char2ObjectOpenHashMap<>();
 	private final IngredientFilterBackgroundBuilder backgroundBuilder;
-	private CombinedSearchTrees combinedSearchTrees;
+	private final SearchResultCache searchResultCache = new SearchResultCache();
+	private final TooltipCache tooltipCache = new TooltipCache();
 
 	@Nullable
 	private String filterCached;
-	private List<IIngredientListElement> ingredientListCached = Collections.emptyList();
+	/**
+	 * The results being displayed, null until the first search finishes.
+	 */
+	@Nullable
+	private SearchResult displayedSearchResult;
+	/**
+	 * The last search, for refining its matches when the next filter only narrows it.
+	 * Null when the search trees have changed since.
+	 */
+	@Nullable
+	private SearchResult searchResultCached;
+	@Nullable
+	private PendingSearch pendingSearch;
 	private final List<IIngredientGridSource.Listener> listeners = new ArrayList<>();
 
 	public IngredientFilter(IngredientBlacklistInternal blacklist) {
 		this.blacklist = blacklist;
 		this.elementList = NonNullList.create();
-		this.searchTree = new GeneralizedSuffixTree();
-		createPrefixedSearchTree('@', Config::getModNameSearchMode, IIngredientListElement::getModNameStrings);
-		createPrefixedSearchTree('#', Config::getTooltipSearchMode, IIngredientListElement::getTooltipStrings);
+		this.elementIndexes.defaultReturnValue(-1);
+		this.searchTree = new GeneralizedSuffixArray();
+		createPrefixedSearchTree('@', Config::getModNameSearchMode, IIngredientListElement::getModNameStrings, IIngredientListElement::getModNameStrings);
+		createPrefixedSearchTree('#', Config::getTooltipSearchMode, tooltipCache::getTooltipStrings, tooltipCache::getCachedTooltipStrings);
 		createPrefixedSearchTree('$', Config::getOreDictSearchMode, IIngredientListElement::getOreDictStrings);
 		createPrefixedSearchTree('%', Config::getCreativeTabSearchMode, IIngredientListElement::getCreativeTabsStrings);
 		createPrefixedSearchTree('^', Config::getColorSearchMode, IIngredientListElement::getColorStrings);
-		createPrefixedSearchTree('&', Config::getResourceIdSearchMode, element -> Collections.singleton(element.getResourceId()));
+		createPrefixedSearchTree('&', Config::getResourceIdSearchMode, element -> Collections.singleton(element.getResourceId()), element -> Collections.singleton(element.getResourceId()));
 
-		this.combinedSearchTrees = buildCombinedSearchTrees(this.searchTree, this.prefixedSearchTrees.values());
-		this.backgroundBuilder = new IngredientFilterBackgroundBuilder(prefixedSearchTrees, elementList);
-	}
-
-	private static CombinedSearchTrees buildCombinedSearchTrees(ISearchTree searchTree, Collection<PrefixedSearchTree> prefixedSearchTrees) {
-		CombinedSearchTrees combinedSearchTrees = new CombinedSearchTrees();
-		combinedSearchTrees.addSearchTree(searchTree);
-		for (PrefixedSearchTree prefixedTree : prefixedSearchTrees) {
-			if (prefixedTree.getMode() == Config.SearchMode.ENABLED) {
-				combinedSearchTrees.addSearchTree(prefixedTree.getTree());
-			}
+		for (Char2ObjectMap.Entry<PrefixedSearchTree> entry : this.prefixedSearchTrees.char2ObjectEntrySet()) {
+			this.searchModes.put(entry.getCharKey(), entry.getValue().getMode());
 		}
-		return combinedSearchTrees;
+
+		this.backgroundBuilder = new IngredientFilterBackgroundBuilder(prefixedSearchTrees, elementList, () -> this.elementArray, this::onPrefixedSearchTreeChanged);
 	}
 
 	private void createPrefixedSearchTree(char prefix, PrefixedSearchTree.IModeGetter modeGetter, PrefixedSearchTree.IStringsGetter stringsGetter) {
-		GeneralizedSuffixTree tree = new GeneralizedSuffixTree();
-		PrefixedSearchTree prefixedTree = new PrefixedSearchTree(tree, stringsGetter, modeGetter);
+		createPrefixedSearchTree(prefix, modeGetter, stringsGetter, null);
+	}
+
+	/**
+	 * @param offThreadStringsGetter looks up the strings that the background builder can put into the tree without the client thread, if any
+	 */
+	private void createPrefixedSearchTree(char prefix, PrefixedSearchTree.IModeGetter modeGetter, PrefixedSearchTree.IStringsGetter stringsGetter, @Nullable PrefixedSearchTree.IOffThreadStringsGetter offThreadStringsGetter) {
+		GeneralizedSuffixArray tree = new GeneralizedSuffixArray();
+		PrefixedSearchTree prefixedTree = new PrefixedSearchTree(tree, stringsGetter, offThreadStringsGetter, modeGetter);
 		this.prefixedSearchTrees.put(prefix, prefixedTree);
 	}
 
@@ -95,6 +173,20 @@ public class IngredientFilter implements IIngredientFilter, IIngredientGridSourc
 
 	public void addIngredients(NonNullList<IIngredientListElement> ingredients) {
 		ingredients.sort(IngredientListElementComparator.INSTANCE);
+
+		final File indexFile = Config.getSearchIndexFile();
+		final SearchIndexFile searchIndexFile = indexFile != null && this.elementList.isEmpty() ? new SearchIndexFile(indexFile, ingredients, this.prefixedSearchTrees) : null;
+		if (searchIndexFile != null && loadSearchTrees(searchIndexFile, ingredients)) {
+			return;
+		}
+
+		final File tooltipCacheFile = Config.getTooltipCacheFile();
+		if (tooltipCacheFile != null) {
+			tooltipCache.load(tooltipCacheFile);
+		} else {
+			tooltipCache.updateOptions();
+		}
+
 		long modNameCount = ingredients.stream()
 			.map(IIngredientListElement::getModNameForSorting)
 			.distinct()
@@ -110,102 +202,537 @@ public class IngredientFilter implements IIngredientFilter, IIngredientGridSourc
 			addIngredient(element);
 		}
 		ProgressManager.pop(progressBar);
+
+		searchTree.index();
+		for (PrefixedSearchTree tree : prefixedSearchTrees.values()) {
+			tree.getTree().index();
+		}
+
+		if (searchIndexFile != null) {
+			saveSearchTrees(searchIndexFile);
+		}
+		saveTooltipCache();
+	}
+
+	/**
+	 * Saves the tooltips once the tooltip tree has all of the elements, so the next launch can search tooltips without asking the renderers.
+	 * The tree has its own copy of every tooltip by then, so the cache lets go of them.
+	 */
+	private void saveTooltipCache() {
+		PrefixedSearchTree tooltipSearchTree = this.prefixedSearchTrees.get('#');
+		if (tooltipSearchTree != null && tooltipSearchTree.getMode() != Config.SearchMode.DISABLED &&
+			tooltipSearchTree.getTree().getHighestIndex() == this.elementList.size() - 1) {
+			final File tooltipCacheFile = Config.getTooltipCacheFile();
+			if (tooltipCacheFile != null) {
+				tooltipCache.save(tooltipCacheFile);
+			}
+			tooltipCache.release();
+		}
+	}
+
+	/**
+	 * Adds the ingredients with the search trees saved by a previous launch.
+	 * Returns false if there are none, or they were built from different ingredients or options.
+	 */
+	private boolean loadSearchTrees(SearchIndexFile searchIndexFile, List<IIngredientListElement> ingredients) {
+		final Char2ObjectMap<GeneralizedSuffixArray> trees = searchIndexFile.read();
+		if (trees == null) {
+			return false;
+		}
+		final int highestIndex = ingredients.size() - 1;
+		final GeneralizedSuffixArray loadedSearchTree = trees.get(SearchToken.NO_PREFIX);
+		if (loadedSearchTree == null || loadedSearchTree.getHighestIndex() != highestIndex) {
+			return false;
+		}
+		for (Char2ObjectMap.Entry<PrefixedSearchTree> entry : this.prefixedSearchTrees.char2ObjectEntrySet()) {
+			if (entry.getValue().getMode() != Config.SearchMode.DISABLED) {
+				GeneralizedSuffixArray tree = trees.get(entry.getCharKey());
+				if (tree == null || tree.getHighestIndex() != highestIndex) {
+					return false;
+				}
+			}
+		}
+
+		this.searchTree = loadedSearchTree;
+		this.searchResultCache.invalidate(SearchToken.NO_PREFIX);
+		for (Char2ObjectMap.Entry<PrefixedSearchTree> entry : this.prefixedSearchTrees.char2ObjectEntrySet()) {
+			if (entry.getValue().getMode() != Config.SearchMode.DISABLED) {
+				entry.getValue().setTree(trees.get(entry.getCharKey()));
+				this.searchResultCache.invalidate(entry.getCharKey());
+			}
+		}
+		for (IIngredientListElement<?> element : ingredients) {
+			addElement(element);
+		}
+		invalidateCache();
+		return true;
+	}
+
+	private void saveSearchTrees(SearchIndexFile searchIndexFile) {
+		final int highestIndex = this.elementList.size() - 1;
+		final Char2ObjectMap<GeneralizedSuffixArray> trees = new Char2ObjectOpenHashMap<>();
+		trees.put(SearchToken.NO_PREFIX, this.searchTree);
+		for (Char2ObjectMap.Entry<PrefixedSearchTree> entry : this.prefixedSearchTrees.char2ObjectEntrySet()) {
+			if (entry.getValue().getMode() != Config.SearchMode.DISABLED) {
+				GeneralizedSuffixArray tree = entry.getValue().getTree();
+				if (tree.getHighestIndex() != highestIndex) {
+					return;
+				}
+				trees.put(entry.getCharKey(), tree);
+			}
+		}
+		searchIndexFile.write(trees);
 	}
 
 	public <V> void addIngredient(IIngredientListElement<V> element) {
-		updateHiddenState(element);
-		final int index = elementList.size();
-		elementList.add(element);
+		final int index = addElement(element);
+		insertIntoDisplayOrder(element, index);
+		putIntoSearchTrees(element, index);
+		invalidateCache();
+	}
+
+	/**
+	 * Adds ingredients at runtime all at once.
+	 * They are merged into the display order in a single pass, instead of moving the display order once per ingredient.
+	 */
+	public void addIngredientsAtRuntime(Collection<? extends IIngredientListElement<?>> elements) {
+		if (elements.isEmpty()) {
+			return;
+		}
+		List<IIngredientListElement<?>> sortedElements = new ArrayList<>(elements);
+		sortedElements.sort(IngredientListElementComparator.INSTANCE);
+
+		final int firstNewIndex = this.elementList.size();
+		for (IIngredientListElement<?> element : sortedElements) {
+			final int index = addElement(element);
+			putIntoSearchTrees(element, index);
+		}
+		mergeIntoDisplayOrder(firstNewIndex);
+		invalidateCache();
+	}
+
+	private void putIntoSearchTrees(IIngredientListElement<?> element, int index) {
 		searchTree.put(Translator.toLowercaseWithLocale(element.getDisplayName()), index);
+		searchResultCache.invalidate(SearchToken.NO_PREFIX);
 
-		for (PrefixedSearchTree prefixedSearchTree : this.prefixedSearchTrees.values()) {
+		for (Char2ObjectMap.Entry<PrefixedSearchTree> entry : this.prefixedSearchTrees.char2ObjectEntrySet()) {
+			PrefixedSearchTree prefixedSearchTree = entry.getValue();
 			Config.SearchMode searchMode = prefixedSearchTree.getMode();
-			if (searchMode != Config.SearchMode.DISABLED) {
-				Collection<String> strings = prefixedSearchTree.getStringsGetter().getStrings(element);
-				for (String string : strings) {
-					prefixedSearchTree.getTree().put(string, index);
-				}
+			GeneralizedSuffixArray tree = prefixedSearchTree.getTree();
+			// trees that are behind are caught up by the background builder, which adds this element too
+			if (searchMode != Config.SearchMode.DISABLED && tree.getHighestIndex() == index - 1) {
+				prefixedSearchTree.putStrings(tree, element, index);
+				searchResultCache.invalidate(entry.getCharKey());
+			}
+		}
+	}
+
+	private int addElement(IIngredientListElement<?> element) {
+		final int index = this.elementList.size();
+		this.elementList.add(element);
+		if (index == this.elementArray.length) {
+			this.elementArray = Arrays.copyOf(this.elementArray, Math.max(16, index + (index >> 1)));
+		}
+		this.elementArray[index] = element;
+		this.elementIndexes.put(element, index);
+		if (this.uidIndex != null) {
+			this.uidIndex.add(element, index);
+		}
+		if (this.wildcardUidIndex != null) {
+			this.wildcardUidIndex.add(element, index);
+		}
+		updateHiddenState(element, index);
+		this.visibilityGeneration++;
+		return index;
+	}
+
+	/**
+	 * Elements are indexed in the order they are added, which is display order until an ingredient added at runtime sorts before the last one.
+	 * From then on the display position of every element is tracked, so that searches never have to sort their results.
+	 */
+	private void insertIntoDisplayOrder(IIngredientListElement<?> element, int index) {
+		if (index == 0) {
+			return;
+		}
+		final int[] displayOrder = this.displayOrder;
+		final int[] ranks = this.ranks;
+		final int lastIndex = displayOrder == null ? index - 1 : displayOrder[index - 1];
+		if (IngredientListElementComparator.INSTANCE.compare(elementList.get(lastIndex), element) <= 0) {
+			if (displayOrder != null && ranks != null) {
+				int[] newDisplayOrder = Arrays.copyOf(displayOrder, index + 1);
+				newDisplayOrder[index] = index;
+				int[] newRanks = Arrays.copyOf(ranks, index + 1);
+				newRanks[index] = index;
+				this.displayOrder = newDisplayOrder;
+				this.ranks = newRanks;
+			}
+			return;
+		}
+
+		// find the first element that sorts after the new one, equal elements stay in the order they were added
+		int low = 0;
+		int high = index - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			IIngredientListElement middleElement = elementList.get(displayOrder == null ? middle : displayOrder[middle]);
+			if (IngredientListElementComparator.INSTANCE.compare(middleElement, element) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		final int rank = low;
+
+		int[] newDisplayOrder = new int[index + 1];
+		for (int i = 0; i < index; i++) {
+			newDisplayOrder[i < rank ? i : i + 1] = displayOrder == null ? i : displayOrder[i];
+		}
+		newDisplayOrder[rank] = index;
+		int[] newRanks = new int[index + 1];
+		for (int i = 0; i <= index; i++) {
+			newRanks[newDisplayOrder[i]] = i;
+		}
+		this.displayOrder = newDisplayOrder;
+		this.ranks = newRanks;
+	}
+
+	/**
+	 * Merges the elements from {@code firstNewIndex} on, which must already be sorted, into the display order.
+	 * Equal elements stay in the order they were added.
+	 */
+	private void mergeIntoDisplayOrder(int firstNewIndex) {
+		final int size = this.elementList.size();
+		final int[] displayOrder = this.displayOrder;
+		if (firstNewIndex == 0 || firstNewIndex == size) {
+			return;
+		}
+		if (displayOrder == null && IngredientListElementComparator.INSTANCE.compare(elementList.get(firstNewIndex - 1), elementList.get(firstNewIndex)) <= 0) {
+			return;
+		}
+
+		int[] newDisplayOrder = new int[size];
+		int oldRank = 0;
+		int newIndex = firstNewIndex;
+		int rank = 0;
+		while (oldRank < firstNewIndex && newIndex < size) {
+			final int oldIndex = displayOrder == null ? oldRank : displayOrder[oldRank];
+			if (IngredientListElementComparator.INSTANCE.compare(elementList.get(newIndex), elementList.get(oldIndex)) < 0) {
+				newDisplayOrder[rank++] = newIndex++;
+			} else {
+				newDisplayOrder[rank++] = oldIndex;
+				oldRank++;
 			}
 		}
-		filterCached = null;
+		while (oldRank < firstNewIndex) {
+			newDisplayOrder[rank++] = displayOrder == null ? oldRank : displayOrder[oldRank];
+			oldRank++;
+		}
+		while (newIndex < size) {
+			newDisplayOrder[rank++] = newIndex++;
+		}
+
+		int[] newRanks = new int[size];
+		for (int i = 0; i < size; i++) {
+			newRanks[newDisplayOrder[i]] = i;
+		}
+		this.displayOrder = newDisplayOrder;
+		this.ranks = newRanks;
+	}
+
+	/**
+	 * Called after ingredients were added or removed at runtime,
+	 * drops the cached search results and tells the listeners once for all of the changes.
+	 */
+	public void onIngredientsChanged() {
+		invalidateCache();
+		notifyListenersOfChange();
 	}
 
 	public void invalidateCache() {
+		invalidateIngredientList();
+		this.searchResultCached = null;
+	}
+
+	/**
+	 * Called when the visible ingredients change but the search trees do not,
+	 * so the matches of the last search can still be refined.
+	 */
+	private void invalidateIngredientList() {
 		this.filterCached = null;
+		this.visibleIndexesCached = null;
+		cancelPendingSearch();
 	}
 
+	/**
+	 * Finds the elements with the same ingredient class and uid as the given one.
+	 */
 	public <V> List<IIngredientListElement<V>> findMatchingElements(IIngredientListElement<V> element) {
-		final IIngredientHelper<V> ingredientHelper = element.getIngredientHelper();
-		final V ingredient = element.getIngredient();
-		final String ingredientUid = ingredientHelper.getUniqueId(ingredient);
-		@SuppressWarnings("unchecked") final Class<? extends V> ingredientClass = (Class<? extends V>) ingredient.getClass();
+		ElementUidIndex uidIndex = this.uidIndex;
+		if (uidIndex == null) {
+			uidIndex = createUidIndex(IngredientFilter::getUniqueId);
+			this.uidIndex = uidIndex;
+		}
+		return getMatchingElements(uidIndex, getUniqueId(element), element);
+	}
+
+	/**
+	 * Finds the elements with the same ingredient class and wildcard uid as the given one.
+	 */
+	public <V> List<IIngredientListElement<V>> findWildcardMatchingElements(IIngredientListElement<V> element) {
+		ElementUidIndex wildcardUidIndex = this.wildcardUidIndex;
+		if (wildcardUidIndex == null) {
+			wildcardUidIndex = createUidIndex(IngredientFilter::getWildcardId);
+			this.wildcardUidIndex = wildcardUidIndex;
+		}
+		return getMatchingElements(wildcardUidIndex, getWildcardId(element), element);
+	}
+
+	private ElementUidIndex createUidIndex(Function<IIngredientListElement<?>, String> uidFunction) {
+		ElementUidIndex uidIndex = new ElementUidIndex(uidFunction);
+		for (int i = 0; i < this.elementList.size(); i++) {
+			uidIndex.add(this.elementList.get(i), i);
+		}
+		return uidIndex;
+	}
+
+	private <V> List<IIngredientListElement<V>> getMatchingElements(ElementUidIndex uidIndex, String uid, IIngredientListElement<V> element) {
+		@SuppressWarnings("unchecked") final Class<? extends V> ingredientClass = (Class<? extends V>) element.getIngredient().getClass();
 
 		final List<IIngredientListElement<V>> matchingElements = new ArrayList<>();
-		final IntSet matchingIndexes = searchTree.search(Translator.toLowercaseWithLocale(element.getDisplayName()));
-		final IntIterator iterator = matchingIndexes.iterator();
+		final IntIterator iterator = uidIndex.get(uid).iterator();
 		while (iterator.hasNext()) {
-			int index = iterator.nextInt();
-			IIngredientListElement matchingElement = this.elementList.get(index);
-			Object matchingIngredient = matchingElement.getIngredient();
-			if (ingredientClass.isInstance(matchingIngredient)) {
-				V castMatchingIngredient = ingredientClass.cast(matchingIngredient);
-				String matchingUid = ingredientHelper.getUniqueId(castMatchingIngredient);
-				if (ingredientUid.equals(matchingUid)) {
-					@SuppressWarnings("unchecked")
-					IIngredientListElement<V> matchingElementCast = (IIngredientListElement<V>) matchingElement;
-					matchingElements.add(matchingElementCast);
-				}
+			IIngredientListElement matchingElement = this.elementList.get(iterator.nextInt());
+			if (ingredientClass.isInstance(matchingElement.getIngredient())) {
+				@SuppressWarnings("unchecked")
+				IIngredientListElement<V> matchingElementCast = (IIngredientListElement<V>) matchingElement;
+				matchingElements.add(matchingElementCast);
 			}
 		}
 		return matchingElements;
 	}
 
+	private static <V> String getUniqueId(IIngredientListElement<V> element) {
+		return element.getIngredientHelper().getUniqueId(element.getIngredient());
+	}
+
+	private static <V> String getWildcardId(IIngredientListElement<V> element) {
+		return element.getIngredientHelper().getWildcardId(element.getIngredient());
+	}
+
 	public void modesChanged() {
-		this.combinedSearchTrees = buildCombinedSearchTrees(this.searchTree, this.prefixedSearchTrees.values());
+		// the combined tree is made of the enabled prefixed trees, so it changes when any of them is enabled or stops being enabled
+		for (Char2ObjectMap.Entry<PrefixedSearchTree> entry : this.prefixedSearchTrees.char2ObjectEntrySet()) {
+			Config.SearchMode searchMode = entry.getValue().getMode();
+			Config.SearchMode previousSearchMode = this.searchModes.put(entry.getCharKey(), searchMode);
+			if (searchMode != previousSearchMode && (searchMode == Config.SearchMode.ENABLED || previousSearchMode == Config.SearchMode.ENABLED)) {
+				this.searchResultCache.invalidate(SearchToken.NO_PREFIX);
+			}
+		}
+		this.tooltipCache.updateOptions();
 		this.backgroundBuilder.start();
-		this.filterCached = null;
+		// the config blacklist may have been edited along with the search modes
+		updateHidden();
+		invalidateCache();
+	}
+
+	/**
+	 * Called when the background builder has replaced the tree for the prefix.
+	 */
+	private void onPrefixedSearchTreeChanged(char prefix) {
+		if (prefix == '#') {
+			saveTooltipCache();
+		}
+		this.searchResultCache.invalidate(prefix);
+		PrefixedSearchTree prefixedSearchTree = this.prefixedSearchTrees.get(prefix);
+		if (prefixedSearchTree != null && prefixedSearchTree.getMode() == Config.SearchMode.ENABLED) {
+			this.searchResultCache.invalidate(SearchToken.NO_PREFIX);
+		}
+		invalidateCache();
+	}
+
+	/**
+	 * Returns the percentage of ingredients indexed so far for each search prefix that is still being built.
+	 */
+	public Char2IntMap getSearchTreeBuildProgress() {
+		return this.backgroundBuilder.getProgress();
 	}
 
 	@SubscribeEvent
 	public void onEditModeToggleEvent(EditModeToggleEvent event) {
-		this.filterCached = null;
-		updateHidden();
+		invalidateIngredientList();
+		// edit mode only changes whether elements on the config blacklist are shown
+		for (int i = configBlacklistedIndexes.nextSetBit(0); i >= 0; i = configBlacklistedIndexes.nextSetBit(i + 1)) {
+			updateVisibility(elementList.get(i), i);
+		}
+	}
+
+	@SubscribeEvent
+	public void onClientTick(TickEvent.ClientTickEvent event) {
+		if (event.phase == TickEvent.Phase.END) {
+			return;
+		}
+
+		this.backgroundBuilder.tick();
 	}
 
 	@SubscribeEvent
 	public void onPlayerJoinedWorldEvent(PlayerJoinedWorldEvent event) {
-		this.filterCached = null;
+		invalidateIngredientList();
 		updateHidden();
 	}
 
 	public void updateHidden() {
-		for (IIngredientListElement<?> element : elementList) {
-			updateHiddenState(element);
+		for (int i = 0; i < elementList.size(); i++) {
+			updateHiddenState(elementList.get(i), i);
 		}
 	}
 
+	/**
+	 * Checks the blacklists for the element again, after they have changed.
+	 */
 	public <V> void updateHiddenState(IIngredientListElement<V> element) {
+		final int index = elementIndexes.getInt(element);
+		if (index >= 0) {
+			updateHiddenState(element, index);
+		}
+	}
+
+	private <V> void updateHiddenState(IIngredientListElement<V> element, int index) {
 		V ingredient = element.getIngredient();
 		IIngredientHelper<V> ingredientHelper = element.getIngredientHelper();
-		boolean visible = !blacklist.isIngredientBlacklistedByApi(ingredient, ingredientHelper) &&
-			ingredientHelper.isIngredientOnServer(ingredient) &&
-			(Config.isEditModeEnabled() || !Config.isIngredientOnConfigBlacklist(ingredient, ingredientHelper));
+		boolean blacklisted = blacklist.isIngredientBlacklistedByApi(ingredient, ingredientHelper) ||
+			!ingredientHelper.isIngredientOnServer(ingredient);
+		blacklistedIndexes.set(index, blacklisted);
+		configBlacklistedIndexes.set(index, Config.isIngredientOnConfigBlacklist(ingredient, ingredientHelper));
+		updateVisibility(element, index);
+	}
+
+	private void updateVisibility(IIngredientListElement<?> element, int index) {
+		boolean visible = !blacklistedIndexes.get(index) &&
+			(Config.isEditModeEnabled() || !configBlacklistedIndexes.get(index));
 		if (element.isVisible() != visible) {
 			element.setVisible(visible);
-			this.filterCached = null;
+			this.visibilityGeneration++;
+			invalidateIngredientList();
+		}
+	}
+
+	public int getVisibilityGeneration() {
+		return visibilityGeneration;
+	}
+
+	private IntBitmap getVisibleIndexes() {
+		IntBitmap visibleIndexes = this.visibleIndexesCached;
+		if (visibleIndexes == null) {
+			BitSet visible = new BitSet(elementList.size());
+			visible.set(0, elementList.size());
+			visible.andNot(blacklistedIndexes);
+			if (!Config.isEditModeEnabled()) {
+				visible.andNot(configBlacklistedIndexes);
+			}
+			visibleIndexes = IntBitmap.fromBitSet(visible);
+			this.visibleIndexesCached = visibleIndexes;
 		}
+		return visibleIndexes;
 	}
 
 	@Override
 	public List<IIngredientListElement> getIngredientList() {
+		SearchResult searchResult = updateSearchResult();
+		return searchResult == null ? Collections.emptyList() : searchResult.getIngredientList();
+	}
+
+	@Override
+	public List<IIngredientListElement> getIngredients(int start, int count) {
+		SearchResult searchResult = updateSearchResult();
+		return searchResult == null ? Collections.emptyList() : searchResult.getIngredients(start, count);
+	}
+
+	/**
+	 * Starts a new search if the filter has changed, and returns the results to display.
+	 */
+	@Nullable
+	private SearchResult updateSearchResult() {
 		String filterText = Translator.toLowercaseWithLocale(Config.getFilterText());
 		if (!filterText.equals(filterCached)) {
-			List<IIngredientListElement> ingredientList = getIngredientListUncached(filterText);
-			ingredientList.sort(IngredientListElementComparator.INSTANCE);
-			ingredientListCached = Collections.unmodifiableList(ingredientList);
-			filterCached = filterText;
+			if (Config.isAsyncSearchEnabled()) {
+				startAsyncSearch(filterText);
+			} else {
+				cancelPendingSearch();
+				SearchResult searchResult = search(filterText, createSearchSnapshot(), searchResultCached, () -> false);
+				onSearchFinished(searchResult);
+			}
 		}
-		return ingredientListCached;
+		return displayedSearchResult;
+	}
+
+	/**
+	 * Searches on {@link #SEARCH_EXECUTOR}, the previous results are returned until the new ones arrive.
+	 */
+	private void startAsyncSearch(String filterText) {
+		PendingSearch pendingSearch = this.pendingSearch;
+		if (pendingSearch != null && pendingSearch.getFilterText().equals(filterText)) {
+			return;
+		}
+		cancelPendingSearch();
+
+		final PendingSearch newSearch = new PendingSearch(filterText);
+		final SearchSnapshot snapshot = createSearchSnapshot();
+		final SearchResult previousResult = this.searchResultCached;
+		this.pendingSearch = newSearch;
+		SEARCH_EXECUTOR.execute(() -> {
+			try {
+				SearchResult searchResult = search(filterText, snapshot, previousResult, newSearch::isCancelled);
+				Minecraft.getMinecraft().addScheduledTask(() -> onAsyncSearchFinished(newSearch, searchResult));
+			} catch (CancellationException ignored) {
+				// a newer search has replaced this one
+			} catch (RuntimeException | LinkageError e) {
+				Log.get().error("Ingredient search failed for filter: {}", filterText, e);
+			}
+		});
+	}
+
+	private void onAsyncSearchFinished(PendingSearch search, SearchResult searchResult) {
+		if (this.pendingSearch == search && !search.isCancelled()) {
+			this.pendingSearch = null;
+			onSearchFinished(searchResult);
+			notifyListenersOfChange();
+		}
+	}
+
+	private void onSearchFinished(SearchResult searchResult) {
+		this.searchResultCached = searchResult;
+		this.displayedSearchResult = searchResult;
+		this.filterCached = searchResult.getFilterText();
+	}
+
+	private void cancelPendingSearch() {
+		PendingSearch pendingSearch = this.pendingSearch;
+		if (pendingSearch != null) {
+			pendingSearch.cancel();
+			this.pendingSearch = null;
+		}
+	}
+
+	/**
+	 * Captures the current elements and search trees, ingredients added after this are not seen by the search.
+	 */
+	private SearchSnapshot createSearchSnapshot() {
+		CombinedSearchTrees combinedSearchTrees = new CombinedSearchTrees();
+		combinedSearchTrees.addSearchTree(this.searchTree.snapshot());
+		Char2ObjectMap<ISearchTree> prefixedSnapshots = new Char2ObjectOpenHashMap<>();
+		for (Char2ObjectMap.Entry<PrefixedSearchTree> entry : this.prefixedSearchTrees.char2ObjectEntrySet()) {
+			PrefixedSearchTree prefixedTree = entry.getValue();
+			Config.SearchMode searchMode = prefixedTree.getMode();
+			if (searchMode != Config.SearchMode.DISABLED) {
+				ISearchTree snapshot = prefixedTree.getTree().snapshot();
+				prefixedSnapshots.put(entry.getCharKey(), snapshot);
+				if (searchMode == Config.SearchMode.ENABLED) {
+					combinedSearchTrees.addSearchTree(snapshot);
+				}
+			}
+		}
+		return new SearchSnapshot(this.elementArray, this.ranks, this.displayOrder, getVisibleIndexes(), combinedSearchTrees, prefixedSnapshots, this.searchResultCache);
 	}
 
 	@Override
@@ -232,45 +759,20 @@ public class IngredientFilter implements IIngredientFilter, IIngredientGridSourc
 		}
 	}
 
-	private List<IIngredientListElement> getIngredientListUncached(String filterText) {
-		String[] filters = filterText.split("\\|");
-
-		IntSet matches = null;
-
-		for (String filter : filters) {
-			IntSet elements = getElements(filter);
-			if (elements != null) {
-				if (matches == null) {
-					matches = elements;
-				} else {
-					matches.addAll(elements);
-				}
-			}
-		}
-
-		List<IIngredientListElement> matchingIngredients = new ArrayList<>();
-
-		if (matches == null) {
-			for (IIngredientListElement element : elementList) {
-				if (element.isVisible()) {
-					matchingIngredients.add(element);
-				}
-			}
-		} else {
-			int[] matchesList = matches.toIntArray();
-			Arrays.sort(matchesList);
-			for (int match : matchesList) {
-				IIngredientListElement<?> element = elementList.get(match);
-				if (element.isVisible()) {
-					matchingIngredients.add(element);
-				}
-			}
+	/**
+	 * Returns the display positions of the visible matching elements, iterating them in ascending order gives display order.
+	 */
+	private static IntBitmap getVisibleRanks(SearchSnapshot snapshot, @Nullable IntBitmap matches) {
+		IntBitmap visibleMatches = snapshot.getVisibleIndexes();
+		if (matches != null) {
+			visibleMatches = visibleMatches.and(matches);
 		}
-		return matchingIngredients;
+		return snapshot.toRanks(visibleMatches);
 	}
 
 	/**
 	 * Scans up and down the element list to find wildcard matches that touch the given element.
+	 * Use {@link #findWildcardMatchingElements(IIngredientListElement)} when matching by wildcard uid, it does not need to scan.
 	 */
 	public <T> List<IIngredientListElement<T>> getMatches(IIngredientListElement<T> ingredientListElement, Function<IIngredientListElement<?>, String> uidFunction) {
 		final String uid = uidFunction.apply(ingredientListElement);
@@ -278,7 +780,7 @@ public class IngredientFilter implements IIngredientFilter, IIngredientGridSourc
 		IntSet matchingIndexes = new IntOpenHashSet(50);
 		IntSet startingIndexes = new IntOpenHashSet(matchingElements.size());
 		for (IIngredientListElement matchingElement : matchingElements) {
-			int index = this.elementList.indexOf(matchingElement);
+			int index = this.elementIndexes.getInt(matchingElement);
 			startingIndexes.add(index);
 			matchingIndexes.add(index);
 		}
@@ -314,87 +816,87 @@ public class IngredientFilter implements IIngredientFilter, IIngredientGridSourc
 		return matchingElements;
 	}
 
-	@Nullable
-	private IntSet getElements(String filterText) {
-		Matcher filterMatcher = FILTER_SPLIT_PATTERN.matcher(filterText);
-
-		IntSet matches = null;
-		IntSet removeMatches = null;
-		while (filterMatcher.find()) {
-			String token = filterMatcher.group(1);
-			final boolean remove = token.startsWith("-");
-			if (remove) {
-				token = token.substring(1);
-			}
-			token = QUOTE_PATTERN.matcher(token).replaceAll("");
-
-			IntSet searchResults = getSearchResults(token);
-			if (searchResults != null) {
-				if (remove) {
-					if (removeMatches == null) {
-						removeMatches = searchResults;
-					} else {
-						removeMatches.addAll(searchResults);
-					}
-				} else {
-					if (matches == null) {
-						matches = searchResults;
-					} else {
-						matches = intersection(matches, searchResults);
-					}
-					if (matches.isEmpty()) {
-						break;
-					}
-				}
+	/**
+	 * Finds the visible elements matching the filter, in display order.
+	 * Only reads the snapshot, so it can run off the client thread.
+	 *
+	 * @param previousResult the last search, its matches are refined if the filter only narrows it
+	 * @param cancelled      checked regularly, the search stops with a {@link CancellationException} once it returns true
+	 */
+	private static SearchResult search(String filterText, SearchSnapshot snapshot, @Nullable SearchResult previousResult, BooleanSupplier cancelled) {
+		SearchPlan plan = SearchPlan.create(filterText, snapshot);
+		List<SearchToken> tokens = plan.getTokens();
+		IntBitmap matches;
+		if (tokens != null && previousResult != null && canRefineMatches(tokens, previousResult)) {
+			matches = refineMatches(tokens, previousResult, snapshot, cancelled);
+		} else {
+			if (Config.isDebugModeEnabled()) {
+				Log.get().debug("Search plan for \"{}\": {}, {}", filterText, plan, snapshot.getSearchResultCache());
 			}
+			matches = plan.execute(cancelled);
 		}
 
-		if (matches != null && removeMatches != null) {
-			matches.removeAll(removeMatches);
-		}
+		IntBitmap visibleRanks = getVisibleRanks(snapshot, matches);
+		checkCancelled(cancelled);
+		return new SearchResult(filterText, tokens, matches, visibleRanks, snapshot);
+	}
 
-		return matches;
+	static void checkCancelled(BooleanSupplier cancelled) throws CancellationException {
+		if (cancelled.getAsBoolean()) {
+			throw new CancellationException();
+		}
 	}
 
 	/**
-	 * Gets the appropriate search tree for the given token, based on if the token has a prefix.
+	 * The previous matches can be refined if the new tokens are the previous ones followed by more tokens,
+	 * where the last previous token may have been narrowed by typing more characters onto it.
 	 */
-	@Nullable
-	private IntSet getSearchResults(String token) {
-		if (token.isEmpty()) {
-			return null;
-		}
-		final char firstChar = token.charAt(0);
-		final PrefixedSearchTree prefixedSearchTree = this.prefixedSearchTrees.get(firstChar);
-		if (prefixedSearchTree != null && prefixedSearchTree.getMode() != Config.SearchMode.DISABLED) {
-			token = token.substring(1);
-			if (token.isEmpty()) {
-				return null;
+	private static boolean canRefineMatches(List<SearchToken> tokens, SearchResult previousResult) {
+		final List<SearchToken> previousTokens = previousResult.getTokens();
+		if (previousTokens == null || previousResult.getMatches() == null || previousTokens.isEmpty() || tokens.size() < previousTokens.size()) {
+			return false;
+		}
+		final int last = previousTokens.size() - 1;
+		for (int i = 0; i < last; i++) {
+			if (!tokens.get(i).isSameAs(previousTokens.get(i))) {
+				return false;
 			}
-			GeneralizedSuffixTree tree = prefixedSearchTree.getTree();
-			return tree.search(token);
-		} else {
-			return combinedSearchTrees.search(token);
 		}
+		SearchToken previousToken = previousTokens.get(last);
+		SearchToken token = tokens.get(last);
+		return previousToken.isEmpty() || token.isSameAs(previousToken) || token.isNarrowerThan(previousToken);
 	}
 
 	/**
-	 * Efficiently get the elements contained in both sets.
-	 * Note that this implementation will alter the original sets.
+	 * Applies only the new or narrowed tokens, checking them against the previous matches instead of the whole list.
 	 */
-	private static IntSet intersection(IntSet set1, IntSet set2) {
-		if (set1.size() > set2.size()) {
-			set2.retainAll(set1);
-			return set2;
-		} else {
-			set1.retainAll(set2);
-			return set1;
+	private static IntBitmap refineMatches(List<SearchToken> tokens, SearchResult previousResult, SearchSnapshot snapshot, BooleanSupplier cancelled) {
+		final List<SearchToken> previousTokens = Objects.requireNonNull(previousResult.getTokens());
+		IntBitmap matches = Objects.requireNonNull(previousResult.getMatches());
+		final int last = previousTokens.size() - 1;
+		for (int i = last; i < tokens.size(); i++) {
+			checkCancelled(cancelled);
+			SearchToken token = tokens.get(i);
+			if (token.isEmpty() || (i == last && token.isSameAs(previousTokens.get(last)))) {
+				continue;
+			}
+			if (matches.isEmpty()) {
+				break;
+			}
+			IntBitmap searchResults = snapshot.search(token, matches);
+			if (token.isRemove()) {
+				matches = matches.andNot(searchResults);
+			} else {
+				matches = searchResults;
+			}
 		}
+		return matches;
 	}
 
 	@Override
 	public int size() {
-		return getIngredientList().size();
+		SearchResult searchResult = updateSearchResult();
+		return searchResult == null ? 0 : searchResult.size();
 	}
 
 	@Override
@@ -407,4 +909,25 @@ public class IngredientFilter implements IIngredientFilter, IIngredientGridSourc
 			listener.onChange();
 		}
 	}
+
+	private static class PendingSearch {
+		private final String filterText;
+		private volatile boolean cancelled;
+
+		public PendingSearch(String filterText) {
+			this.filterText = filterText;
+		}
+
+		public String getFilterText() {
+			return filterText;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		public void cancel() {
+			this.cancelled = true;
+		}
+	}
 }
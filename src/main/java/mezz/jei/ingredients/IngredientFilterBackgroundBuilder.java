@@ -1,69 +1,349 @@
 package mezz.jei.ingredients;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
-import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
-import net.minecraftforge.fml.common.gameevent.TickEvent;
-import net.minecraftforge.fml.relauncher.Side;
-import net.minecraftforge.common.MinecraftForge;
 import net.minecraft.client.Minecraft;
 import net.minecraft.util.NonNullList;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import it.unimi.dsi.fastutil.chars.Char2IntArrayMap;
+import it.unimi.dsi.fastutil.chars.Char2IntMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectArrayMap;
 import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
 import mezz.jei.config.Config;
 import mezz.jei.gui.ingredients.IIngredientListElement;
-import mezz.jei.suffixtree.GeneralizedSuffixTree;
+import mezz.jei.suffixtree.GeneralizedSuffixArray;
+import mezz.jei.util.ErrorUtil;
+import mezz.jei.util.Log;
 
+/**
+ * Builds the prefixed search trees that are missing elements, for example after their search mode was enabled.
+ * <p>
+ * Strings that are safe to look up anywhere, like mod names, resource ids and cached tooltips, are looked up on a bounded worker pool.
+ * The rest come from tooltips, sprites, creative tabs and the ore dictionary, which are only safe to read on the client thread.
+ * They are looked up there in a burst when the build starts and then for a few milliseconds per tick, see {@link #tick()},
+ * and each chunk of collected strings is put into a copy of the tree on the worker pool, in the order of the elements.
+ * The worker pool indexes the tree once every element has been put, and finished trees are swapped in on the client thread,
+ * so searches only ever see complete trees.
+ */
 public class IngredientFilterBackgroundBuilder {
+	private static final int THREAD_COUNT = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+	private static final ExecutorService BUILD_EXECUTOR = Executors.newFixedThreadPool(THREAD_COUNT,
+		new ThreadFactoryBuilder()
+			.setNameFormat("JEI Search Tree Builder %d")
+			.setDaemon(true)
+			.build()
+	);
+	/**
+	 * How long {@link #start()} may spend collecting strings before leaving the rest to the following ticks.
+	 */
+	private static final long COLLECT_TIME_ON_START = TimeUnit.MILLISECONDS.toNanos(10000);
+	/**
+	 * How long each client tick may spend collecting strings, shared by all of the trees being built.
+	 */
+	private static final long COLLECT_TIME_PER_TICK = TimeUnit.MILLISECONDS.toNanos(20);
+	/**
+	 * How long {@link #start()} waits when every build is waiting for the worker pool to finish looking up a block.
+	 */
+	private static final long WAIT_FOR_LOOKUP_TIME = TimeUnit.MILLISECONDS.toNanos(1);
+	/**
+	 * How many elements the worker pool or the client thread claims at a time to look up, see {@link BuildTask#nextLookUpBlock}.
+	 */
+	private static final int LOOK_UP_BLOCK_SIZE = 256;
+
 	private final Char2ObjectMap<PrefixedSearchTree> prefixedSearchTrees;
 	private final NonNullList<IIngredientListElement> elementList;
+	private final Supplier<IIngredientListElement[]> elementArray;
+	private final ITreeChangedListener onTreeChanged;
+	/**
+	 * The running build for each prefix, only accessed on the client thread.
+	 */
+	private final Char2ObjectMap<BuildTask> buildTasks = new Char2ObjectArrayMap<>();
+	/**
+	 * The builds that are still collecting strings, in the order they were started.
+	 */
+	private final List<BuildTask> collectingTasks = new ArrayList<>();
 
-	public IngredientFilterBackgroundBuilder(Char2ObjectMap<PrefixedSearchTree> prefixedSearchTrees, NonNullList<IIngredientListElement> elementList) {
+	/**
+	 * @param elementArray returns the shared array of the elements in the element list, which is only ever appended to
+	 */
+	public IngredientFilterBackgroundBuilder(Char2ObjectMap<PrefixedSearchTree> prefixedSearchTrees, NonNullList<IIngredientListElement> elementList, Supplier<IIngredientListElement[]> elementArray, ITreeChangedListener onTreeChanged) {
 		this.prefixedSearchTrees = prefixedSearchTrees;
 		this.elementList = elementList;
+		this.elementArray = elementArray;
+		this.onTreeChanged = onTreeChanged;
 	}
 
+	/**
+	 * Starts building every enabled tree that is missing elements and is not already being built,
+	 * and collects their strings until they are done or the time for starting runs out.
+	 */
 	public void start() {
-		boolean finished = run(10000);
-		if (!finished) {
-			MinecraftForge.EVENT_BUS.register(this);
+		ErrorUtil.assertMainThread();
+		boolean started = false;
+		for (Char2ObjectMap.Entry<PrefixedSearchTree> entry : this.prefixedSearchTrees.char2ObjectEntrySet()) {
+			final char prefix = entry.getCharKey();
+			final PrefixedSearchTree prefixedTree = entry.getValue();
+			final GeneralizedSuffixArray tree = prefixedTree.getTree();
+			if (prefixedTree.getMode() != Config.SearchMode.DISABLED &&
+				tree.getHighestIndex() < this.elementList.size() - 1 &&
+				!this.buildTasks.containsKey(prefix)) {
+				BuildTask buildTask = new BuildTask(prefix, prefixedTree, this.elementArray.get(), this.elementList.size() - 1);
+				this.buildTasks.put(prefix, buildTask);
+				this.collectingTasks.add(buildTask);
+				started = true;
+			}
+		}
+		if (started) {
+			final long deadline = System.nanoTime() + COLLECT_TIME_ON_START;
+			while (!this.collectingTasks.isEmpty() && System.nanoTime() < deadline) {
+				if (!collect(deadline)) {
+					// the worker pool is still looking up the next block of elements
+					LockSupport.parkNanos(WAIT_FOR_LOOKUP_TIME);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collects the strings of the next elements for the running builds, until the time for this tick runs out.
+	 * Called at the start of every client tick.
+	 */
+	public void tick() {
+		if (!this.collectingTasks.isEmpty()) {
+			collect(System.nanoTime() + COLLECT_TIME_PER_TICK);
 		}
 	}
 
-	@SubscribeEvent
-	public void onClientTick(TickEvent.ClientTickEvent event) {
-		if (event.side == Side.CLIENT && Minecraft.getMinecraft().player != null) {
-			boolean finished = run(20);
-			if (!finished) {
-				return;
+	/**
+	 * Returns true if the strings of any element were collected.
+	 */
+	private boolean collect(long deadline) {
+		boolean collected = false;
+		Iterator<BuildTask> iterator = this.collectingTasks.iterator();
+		while (iterator.hasNext() && System.nanoTime() < deadline) {
+			BuildTask buildTask = iterator.next();
+			final int collectedIndex = buildTask.collectedIndex;
+			try {
+				if (buildTask.collect(deadline)) {
+					iterator.remove();
+				}
+			} catch (RuntimeException | LinkageError e) {
+				Log.get().error("Failed to build search tree for prefix {}", buildTask.prefix, e);
+				iterator.remove();
+				this.buildTasks.remove(buildTask.prefix);
 			}
+			collected |= buildTask.collectedIndex != collectedIndex;
 		}
-		MinecraftForge.EVENT_BUS.unregister(this);
+		return collected;
 	}
 
-	private boolean run(final int timeoutMs) {
-		final long startTime = System.currentTimeMillis();
-		for (PrefixedSearchTree prefixedTree : this.prefixedSearchTrees.values()) {
-			Config.SearchMode mode = prefixedTree.getMode();
-			if (mode != Config.SearchMode.DISABLED) {
-				PrefixedSearchTree.IStringsGetter stringsGetter = prefixedTree.getStringsGetter();
-				GeneralizedSuffixTree tree = prefixedTree.getTree();
-				for (int i = tree.getHighestIndex() + 1; i < this.elementList.size(); i++) {
-					IIngredientListElement element = elementList.get(i);
-					Collection<String> strings = stringsGetter.getStrings(element);
-					if (strings.isEmpty()) {
-						tree.put("", i);
-					} else {
-						for (String string : strings) {
-							tree.put(string, i);
-						}
-					}
-					if (System.currentTimeMillis() - startTime >= timeoutMs) {
-						return false;
+	/**
+	 * Returns the percentage of elements added so far for each prefix whose tree is being built.
+	 * Prefixes that are not in the map can be searched with all elements.
+	 */
+	public Char2IntMap getProgress() {
+		Char2IntMap progress = new Char2IntArrayMap(this.buildTasks.size());
+		for (BuildTask buildTask : this.buildTasks.values()) {
+			progress.put(buildTask.prefix, buildTask.getProgressPercent());
+		}
+		return progress;
+	}
+
+	private void onBuildFinished(BuildTask buildTask, GeneralizedSuffixArray builtTree) {
+		this.buildTasks.remove(buildTask.prefix);
+		// the tree is only replaced if nothing was put into it while it was being copied and built
+		if (buildTask.prefixedTree.getTree() == buildTask.sourceTree &&
+			buildTask.sourceTree.getHighestIndex() == buildTask.sourceHighestIndex) {
+			buildTask.prefixedTree.setTree(builtTree);
+			Log.get().info("Built search tree for prefix {} in {} ms", buildTask.prefix, System.currentTimeMillis() - buildTask.startTime);
+			this.onTreeChanged.onTreeChanged(buildTask.prefix);
+		}
+		// catch up on elements that were added while building
+		start();
+	}
+
+	private void onBuildFailed(BuildTask buildTask) {
+		this.buildTasks.remove(buildTask.prefix);
+	}
+
+	private class BuildTask {
+		private final char prefix;
+		private final PrefixedSearchTree prefixedTree;
+		private final GeneralizedSuffixArray sourceTree;
+		private final int sourceHighestIndex;
+		private final GeneralizedSuffixArray tree;
+		/**
+		 * The elements when the build started. Their slots are never written again, so the worker threads can read them.
+		 */
+		private final IIngredientListElement[] elements;
+		private final int lastIndex;
+		/**
+		 * The strings of each element after {@link #sourceHighestIndex}, from the worker pool if it could look them up and from the client thread if not.
+		 * Each slot is cleared once it has been put into the tree.
+		 */
+		private final Collection<String>[] strings;
+		private final long startTime = System.currentTimeMillis();
+		/**
+		 * Looks up the strings that are safe to look up off the client thread.
+		 */
+		private final CompletableFuture<Void> lookups;
+		/**
+		 * The next block of {@link #LOOK_UP_BLOCK_SIZE} elements to look up, counted from {@link #sourceHighestIndex}.
+		 * The worker pool and the client thread both claim blocks in order, so the client thread looks up the next block itself
+		 * instead of waiting when the worker pool has not got to it yet.
+		 */
+		private final AtomicInteger nextLookUpBlock = new AtomicInteger();
+		/**
+		 * The index of the last element in the last block that the worker pool has looked up.
+		 */
+		private volatile int lookedUpIndex;
+		/**
+		 * The index of the last element in the last block that the client thread claimed or found looked up, only accessed on the client thread.
+		 */
+		private int claimedIndex;
+		/**
+		 * The index of the last element whose strings were collected, only accessed on the client thread.
+		 */
+		private int collectedIndex;
+		/**
+		 * Puts the collected chunks into {@link #tree} one after another on the worker pool, only accessed on the client thread.
+		 */
+		private CompletableFuture<Void> puts = CompletableFuture.completedFuture(null);
+		/**
+		 * The index of the last element added to {@link #tree}, written by the worker threads only.
+		 */
+		private volatile int builtIndex;
+
+		@SuppressWarnings("unchecked")
+		public BuildTask(char prefix, PrefixedSearchTree prefixedTree, IIngredientListElement[] elements, int lastIndex) {
+			this.prefix = prefix;
+			this.prefixedTree = prefixedTree;
+			this.sourceTree = prefixedTree.getTree();
+			this.sourceHighestIndex = this.sourceTree.getHighestIndex();
+			this.tree = this.sourceTree.copy();
+			this.elements = elements;
+			this.lastIndex = lastIndex;
+			this.strings = new Collection[lastIndex - this.sourceHighestIndex];
+			this.collectedIndex = this.sourceHighestIndex;
+			this.builtIndex = this.sourceHighestIndex;
+			this.lookedUpIndex = this.sourceHighestIndex;
+			this.claimedIndex = this.sourceHighestIndex;
+			if (prefixedTree.hasStringsOffThread()) {
+				this.lookups = CompletableFuture.runAsync(this::lookUp, BUILD_EXECUTOR);
+			} else {
+				this.lookups = CompletableFuture.completedFuture(null);
+			}
+		}
+
+		public int getProgressPercent() {
+			return (int) ((builtIndex + 1) * 100L / (lastIndex + 1));
+		}
+
+		/**
+		 * Looks up the strings of the elements that can be looked up off the client thread, on the worker pool,
+		 * one block at a time until the client thread has claimed or collected the rest.
+		 */
+		private void lookUp() {
+			while (true) {
+				final int block = nextLookUpBlock.getAndIncrement();
+				final int firstIndex = getFirstIndex(block);
+				if (firstIndex > lastIndex) {
+					return;
+				}
+				final int blockLastIndex = getLastIndex(block);
+				for (int index = firstIndex; index <= blockLastIndex; index++) {
+					strings[index - sourceHighestIndex - 1] = prefixedTree.getStringsOffThread(elements[index]);
+				}
+				lookedUpIndex = blockLastIndex;
+			}
+		}
+
+		private int getFirstIndex(int block) {
+			return sourceHighestIndex + 1 + block * LOOK_UP_BLOCK_SIZE;
+		}
+
+		private int getLastIndex(int block) {
+			return Math.min(getFirstIndex(block + 1) - 1, lastIndex);
+		}
+
+		/**
+		 * Collects the strings of the next elements until the deadline and queues putting them into the tree.
+		 * Only the strings that the worker pool could not look up are looked up here,
+		 * unless the worker pool has not got to them yet.
+		 * Returns true when there is nothing left to collect.
+		 */
+		public boolean collect(long deadline) {
+			if (puts.isCompletedExceptionally() || lookups.isCompletedExceptionally()) {
+				// the failure is logged by finish()
+				finish(CompletableFuture.allOf(lookups, puts));
+				return true;
+			}
+			final int firstIndex = collectedIndex + 1;
+			while (collectedIndex < lastIndex && System.nanoTime() < deadline) {
+				final int index = collectedIndex + 1;
+				if (index > claimedIndex) {
+					final int block = (index - sourceHighestIndex - 1) / LOOK_UP_BLOCK_SIZE;
+					final int blockLastIndex = getLastIndex(block);
+					if (!nextLookUpBlock.compareAndSet(block, block + 1) && lookedUpIndex < blockLastIndex) {
+						// the worker pool is looking up this block
+						break;
 					}
+					claimedIndex = blockLastIndex;
 				}
+				final int slot = index - sourceHighestIndex - 1;
+				if (strings[slot] == null) {
+					strings[slot] = prefixedTree.getStrings(elements[index]);
+				}
+				collectedIndex = index;
+			}
+			final int lastCollectedIndex = collectedIndex;
+			if (lastCollectedIndex >= firstIndex) {
+				puts = puts.thenRunAsync(() -> put(firstIndex, lastCollectedIndex), BUILD_EXECUTOR);
+			}
+			if (lastCollectedIndex == lastIndex) {
+				finish(puts);
+				return true;
+			}
+			return false;
+		}
+
+		private void put(int firstIndex, int lastPutIndex) {
+			for (int index = firstIndex; index <= lastPutIndex; index++) {
+				final int slot = index - sourceHighestIndex - 1;
+				PrefixedSearchTree.putStrings(tree, strings[slot], index);
+				strings[slot] = null;
 			}
+			builtIndex = lastPutIndex;
 		}
-		return true;
+
+		/**
+		 * Indexes the tree after the last chunk has been put, and hands it back to the client thread.
+		 */
+		private void finish(CompletableFuture<Void> lastPut) {
+			lastPut.thenRunAsync(tree::index, BUILD_EXECUTOR).whenComplete((result, e) -> {
+				if (e == null) {
+					Minecraft.getMinecraft().addScheduledTask(() -> onBuildFinished(this, tree));
+				} else {
+					Log.get().error("Failed to build search tree for prefix {}", prefix, e);
+					Minecraft.getMinecraft().addScheduledTask(() -> onBuildFailed(this));
+				}
+			});
+		}
+	}
+
+	@FunctionalInterface
+	interface ITreeChangedListener {
+		void onTreeChanged(char prefix);
 	}
 }
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -47,6 +48,15 @@ public class IngredientRegistry implements IIngredientRegistry {
 	private final NonNullList<ItemStack> fuels = NonNullList.create();
 	private final NonNullList<ItemStack> potionIngredients = NonNullList.create();
 
+	private final Map<IIngredientType, IngredientBatch<?>> batches = new LinkedHashMap<>();
+	@Nullable
+	private IngredientFilter batchIngredientFilter;
+	private int batchDepth;
+	/**
+	 * Set when any batch is aborted, so the outermost batch discards its changes when it ends.
+	 */
+	private boolean batchAborted;
+
 	public IngredientRegistry(
 		IModIdHelper modIdHelper,
 		IngredientBlacklistInternal blacklist,
@@ -241,9 +251,18 @@ public class IngredientRegistry implements IIngredientRegistry {
 		ErrorUtil.checkNotNull(ingredientType, "ingredientType");
 		ErrorUtil.checkNotEmpty(ingredients, "ingredients");
 
+		if (batchDepth > 0) {
+			getBatch(ingredientType, ingredientFilter).add(ingredients);
+			return;
+		}
+		applyAdditions(ingredientType, ingredients, ingredientFilter);
+		ingredientFilter.onIngredientsChanged();
+	}
+
+	private <V> void applyAdditions(IIngredientType<V> ingredientType, Collection<V> ingredients, IngredientFilter ingredientFilter) {
 		Collection<EnchantmentData> enchantmentData = hack_getBookEnchantmentData(ingredientType, ingredients);
 		if (!enchantmentData.isEmpty()) {
-			addIngredientsAtRuntime(VanillaTypes.ENCHANT, enchantmentData, ingredientFilter);
+			applyAdditions(VanillaTypes.ENCHANT, enchantmentData, ingredientFilter);
 			if (ingredients.isEmpty()) {
 				return;
 			}
@@ -262,6 +281,7 @@ public class IngredientRegistry implements IIngredientRegistry {
 		}
 
 		NonNullList<IIngredientListElement<V>> ingredientListElements = IngredientListElementFactory.createList(this, ingredientType, ingredients, modIdHelper);
+		Map<String, IIngredientListElement<V>> newElements = new LinkedHashMap<>();
 		for (IIngredientListElement<V> element : ingredientListElements) {
 			List<IIngredientListElement<V>> matchingElements = ingredientFilter.findMatchingElements(element);
 			if (!matchingElements.isEmpty()) {
@@ -273,14 +293,16 @@ public class IngredientRegistry implements IIngredientRegistry {
 					Log.get().debug("Updated ingredient: {}", ingredientHelper.getErrorInfo(element.getIngredient()));
 				}
 			} else {
-				blacklist.removeIngredientFromBlacklist(element.getIngredient(), ingredientHelper);
-				ingredientFilter.addIngredient(element);
-				if (Config.isDebugModeEnabled()) {
-					Log.get().debug("Added ingredient: {}", ingredientHelper.getErrorInfo(element.getIngredient()));
+				String uid = ingredientHelper.getUniqueId(element.getIngredient());
+				if (newElements.putIfAbsent(uid, element) == null) {
+					blacklist.removeIngredientFromBlacklist(element.getIngredient(), ingredientHelper);
+					if (Config.isDebugModeEnabled()) {
+						Log.get().debug("Added ingredient: {}", ingredientHelper.getErrorInfo(element.getIngredient()));
+					}
 				}
 			}
 		}
-		ingredientFilter.invalidateCache();
+		ingredientFilter.addIngredientsAtRuntime(newElements.values());
 	}
 
 	@Override
@@ -333,9 +355,18 @@ public class IngredientRegistry implements IIngredientRegistry {
 		ErrorUtil.checkNotNull(ingredientType, "ingredientType");
 		ErrorUtil.checkNotEmpty(ingredients, "ingredients");
 
+		if (batchDepth > 0) {
+			getBatch(ingredientType, ingredientFilter).remove(ingredients);
+			return;
+		}
+		applyRemovals(ingredientType, ingredients, ingredientFilter);
+		ingredientFilter.onIngredientsChanged();
+	}
+
+	private <V> void applyRemovals(IIngredientType<V> ingredientType, Collection<V> ingredients, IngredientFilter ingredientFilter) {
 		Collection<EnchantmentData> enchantmentData = hack_getBookEnchantmentData(ingredientType, ingredients);
 		if (!enchantmentData.isEmpty()) {
-			removeIngredientsAtRuntime(VanillaTypes.ENCHANT, enchantmentData, ingredientFilter);
+			applyRemovals(VanillaTypes.ENCHANT, enchantmentData, ingredientFilter);
 			if (ingredients.isEmpty()) {
 				return;
 			}
@@ -363,10 +394,69 @@ public class IngredientRegistry implements IIngredientRegistry {
 			}
 			for (IIngredientListElement<V> matchingElement : matchingElements) {
 				blacklist.addIngredientToBlacklist(matchingElement.getIngredient(), ingredientHelper);
-				matchingElement.setVisible(false);
+				ingredientFilter.updateHiddenState(matchingElement);
 			}
 		}
-		ingredientFilter.invalidateCache();
+	}
+
+	@Override
+	public void beginBatch() {
+		ErrorUtil.assertMainThread();
+		batchDepth++;
+	}
+
+	@Override
+	public void commitBatch() {
+		ErrorUtil.assertMainThread();
+		if (batchDepth <= 0) {
+			throw new IllegalStateException("commitBatch was called without a matching beginBatch.");
+		}
+		batchDepth--;
+		if (batchDepth > 0) {
+			return;
+		}
+
+		List<IngredientBatch<?>> committedBatches = new ArrayList<>(batches.values());
+		IngredientFilter ingredientFilter = batchIngredientFilter;
+		boolean aborted = batchAborted;
+		clearBatches();
+		if (aborted || committedBatches.isEmpty() || ingredientFilter == null) {
+			return;
+		}
+
+		for (IngredientBatch<?> batch : committedBatches) {
+			batch.applyRemovals(ingredientFilter);
+		}
+		for (IngredientBatch<?> batch : committedBatches) {
+			batch.applyAdditions(ingredientFilter);
+		}
+		ingredientFilter.onIngredientsChanged();
+	}
+
+	@Override
+	public void abortBatch() {
+		ErrorUtil.assertMainThread();
+		if (batchDepth <= 0) {
+			throw new IllegalStateException("abortBatch was called without a matching beginBatch.");
+		}
+		batchDepth--;
+		batchAborted = true;
+		if (batchDepth == 0) {
+			clearBatches();
+		}
+	}
+
+	private void clearBatches() {
+		batches.clear();
+		batchIngredientFilter = null;
+		batchAborted = false;
+	}
+
+	private <V> IngredientBatch<V> getBatch(IIngredientType<V> ingredientType, IngredientFilter ingredientFilter) {
+		this.batchIngredientFilter = ingredientFilter;
+		@SuppressWarnings("unchecked")
+		IngredientBatch<V> batch = batches.computeIfAbsent(ingredientType, k -> new IngredientBatch<>(ingredientType, getIngredientHelper(ingredientType)));
+		return batch;
 	}
 
 	public <V> boolean isIngredientVisible(V ingredient, IngredientFilter ingredientFilter) {
@@ -435,4 +525,56 @@ public class IngredientRegistry implements IIngredientRegistry {
 		}
 		return bookEnchantment;
 	}
+
+	/**
+	 * The changes to one ingredient type recorded while a batch is open, keyed by unique id.
+	 * Only the last change to each ingredient is kept.
+	 */
+	private class IngredientBatch<V> {
+		private final IIngredientType<V> ingredientType;
+		private final IIngredientHelper<V> ingredientHelper;
+		private final Map<String, V> additions = new LinkedHashMap<>();
+		private final Map<String, V> removals = new LinkedHashMap<>();
+
+		public IngredientBatch(IIngredientType<V> ingredientType, IIngredientHelper<V> ingredientHelper) {
+			this.ingredientType = ingredientType;
+			this.ingredientHelper = ingredientHelper;
+		}
+
+		public void add(Collection<V> ingredients) {
+			for (V ingredient : ingredients) {
+				String uid = ingredientHelper.getUniqueId(ingredient);
+				removals.remove(uid);
+				additions.put(uid, ingredient);
+			}
+		}
+
+		public void remove(Collection<V> ingredients) {
+			for (V ingredient : ingredients) {
+				String uid = ingredientHelper.getUniqueId(ingredient);
+				// an ingredient that only exists because of this batch does not have to be removed
+				if (additions.remove(uid) == null || isKnown(uid)) {
+					removals.put(uid, ingredient);
+				}
+			}
+		}
+
+		private boolean isKnown(String uid) {
+			@SuppressWarnings("unchecked")
+			IngredientSet<V> set = ingredientsMap.get(ingredientType);
+			return set != null && set.getByUid(uid) != null;
+		}
+
+		public void applyRemovals(IngredientFilter ingredientFilter) {
+			if (!removals.isEmpty()) {
+				IngredientRegistry.this.applyRemovals(ingredientType, new ArrayList<>(removals.values()), ingredientFilter);
+			}
+		}
+
+		public void applyAdditions(IngredientFilter ingredientFilter) {
+			if (!additions.isEmpty()) {
+				IngredientRegistry.this.applyAdditions(ingredientType, new ArrayList<>(additions.values()), ingredientFilter);
+			}
+		}
+	}
 }
@@ -1,30 +1,89 @@
 package mezz.jei.ingredients;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 
 import mezz.jei.config.Config;
 import mezz.jei.gui.ingredients.IIngredientListElement;
-import mezz.jei.suffixtree.GeneralizedSuffixTree;
+import mezz.jei.suffixtree.GeneralizedSuffixArray;
 
 class PrefixedSearchTree {
-	private final GeneralizedSuffixTree tree;
+	private GeneralizedSuffixArray tree;
 	private final IStringsGetter stringsGetter;
+	@Nullable
+	private final IOffThreadStringsGetter offThreadStringsGetter;
 	private final IModeGetter modeGetter;
 
-	public PrefixedSearchTree(GeneralizedSuffixTree tree, IStringsGetter stringsGetter, IModeGetter modeGetter) {
+	public PrefixedSearchTree(GeneralizedSuffixArray tree, IStringsGetter stringsGetter, IModeGetter modeGetter) {
+		this(tree, stringsGetter, null, modeGetter);
+	}
+
+	public PrefixedSearchTree(GeneralizedSuffixArray tree, IStringsGetter stringsGetter, @Nullable IOffThreadStringsGetter offThreadStringsGetter, IModeGetter modeGetter) {
 		this.tree = tree;
 		this.stringsGetter = stringsGetter;
+		this.offThreadStringsGetter = offThreadStringsGetter;
 		this.modeGetter = modeGetter;
 	}
 
-	public GeneralizedSuffixTree getTree() {
+	public GeneralizedSuffixArray getTree() {
 		return tree;
 	}
 
+	/**
+	 * Replaces the tree with one that was built by the {@link IngredientFilterBackgroundBuilder}.
+	 */
+	public void setTree(GeneralizedSuffixArray tree) {
+		this.tree = tree;
+	}
+
 	public IStringsGetter getStringsGetter() {
 		return stringsGetter;
 	}
 
+	/**
+	 * Puts the strings of the element into the given tree.
+	 */
+	public void putStrings(GeneralizedSuffixArray tree, IIngredientListElement<?> element, int index) {
+		putStrings(tree, getStrings(element), index);
+	}
+
+	/**
+	 * Returns the strings of the element. The getters may use Minecraft, so this is only called on the client thread.
+	 */
+	public Collection<String> getStrings(IIngredientListElement<?> element) {
+		return stringsGetter.getStrings(element);
+	}
+
+	public boolean hasStringsOffThread() {
+		return offThreadStringsGetter != null;
+	}
+
+	/**
+	 * Returns the strings of the element if they can be looked up off the client thread,
+	 * or null if only {@link #getStrings(IIngredientListElement)} can look them up.
+	 */
+	@Nullable
+	public Collection<String> getStringsOffThread(IIngredientListElement<?> element) {
+		if (offThreadStringsGetter == null) {
+			return null;
+		}
+		return offThreadStringsGetter.getStrings(element);
+	}
+
+	/**
+	 * Puts strings that were already looked up into the given tree.
+	 * Elements without strings are put with an empty key, so the highest index of the tree shows how far it has been built.
+	 */
+	public static void putStrings(GeneralizedSuffixArray tree, Collection<String> strings, int index) {
+		if (strings.isEmpty()) {
+			tree.put("", index);
+		} else {
+			for (String string : strings) {
+				tree.put(string, index);
+			}
+		}
+	}
+
 	public Config.SearchMode getMode() {
 		return modeGetter.getMode();
 	}
@@ -34,6 +93,16 @@ class PrefixedSearchTree {
 		Collection<String> getStrings(IIngredientListElement<?> element);
 	}
 
+	/**
+	 * Looks up strings without using anything that is only safe on the client thread.
+	 * Returns null for elements whose strings have to be looked up by the {@link IStringsGetter}.
+	 */
+	@FunctionalInterface
+	interface IOffThreadStringsGetter {
+		@Nullable
+		Collection<String> getStrings(IIngredientListElement<?> element);
+	}
+
 	@FunctionalInterface
 	interface IModeGetter {
 		Config.SearchMode getMode();
@@ -0,0 +1,148 @@
+package mezz.jei.ingredients;
+
+import javax.annotation.Nullable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraftforge.fml.common.Loader;
+import net.minecraftforge.fml.common.ModContainer;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectOpenHashMap;
+import mezz.jei.api.ingredients.IIngredientHelper;
+import mezz.jei.config.Config;
+import mezz.jei.gui.ingredients.IIngredientListElement;
+import mezz.jei.suffixtree.GeneralizedSuffixArray;
+import mezz.jei.util.FileUtil;
+import mezz.jei.util.Log;
+import mezz.jei.util.Translator;
+
+/**
+ * Saves the search trees built by the {@link IngredientFilter}, so the next launch can load them instead of indexing every ingredient again.
+ * <p>
+ * The file starts with a fingerprint of everything the trees are built from: the mod list, the ingredients in index order,
+ * the locale and the search options. The trees are only loaded when it matches, with a memory-mapped read.
+ */
+class SearchIndexFile {
+	private static final int FORMAT_VERSION = 1;
+
+	private final File file;
+	private final byte[] fingerprint;
+
+	public SearchIndexFile(File file, List<IIngredientListElement> elements, Char2ObjectMap<PrefixedSearchTree> prefixedSearchTrees) {
+		this.file = file;
+		this.fingerprint = createFingerprint(elements, prefixedSearchTrees);
+	}
+
+	private static byte[] createFingerprint(List<IIngredientListElement> elements, Char2ObjectMap<PrefixedSearchTree> prefixedSearchTrees) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(FORMAT_VERSION);
+		for (ModContainer modContainer : Loader.instance().getActiveModList()) {
+			hasher.putUnencodedChars(modContainer.getModId());
+			hasher.putUnencodedChars(modContainer.getVersion());
+		}
+		hasher.putUnencodedChars(Translator.getLocale().toString());
+		hasher.putBoolean(Config.getSearchAdvancedTooltips());
+		char[] prefixes = prefixedSearchTrees.keySet().toCharArray();
+		Arrays.sort(prefixes);
+		for (char prefix : prefixes) {
+			hasher.putChar(prefix);
+			hasher.putBoolean(prefixedSearchTrees.get(prefix).getMode() != Config.SearchMode.DISABLED);
+		}
+		hasher.putInt(elements.size());
+		for (IIngredientListElement element : elements) {
+			putIngredient(hasher, element);
+		}
+		return hasher.hash().asBytes();
+	}
+
+	private static <V> void putIngredient(Hasher hasher, IIngredientListElement<V> element) {
+		V ingredient = element.getIngredient();
+		IIngredientHelper<V> ingredientHelper = element.getIngredientHelper();
+		hasher.putUnencodedChars(ingredient.getClass().getName());
+		hasher.putUnencodedChars(ingredientHelper.getUniqueId(ingredient));
+	}
+
+	/**
+	 * Returns the saved trees by prefix, with the display name tree under {@link SearchToken#NO_PREFIX},
+	 * or null if there is no file or it was built from different ingredients or options.
+	 */
+	@Nullable
+	public Char2ObjectMap<GeneralizedSuffixArray> read() {
+		if (!file.exists() || !hasMatchingFingerprint()) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.position(Integer.BYTES + Integer.BYTES + fingerprint.length);
+
+			final int treeCount = buffer.getInt();
+			Char2ObjectMap<GeneralizedSuffixArray> trees = new Char2ObjectOpenHashMap<>(treeCount);
+			for (int i = 0; i < treeCount; i++) {
+				char prefix = buffer.getChar();
+				trees.put(prefix, GeneralizedSuffixArray.read(buffer));
+			}
+			return trees;
+		} catch (IOException | RuntimeException e) {
+			Log.get().error("Failed to read search index file {}", file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Only the header is read here, with a plain stream, so that a file that will be replaced is never mapped.
+	 */
+	private boolean hasMatchingFingerprint() {
+		try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+			if (input.readInt() != FORMAT_VERSION) {
+				return false;
+			}
+			byte[] savedFingerprint = new byte[input.readInt()];
+			input.readFully(savedFingerprint);
+			return Arrays.equals(fingerprint, savedFingerprint);
+		} catch (IOException e) {
+			Log.get().error("Failed to read search index file {}", file, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Saves the given trees by prefix, with the display name tree under {@link SearchToken#NO_PREFIX}.
+	 */
+	public void write(Char2ObjectMap<GeneralizedSuffixArray> trees) {
+		FileUtil.writeFileSafely(file, fileTemp -> {
+			try (FileChannel channel = FileChannel.open(fileTemp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Integer.BYTES + fingerprint.length + Integer.BYTES);
+				header.putInt(FORMAT_VERSION)
+					.putInt(fingerprint.length)
+					.put(fingerprint)
+					.putInt(trees.size());
+				header.flip();
+				while (header.hasRemaining()) {
+					channel.write(header);
+				}
+
+				for (Char2ObjectMap.Entry<GeneralizedSuffixArray> entry : trees.char2ObjectEntrySet()) {
+					ByteBuffer prefix = ByteBuffer.allocate(Character.BYTES);
+					prefix.putChar(entry.getCharKey());
+					prefix.flip();
+					while (prefix.hasRemaining()) {
+						channel.write(prefix);
+					}
+					entry.getValue().write(channel);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,198 @@
+package mezz.jei.ingredients;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import mezz.jei.collect.IntBitmap;
+
+/**
+ * A filter parsed into groups separated by "|", each made of terms that must all match or must not match.
+ * The terms of each group are ordered by how many elements they are estimated to match,
+ * so the most selective ones are searched first and the rest only check the elements that are left.
+ */
+class SearchPlan {
+	private static final Pattern QUOTE_PATTERN = Pattern.compile("\"");
+	private static final Pattern FILTER_SPLIT_PATTERN = Pattern.compile("(-?\".*?(?:\"|$)|\\S+)");
+
+	private final List<Group> groups;
+
+	private SearchPlan(List<Group> groups) {
+		this.groups = groups;
+	}
+
+	public static SearchPlan create(String filterText, SearchSnapshot snapshot) {
+		List<Group> groups = new ArrayList<>();
+		if (filterText.contains("|")) {
+			for (String filter : filterText.split("\\|")) {
+				groups.add(new Group(parseTokens(filter, snapshot), snapshot));
+			}
+		} else {
+			groups.add(new Group(parseTokens(filterText, snapshot), snapshot));
+		}
+		return new SearchPlan(groups);
+	}
+
+	private static List<SearchToken> parseTokens(String filterText, SearchSnapshot snapshot) {
+		List<SearchToken> tokens = new ArrayList<>();
+		Matcher filterMatcher = FILTER_SPLIT_PATTERN.matcher(filterText);
+		while (filterMatcher.find()) {
+			String token = filterMatcher.group(1);
+			final boolean remove = token.startsWith("-");
+			if (remove) {
+				token = token.substring(1);
+			}
+			token = QUOTE_PATTERN.matcher(token).replaceAll("");
+			tokens.add(snapshot.createSearchToken(token, remove));
+		}
+		return tokens;
+	}
+
+	/**
+	 * The tokens in the order they were typed, for refining the matches of the next search.
+	 * Null when the filter has more than one group.
+	 */
+	@Nullable
+	public List<SearchToken> getTokens() {
+		if (groups.size() != 1) {
+			return null;
+		}
+		return groups.get(0).tokens;
+	}
+
+	/**
+	 * Returns the indexes of the matching elements, or null if the filter does not restrict them.
+	 */
+	@Nullable
+	public IntBitmap execute(BooleanSupplier cancelled) {
+		IntBitmap matches = null;
+		for (Group group : groups) {
+			IntBitmap groupMatches = group.execute(cancelled);
+			if (groupMatches != null) {
+				if (matches == null) {
+					matches = groupMatches;
+				} else {
+					matches = matches.or(groupMatches);
+				}
+			}
+		}
+		return matches;
+	}
+
+	@Override
+	public String toString() {
+		List<String> groupStrings = new ArrayList<>(groups.size());
+		for (Group group : groups) {
+			groupStrings.add(group.toString());
+		}
+		return String.join(" OR ", groupStrings);
+	}
+
+	private static class Group {
+		private final List<SearchToken> tokens;
+		private final SearchSnapshot snapshot;
+		/**
+		 * Terms that must match, fewest estimated matches first.
+		 */
+		private final List<Term> includeTerms = new ArrayList<>();
+		/**
+		 * Terms that must not match, most estimated matches first so that later ones check fewer elements.
+		 */
+		private final List<Term> removeTerms = new ArrayList<>();
+
+		public Group(List<SearchToken> tokens, SearchSnapshot snapshot) {
+			this.tokens = Collections.unmodifiableList(tokens);
+			this.snapshot = snapshot;
+			for (SearchToken token : tokens) {
+				if (!token.isEmpty()) {
+					Term term = new Term(token, snapshot.estimateCount(token));
+					if (token.isRemove()) {
+						removeTerms.add(term);
+					} else {
+						includeTerms.add(term);
+					}
+				}
+			}
+			includeTerms.sort(Comparator.comparingInt(Term::getEstimatedCount));
+			removeTerms.sort(Comparator.comparingInt(Term::getEstimatedCount).reversed());
+		}
+
+		/**
+		 * Remove terms only narrow down the elements matched by include terms,
+		 * a group without include terms does not restrict the elements.
+		 */
+		@Nullable
+		public IntBitmap execute(BooleanSupplier cancelled) {
+			if (includeTerms.isEmpty()) {
+				return null;
+			}
+
+			IntBitmap matches = null;
+			for (Term term : includeTerms) {
+				IngredientFilter.checkCancelled(cancelled);
+				SearchToken token = term.getToken();
+				if (matches == null) {
+					matches = snapshot.search(token);
+				} else {
+					matches = snapshot.search(token, matches);
+				}
+				if (matches.isEmpty()) {
+					return matches;
+				}
+			}
+			for (Term term : removeTerms) {
+				IngredientFilter.checkCancelled(cancelled);
+				SearchToken token = term.getToken();
+				matches = matches.andNot(snapshot.search(token, matches));
+				if (matches.isEmpty()) {
+					break;
+				}
+			}
+			return matches;
+		}
+
+		@Override
+		public String toString() {
+			List<String> termStrings = new ArrayList<>(includeTerms.size() + removeTerms.size());
+			for (Term term : includeTerms) {
+				termStrings.add(term.toString());
+			}
+			for (Term term : removeTerms) {
+				termStrings.add("NOT " + term);
+			}
+			if (termStrings.isEmpty()) {
+				return "(everything)";
+			}
+			return "(" + String.join(" AND ", termStrings) + ")";
+		}
+	}
+
+	private static class Term {
+		private final SearchToken token;
+		private final int estimatedCount;
+
+		public Term(SearchToken token, int estimatedCount) {
+			this.token = token;
+			this.estimatedCount = estimatedCount;
+		}
+
+		public SearchToken getToken() {
+			return token;
+		}
+
+		public int getEstimatedCount() {
+			return estimatedCount;
+		}
+
+		@Override
+		public String toString() {
+			String prefix = token.getPrefix() == SearchToken.NO_PREFIX ? "" : String.valueOf(token.getPrefix());
+			return "\"" + prefix + token.getWord() + "\" ~" + estimatedCount;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package mezz.jei.ingredients;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import mezz.jei.collect.IntBitmap;
+import mezz.jei.gui.ingredients.IIngredientListElement;
+
+/**
+ * The outcome of searching for one filter text.
+ * The matching elements are kept as display positions in the snapshot, and only looked up a page at a time.
+ */
+class SearchResult {
+	private final String filterText;
+	@Nullable
+	private final List<SearchToken> tokens;
+	@Nullable
+	private final IntBitmap matches;
+	private final IntBitmap visibleRanks;
+	private final SearchSnapshot snapshot;
+	@Nullable
+	private List<IIngredientListElement> ingredientList;
+
+	public SearchResult(String filterText, @Nullable List<SearchToken> tokens, @Nullable IntBitmap matches, IntBitmap visibleRanks, SearchSnapshot snapshot) {
+		this.filterText = filterText;
+		this.tokens = tokens;
+		this.matches = matches;
+		this.visibleRanks = visibleRanks;
+		this.snapshot = snapshot;
+	}
+
+	public String getFilterText() {
+		return filterText;
+	}
+
+	/**
+	 * The tokens of the filter, for refining the matches when the next filter only narrows it.
+	 * Null when the filter cannot be refined.
+	 */
+	@Nullable
+	public List<SearchToken> getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * The indexes of the elements matching the filter, or null if the filter does not restrict them.
+	 */
+	@Nullable
+	public IntBitmap getMatches() {
+		return matches;
+	}
+
+	/**
+	 * The number of visible matching elements.
+	 */
+	public int size() {
+		return visibleRanks.cardinality();
+	}
+
+	/**
+	 * Returns the visible matching elements from {@code start} up to {@code start + count} in display order,
+	 * without looking up the others.
+	 */
+	public List<IIngredientListElement> getIngredients(int start, int count) {
+		int[] ranks = visibleRanks.toArray(start, count);
+		List<IIngredientListElement> ingredients = new ArrayList<>(ranks.length);
+		for (int rank : ranks) {
+			ingredients.add(snapshot.getByRank(rank));
+		}
+		return ingredients;
+	}
+
+	/**
+	 * All the visible matching elements in display order, looked up the first time they are needed.
+	 */
+	public List<IIngredientListElement> getIngredientList() {
+		List<IIngredientListElement> ingredientList = this.ingredientList;
+		if (ingredientList == null) {
+			ingredientList = Collections.unmodifiableList(getIngredients(0, size()));
+			this.ingredientList = ingredientList;
+		}
+		return ingredientList;
+	}
+}
@@ -0,0 +1,102 @@
+package mezz.jei.ingredients;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import it.unimi.dsi.fastutil.chars.Char2IntMap;
+import it.unimi.dsi.fastutil.chars.Char2IntOpenHashMap;
+import mezz.jei.collect.IntBitmap;
+
+/**
+ * Remembers the results of the most recently searched tokens, so retyping a token does not search its tree again.
+ * <p>
+ * Results are kept per search tree, identified by the token prefix ({@link SearchToken#NO_PREFIX} for the combined tree).
+ * Each tree has a generation that is increased when the tree changes, results from older generations are never returned.
+ * Searches pass in the generation of their snapshot, so a search that started before a change cannot store stale results.
+ */
+class SearchResultCache {
+	private static final int MAX_ENTRIES = 128;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(MAX_ENTRIES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+	private final Char2IntMap generations = new Char2IntOpenHashMap();
+	private long hits;
+	private long misses;
+
+	/**
+	 * Returns the generation of every tree, for the searches of a new snapshot.
+	 */
+	public synchronized Char2IntMap getGenerations() {
+		return new Char2IntOpenHashMap(generations);
+	}
+
+	/**
+	 * Called when the tree for the prefix changes, all of its results are dropped.
+	 */
+	public synchronized void invalidate(char prefix) {
+		generations.put(prefix, generations.get(prefix) + 1);
+	}
+
+	@Nullable
+	public synchronized IntBitmap get(char prefix, String word, int generation) {
+		final String key = prefix + word;
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			if (entry.generation == generation) {
+				hits++;
+				return entry.results;
+			}
+			if (entry.generation < generations.get(prefix)) {
+				entries.remove(key);
+			}
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Like {@link #get(char, String, int)}, but not counted as a hit or miss.
+	 */
+	@Nullable
+	public synchronized IntBitmap peek(char prefix, String word, int generation) {
+		Entry entry = entries.get(prefix + word);
+		if (entry != null && entry.generation == generation) {
+			return entry.results;
+		}
+		return null;
+	}
+
+	public synchronized void put(char prefix, String word, int generation, IntBitmap results) {
+		if (generation == generations.get(prefix)) {
+			entries.put(prefix + word, new Entry(generation, results));
+		}
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "token cache: " + entries.size() + " entries, " + hits + " hits, " + misses + " misses";
+	}
+
+	private static class Entry {
+		private final int generation;
+		private final IntBitmap results;
+
+		public Entry(int generation, IntBitmap results) {
+			this.generation = generation;
+			this.results = results;
+		}
+	}
+}
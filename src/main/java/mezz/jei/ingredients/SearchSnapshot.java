@@ -0,0 +1,146 @@
+package mezz.jei.ingredients;
+
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.chars.Char2IntMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import mezz.jei.collect.IntBitmap;
+import mezz.jei.gui.ingredients.IIngredientListElement;
+import mezz.jei.suffixtree.ISearchTree;
+
+/**
+ * The ingredient list and search trees as they were when a search started,
+ * so that the search can run off the client thread while ingredients are added.
+ */
+class SearchSnapshot {
+	/**
+	 * Shared with the ingredient filter, so it may be longer than the elements that were added when the snapshot was made.
+	 */
+	private final IIngredientListElement[] elements;
+	/**
+	 * The display position of each element index, null when the elements are in display order.
+	 */
+	@Nullable
+	private final int[] ranks;
+	/**
+	 * The element index at each display position, null when the elements are in display order.
+	 */
+	@Nullable
+	private final int[] displayOrder;
+	private final IntBitmap visibleIndexes;
+	private final ISearchTree combinedSearchTree;
+	/**
+	 * The prefixed search trees whose search mode is not disabled.
+	 */
+	private final Char2ObjectMap<ISearchTree> prefixedSearchTrees;
+	private final SearchResultCache searchResultCache;
+	/**
+	 * The generation of each tree in the {@link #searchResultCache} when the snapshot was taken.
+	 */
+	private final Char2IntMap cacheGenerations;
+
+	public SearchSnapshot(IIngredientListElement[] elements, @Nullable int[] ranks, @Nullable int[] displayOrder, IntBitmap visibleIndexes, ISearchTree combinedSearchTree, Char2ObjectMap<ISearchTree> prefixedSearchTrees, SearchResultCache searchResultCache) {
+		this.elements = elements;
+		this.ranks = ranks;
+		this.displayOrder = displayOrder;
+		this.visibleIndexes = visibleIndexes;
+		this.combinedSearchTree = combinedSearchTree;
+		this.prefixedSearchTrees = prefixedSearchTrees;
+		this.searchResultCache = searchResultCache;
+		this.cacheGenerations = searchResultCache.getGenerations();
+	}
+
+	public IIngredientListElement get(int index) {
+		return elements[index];
+	}
+
+	/**
+	 * Converts element indexes to display positions, so that iterating them in ascending order gives the elements in display order.
+	 */
+	public IntBitmap toRanks(IntBitmap indexes) {
+		final int[] ranks = this.ranks;
+		if (ranks == null) {
+			return indexes;
+		}
+		IntBitmap.Builder builder = new IntBitmap.Builder(indexes.cardinality());
+		IntIterator iterator = indexes.iterator();
+		while (iterator.hasNext()) {
+			builder.add(ranks[iterator.nextInt()]);
+		}
+		return builder.build();
+	}
+
+	public IIngredientListElement getByRank(int rank) {
+		final int[] displayOrder = this.displayOrder;
+		return elements[displayOrder == null ? rank : displayOrder[rank]];
+	}
+
+	/**
+	 * The indexes of the elements that are not hidden.
+	 */
+	public IntBitmap getVisibleIndexes() {
+		return visibleIndexes;
+	}
+
+	public SearchResultCache getSearchResultCache() {
+		return searchResultCache;
+	}
+
+	/**
+	 * Searches the tree of the token, or reuses the results of an earlier search for the same token.
+	 */
+	public IntBitmap search(SearchToken token) {
+		final char prefix = token.getPrefix();
+		final int generation = cacheGenerations.get(prefix);
+		IntBitmap results = searchResultCache.get(prefix, token.getWord(), generation);
+		if (results == null) {
+			results = token.getTree().search(token.getWord());
+			searchResultCache.put(prefix, token.getWord(), generation, results);
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the candidates that {@link #search(SearchToken)} would return.
+	 * When there are few candidates only they are checked, those results are not complete so they are not cached.
+	 */
+	public IntBitmap search(SearchToken token, IntBitmap candidates) {
+		final char prefix = token.getPrefix();
+		final int generation = cacheGenerations.get(prefix);
+		IntBitmap results = searchResultCache.get(prefix, token.getWord(), generation);
+		if (results == null) {
+			if (candidates.cardinality() < token.getTree().estimateCount(token.getWord())) {
+				return token.getTree().search(token.getWord(), candidates);
+			}
+			results = token.getTree().search(token.getWord());
+			searchResultCache.put(prefix, token.getWord(), generation, results);
+		}
+		return results.and(candidates);
+	}
+
+	/**
+	 * Returns roughly how many indexes {@link #search(SearchToken)} would return, exactly if the results are cached.
+	 */
+	public int estimateCount(SearchToken token) {
+		IntBitmap results = searchResultCache.peek(token.getPrefix(), token.getWord(), cacheGenerations.get(token.getPrefix()));
+		if (results != null) {
+			return results.cardinality();
+		}
+		return token.getTree().estimateCount(token.getWord());
+	}
+
+	/**
+	 * Gets the appropriate search tree for the given token, based on if the token has a prefix.
+	 */
+	public SearchToken createSearchToken(String token, boolean remove) {
+		if (!token.isEmpty()) {
+			final char firstChar = token.charAt(0);
+			final ISearchTree prefixedSearchTree = this.prefixedSearchTrees.get(firstChar);
+			if (prefixedSearchTree != null) {
+				return new SearchToken(remove, firstChar, prefixedSearchTree, token.substring(1));
+			}
+		}
+		return new SearchToken(remove, SearchToken.NO_PREFIX, combinedSearchTree, token);
+	}
+}
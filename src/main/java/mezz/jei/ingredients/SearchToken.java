@@ -0,0 +1,73 @@
+package mezz.jei.ingredients;
+
+import mezz.jei.suffixtree.ISearchTree;
+
+/**
+ * One term of a filter, resolved to the search tree it is looked up in.
+ */
+class SearchToken {
+	/**
+	 * Prefix of tokens that are not looked up in a prefixed search tree.
+	 */
+	public static final char NO_PREFIX = '\0';
+
+	private final boolean remove;
+	private final char prefix;
+	private final ISearchTree tree;
+	private final String word;
+
+	public SearchToken(boolean remove, char prefix, ISearchTree tree, String word) {
+		this.remove = remove;
+		this.prefix = prefix;
+		this.tree = tree;
+		this.word = word;
+	}
+
+	/**
+	 * Matches should be removed from the results instead of intersected with them.
+	 */
+	public boolean isRemove() {
+		return remove;
+	}
+
+	public char getPrefix() {
+		return prefix;
+	}
+
+	public ISearchTree getTree() {
+		return tree;
+	}
+
+	public String getWord() {
+		return word;
+	}
+
+	/**
+	 * Empty tokens, like a prefix on its own, do not restrict the results.
+	 */
+	public boolean isEmpty() {
+		return word.isEmpty();
+	}
+
+	/**
+	 * Returns true if every element matching this token also matches the other one,
+	 * for example when this token was made by typing more characters onto the other one.
+	 * Tokens are compared by prefix instead of by tree, because every search uses a new snapshot of the trees.
+	 */
+	public boolean isNarrowerThan(SearchToken other) {
+		return !remove && !other.remove &&
+			prefix == other.prefix &&
+			word.startsWith(other.word);
+	}
+
+	public boolean isSameAs(SearchToken other) {
+		return remove == other.remove &&
+			prefix == other.prefix &&
+			word.equals(other.word);
+	}
+
+	@Override
+	public String toString() {
+		return (remove ? "-" : "") + (prefix == NO_PREFIX ? "" : String.valueOf(prefix)) + word;
+	}
+}
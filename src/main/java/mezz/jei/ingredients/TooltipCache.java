@@ -0,0 +1,248 @@
+package mezz.jei.ingredients;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.minecraftforge.fml.common.Loader;
+import net.minecraftforge.fml.common.ModContainer;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import mezz.jei.api.ingredients.IIngredientHelper;
+import mezz.jei.config.Config;
+import mezz.jei.gui.ingredients.IIngredientListElement;
+import mezz.jei.util.FileUtil;
+import mezz.jei.util.Log;
+import mezz.jei.util.Translator;
+
+/**
+ * Remembers the cleaned tooltip lines of each ingredient for tooltip search, keyed by ingredient uid,
+ * so the ingredient renderers are only asked once, and saves them for the next launch.
+ * Once the tooltip search tree has every ingredient and the lines are saved, they are released, see {@link #release()}.
+ * <p>
+ * Lines are saved grouped by the mod of each ingredient, and a group is only loaded if that mod has the same version.
+ * The locale, the advanced tooltips option and the mods that are installed affect every tooltip,
+ * so all of the lines are dropped when any of them changes.
+ * <p>
+ * Tooltips can only be made on the client thread, so lines are only added, saved and dropped there.
+ * The search tree builder also looks up lines that are already cached from its worker threads, see {@link #getCachedTooltipStrings}.
+ */
+class TooltipCache {
+	private static final int FORMAT_VERSION = 1;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	@Nullable
+	private String options;
+	private boolean loaded;
+	private boolean changed;
+	private volatile boolean released;
+
+	public List<String> getTooltipStrings(IIngredientListElement<?> element) {
+		if (released) {
+			return element.getTooltipStrings();
+		}
+		final String key = getKey(element);
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			return entry.lines;
+		}
+		List<String> lines = element.getTooltipStrings();
+		entries.put(key, new Entry(getModId(element), lines));
+		changed = true;
+		return lines;
+	}
+
+	/**
+	 * Returns the lines of the element if they are cached, or null if they have to be looked up on the client thread.
+	 * Safe to call from any thread.
+	 */
+	@Nullable
+	public List<String> getCachedTooltipStrings(IIngredientListElement<?> element) {
+		if (released) {
+			return null;
+		}
+		Entry entry = entries.get(getKey(element));
+		return entry == null ? null : entry.lines;
+	}
+
+	private static <V> String getKey(IIngredientListElement<V> element) {
+		V ingredient = element.getIngredient();
+		IIngredientHelper<V> ingredientHelper = element.getIngredientHelper();
+		return ingredient.getClass().getName() + ':' + ingredientHelper.getUniqueId(ingredient);
+	}
+
+	private static <V> String getModId(IIngredientListElement<V> element) {
+		return element.getIngredientHelper().getModId(element.getIngredient());
+	}
+
+	/**
+	 * Drops every line if the locale or the advanced tooltips option changed since they were looked up.
+	 */
+	public void updateOptions() {
+		String options = Translator.getLocale() + ":" + Config.getSearchAdvancedTooltips();
+		if (this.options != null && !this.options.equals(options)) {
+			entries.clear();
+			changed = true;
+		}
+		this.options = options;
+	}
+
+	/**
+	 * Drops every line and stops remembering new ones.
+	 * Called when the tooltip search tree has every ingredient, from then on it only needs the tooltips of ingredients added at runtime.
+	 */
+	public void release() {
+		released = true;
+		changed = false;
+		entries.clear();
+	}
+
+	/**
+	 * Loads the lines saved by a previous launch, the first time it is called.
+	 */
+	public void load(File file) {
+		updateOptions();
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (!file.exists()) {
+			return;
+		}
+
+		final long startTime = System.currentTimeMillis();
+		final byte[] fingerprint = createFingerprint();
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (input.readInt() != FORMAT_VERSION) {
+				return;
+			}
+			byte[] savedFingerprint = new byte[input.readInt()];
+			input.readFully(savedFingerprint);
+			if (!Arrays.equals(fingerprint, savedFingerprint)) {
+				return;
+			}
+
+			final Map<String, ModContainer> modList = Loader.instance().getIndexedModList();
+			int loadedCount = 0;
+			final int modCount = input.readInt();
+			for (int i = 0; i < modCount; i++) {
+				final String modId = readString(input);
+				final String modVersion = readString(input);
+				final ModContainer modContainer = modList.get(modId);
+				final boolean sameVersion = modContainer != null && modVersion.equals(modContainer.getVersion());
+				final int entryCount = input.readInt();
+				for (int j = 0; j < entryCount; j++) {
+					final String key = readString(input);
+					final int lineCount = input.readInt();
+					List<String> lines = new ArrayList<>(lineCount);
+					for (int k = 0; k < lineCount; k++) {
+						lines.add(readString(input));
+					}
+					if (sameVersion) {
+						entries.putIfAbsent(key, new Entry(modId, Collections.unmodifiableList(lines)));
+						loadedCount++;
+					}
+				}
+			}
+			Log.get().info("Loaded {} cached tooltips in {} ms", loadedCount, System.currentTimeMillis() - startTime);
+		} catch (IOException | RuntimeException e) {
+			Log.get().error("Failed to read tooltip cache file {}", file, e);
+		}
+	}
+
+	/**
+	 * Saves the lines, if any were looked up since they were loaded or last saved.
+	 */
+	public void save(File file) {
+		if (!changed) {
+			return;
+		}
+		changed = false;
+
+		final Map<String, ModContainer> modList = Loader.instance().getIndexedModList();
+		final Map<String, List<Map.Entry<String, Entry>>> entriesByMod = new HashMap<>();
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			String modId = entry.getValue().modId;
+			if (modList.containsKey(modId)) {
+				entriesByMod.computeIfAbsent(modId, k -> new ArrayList<>()).add(entry);
+			}
+		}
+
+		final byte[] fingerprint = createFingerprint();
+		FileUtil.writeFileSafely(file, fileTemp -> {
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileTemp)))) {
+				output.writeInt(FORMAT_VERSION);
+				output.writeInt(fingerprint.length);
+				output.write(fingerprint);
+				output.writeInt(entriesByMod.size());
+				for (Map.Entry<String, List<Map.Entry<String, Entry>>> modEntries : entriesByMod.entrySet()) {
+					String modId = modEntries.getKey();
+					writeString(output, modId);
+					writeString(output, modList.get(modId).getVersion());
+					output.writeInt(modEntries.getValue().size());
+					for (Map.Entry<String, Entry> entry : modEntries.getValue()) {
+						writeString(output, entry.getKey());
+						List<String> lines = entry.getValue().lines;
+						output.writeInt(lines.size());
+						for (String line : lines) {
+							writeString(output, line);
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Everything that affects the tooltips of all mods: the options and the ids of the installed mods, but not their versions.
+	 */
+	private byte[] createFingerprint() {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(FORMAT_VERSION);
+		hasher.putUnencodedChars(String.valueOf(options));
+		List<String> modIds = new ArrayList<>(Loader.instance().getIndexedModList().keySet());
+		Collections.sort(modIds);
+		for (String modId : modIds) {
+			hasher.putUnencodedChars(modId);
+			hasher.putChar('\n');
+		}
+		return hasher.hash().asBytes();
+	}
+
+	private static String readString(DataInputStream input) throws IOException {
+		byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream output, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static class Entry {
+		private final String modId;
+		private final List<String> lines;
+
+		public Entry(String modId, List<String> lines) {
+			this.modId = modId;
+			this.lines = lines;
+		}
+	}
+}
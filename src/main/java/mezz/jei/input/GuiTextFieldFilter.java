@@ -2,6 +2,7 @@ package mezz.jei.input;
 
 import java.awt.Color;
 import java.awt.Rectangle;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -10,12 +11,15 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiTextField;
 import net.minecraft.client.renderer.GlStateManager;
 
+import it.unimi.dsi.fastutil.chars.Char2IntMap;
 import mezz.jei.Internal;
 import mezz.jei.config.Config;
+import mezz.jei.config.Constants;
 import mezz.jei.config.KeyBindings;
+import mezz.jei.gui.TooltipRenderer;
 import mezz.jei.gui.elements.DrawableNineSliceTexture;
-import mezz.jei.gui.ingredients.IIngredientListElement;
 import mezz.jei.ingredients.IngredientFilter;
+import mezz.jei.util.Translator;
 import org.lwjgl.input.Keyboard;
 
 public class GuiTextFieldFilter extends GuiTextField {
@@ -53,8 +57,7 @@ public class GuiTextFieldFilter extends GuiTextField {
 		if (!filterText.equals(getText())) {
 			setText(filterText);
 		}
-		List<IIngredientListElement> ingredientList = ingredientFilter.getIngredientList();
-		if (ingredientList.size() == 0) {
+		if (ingredientFilter.size() == 0) {
 			setTextColor(Color.red.getRGB());
 		} else {
 			setTextColor(Color.white.getRGB());
@@ -104,6 +107,23 @@ public class GuiTextFieldFilter extends GuiTextField {
 		return hoverChecker.checkHover(mouseX, mouseY);
 	}
 
+	/**
+	 * Shows which search prefixes are still being indexed, they only find some of the ingredients until they finish.
+	 */
+	public void drawTooltips(Minecraft minecraft, int mouseX, int mouseY) {
+		if (isMouseOver(mouseX, mouseY)) {
+			Char2IntMap progress = ingredientFilter.getSearchTreeBuildProgress();
+			if (!progress.isEmpty()) {
+				List<String> tooltip = new ArrayList<>();
+				tooltip.add(Translator.translateToLocal("jei.tooltip.search.indexing"));
+				for (Char2IntMap.Entry entry : progress.char2IntEntrySet()) {
+					tooltip.add(Translator.translateToLocalFormatted("jei.tooltip.search.indexing.prefix", entry.getCharKey(), entry.getIntValue()));
+				}
+				TooltipRenderer.drawHoveringText(minecraft, tooltip, mouseX, mouseY, Constants.MAX_TOOLTIP_WIDTH);
+			}
+		}
+	}
+
 	public boolean handleMouseClicked(int mouseX, int mouseY, int mouseButton) {
 		if (mouseButton == 1) {
 			setText("");
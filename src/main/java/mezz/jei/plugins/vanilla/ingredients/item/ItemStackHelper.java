@@ -27,6 +27,11 @@ import mezz.jei.startup.StackHelper;
 import mezz.jei.util.ErrorUtil;
 
 public class ItemStackHelper implements IIngredientHelper<ItemStack> {
+	/**
+	 * The number of colors of each item for color search.
+	 */
+	public static final int COLOR_COUNT = 2;
+
 	private final StackHelper stackHelper;
 
 	public ItemStackHelper(StackHelper stackHelper) {
@@ -107,7 +112,7 @@ public class ItemStackHelper implements IIngredientHelper<ItemStack> {
 
 	@Override
 	public Iterable<Color> getColors(ItemStack ingredient) {
-		return ColorGetter.getColors(ingredient, 2);
+		return ColorGetter.getColors(ingredient, COLOR_COUNT);
 	}
 
 	@Override
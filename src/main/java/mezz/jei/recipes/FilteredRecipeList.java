@@ -0,0 +1,46 @@
+package mezz.jei.recipes;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The recipes of a list except for the ones at the filtered positions.
+ * Recipes added to the end of the list after the view was made are visible in it.
+ */
+class FilteredRecipeList<T> extends AbstractList<T> implements RandomAccess {
+	private final List<T> recipes;
+	private final int[] filteredIds;
+
+	/**
+	 * @param filteredIds the positions to leave out, in ascending order and not changed afterwards
+	 */
+	public FilteredRecipeList(List<T> recipes, int[] filteredIds) {
+		this.recipes = recipes;
+		this.filteredIds = filteredIds;
+	}
+
+	@Override
+	public T get(int index) {
+		Preconditions.checkElementIndex(index, size());
+		// the position of the recipe is past every filtered position that has at most index visible positions before it
+		int low = 0;
+		int high = filteredIds.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (filteredIds[mid] - mid <= index) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return recipes.get(index + low);
+	}
+
+	@Override
+	public int size() {
+		return recipes.size() - filteredIds.length;
+	}
+}
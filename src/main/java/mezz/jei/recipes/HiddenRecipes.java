@@ -0,0 +1,151 @@
+package mezz.jei.recipes;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import mezz.jei.api.recipe.IRecipeWrapper;
+
+/**
+ * The hidden recipes of one recipe category.
+ * <p>
+ * The recipes in the category's list are identified by their position in it, so hiding one of them sets a bit,
+ * and the visible recipes are a view of the list that skips those positions instead of a filtered copy.
+ * Positions are only indexed once a recipe of the category is hidden, and the index catches up when recipes are added to the list.
+ * Hidden recipes that are not in the list, like ones that only come from recipe registry plugins, are kept in a set.
+ */
+public class HiddenRecipes {
+	private static final int NO_ID = -1;
+
+	private final List<? extends IRecipeWrapper> categoryRecipes;
+	/**
+	 * The first position of each recipe in the category's list.
+	 */
+	private final Reference2IntOpenHashMap<IRecipeWrapper> firstIds = new Reference2IntOpenHashMap<>();
+	/**
+	 * The next position of a recipe that was added to the category more than once.
+	 */
+	private final Int2IntOpenHashMap nextIds = new Int2IntOpenHashMap();
+	private int indexedCount;
+	private final BitSet hiddenIds = new BitSet();
+	private final Set<IRecipeWrapper> hiddenOtherRecipes = Collections.newSetFromMap(new IdentityHashMap<>());
+	/**
+	 * The set bits of {@link #hiddenIds} in order, replaced instead of changed so the views can share it.
+	 */
+	@Nullable
+	private int[] hiddenIdsArray;
+
+	public HiddenRecipes(List<? extends IRecipeWrapper> categoryRecipes) {
+		this.categoryRecipes = categoryRecipes;
+		this.firstIds.defaultReturnValue(NO_ID);
+		this.nextIds.defaultReturnValue(NO_ID);
+	}
+
+	public void hide(IRecipeWrapper recipe) {
+		setHidden(recipe, true);
+	}
+
+	public void unhide(IRecipeWrapper recipe) {
+		setHidden(recipe, false);
+	}
+
+	private void setHidden(IRecipeWrapper recipe, boolean hidden) {
+		updateIndex();
+		int id = firstIds.getInt(recipe);
+		if (id == NO_ID) {
+			if (hidden) {
+				hiddenOtherRecipes.add(recipe);
+			} else {
+				hiddenOtherRecipes.remove(recipe);
+			}
+			return;
+		}
+		for (; id != NO_ID; id = nextIds.get(id)) {
+			if (hiddenIds.get(id) != hidden) {
+				hiddenIds.set(id, hidden);
+				hiddenIdsArray = null;
+			}
+		}
+	}
+
+	public boolean contains(IRecipeWrapper recipe) {
+		updateIndex();
+		int id = firstIds.getInt(recipe);
+		if (id == NO_ID) {
+			return hiddenOtherRecipes.contains(recipe);
+		}
+		return hiddenIds.get(id);
+	}
+
+	public boolean isEmpty() {
+		return hiddenIds.isEmpty() && hiddenOtherRecipes.isEmpty();
+	}
+
+	/**
+	 * Returns the visible recipes of the category's list, as an unmodifiable view of it.
+	 */
+	public <T extends IRecipeWrapper> List<T> getVisibleCategoryRecipes() {
+		@SuppressWarnings("unchecked")
+		List<T> recipes = (List<T>) categoryRecipes;
+		updateIndex();
+		if (hiddenIds.isEmpty()) {
+			return Collections.unmodifiableList(recipes);
+		}
+		int[] hiddenIdsArray = this.hiddenIdsArray;
+		if (hiddenIdsArray == null) {
+			hiddenIdsArray = hiddenIds.stream().toArray();
+			this.hiddenIdsArray = hiddenIdsArray;
+		}
+		return new FilteredRecipeList<>(recipes, hiddenIdsArray);
+	}
+
+	/**
+	 * Returns a copy of the recipes without the hidden ones, for recipes that may not be from the category's list.
+	 */
+	public <T extends IRecipeWrapper> List<T> getVisibleRecipes(List<T> recipes) {
+		if (isEmpty()) {
+			return recipes;
+		}
+		List<T> visibleRecipes = new ArrayList<>(recipes.size());
+		for (T recipe : recipes) {
+			if (!contains(recipe)) {
+				visibleRecipes.add(recipe);
+			}
+		}
+		return visibleRecipes;
+	}
+
+	private void updateIndex() {
+		final int size = categoryRecipes.size();
+		for (int id = indexedCount; id < size; id++) {
+			IRecipeWrapper recipe = categoryRecipes.get(id);
+			int firstId = firstIds.getInt(recipe);
+			if (firstId == NO_ID) {
+				firstIds.put(recipe, id);
+				// a recipe that was hidden before it was added to the list moves from the set to the bits
+				if (hiddenOtherRecipes.remove(recipe)) {
+					hiddenIds.set(id);
+					hiddenIdsArray = null;
+				}
+			} else {
+				int lastId = firstId;
+				while (nextIds.get(lastId) != NO_ID) {
+					lastId = nextIds.get(lastId);
+				}
+				nextIds.put(lastId, id);
+				// every position of a recipe is hidden or shown together
+				if (hiddenIds.get(firstId)) {
+					hiddenIds.set(id);
+					hiddenIdsArray = null;
+				}
+			}
+		}
+		indexedCount = size;
+	}
+}
@@ -1,14 +1,16 @@
 package mezz.jei.recipes;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import mezz.jei.api.ingredients.IIngredientHelper;
 import mezz.jei.api.ingredients.IIngredientRegistry;
 import mezz.jei.api.recipe.IFocus;
@@ -16,6 +18,7 @@ import mezz.jei.api.recipe.IRecipeCategory;
 import mezz.jei.api.recipe.IRecipeRegistryPlugin;
 import mezz.jei.api.recipe.IRecipeWrapper;
 import mezz.jei.collect.ListMultiMap;
+import mezz.jei.collect.Table;
 import mezz.jei.gui.Focus;
 import mezz.jei.ingredients.IngredientInformation;
 
@@ -27,6 +30,7 @@ public class InternalRecipeRegistryPlugin implements IRecipeRegistryPlugin {
 	private final RecipeMap recipeInputMap;
 	private final RecipeMap recipeOutputMap;
 	private final ListMultiMap<IRecipeCategory, IRecipeWrapper> recipeWrappersForCategories;
+	private final Table<String, String, CatalystRecipes> catalystRecipesTable = Table.hashBasedTable(); // recipe category uid, catalyst uid
 
 	public InternalRecipeRegistryPlugin(RecipeRegistry recipeRegistry, ImmutableMultimap<String, String> categoriesForRecipeCatalystKeys, IIngredientRegistry ingredientRegistry, ImmutableMap<String, IRecipeCategory> recipeCategoriesMap, RecipeMap recipeInputMap, RecipeMap recipeOutputMap, ListMultiMap<IRecipeCategory, IRecipeWrapper> recipeWrappersForCategories) {
 		this.recipeRegistry = recipeRegistry;
@@ -72,34 +76,93 @@ public class InternalRecipeRegistryPlugin implements IRecipeRegistryPlugin {
 		IIngredientHelper<V> ingredientHelper = ingredientRegistry.getIngredientHelper(ingredient);
 
 		if (focus.getMode() == IFocus.Mode.INPUT) {
-			final ImmutableList<T> recipes = recipeInputMap.getRecipeWrappers(recipeCategory, ingredient);
-
 			String recipeCategoryUid = recipeCategory.getUid();
-			for (String inputKey : IngredientInformation.getUniqueIdsWithWildcard(ingredientHelper, ingredient)) {
+			List<String> inputKeys = IngredientInformation.getUniqueIdsWithWildcard(ingredientHelper, ingredient);
+			for (String inputKey : inputKeys) {
 				if (categoriesForRecipeCatalystKeys.get(inputKey).contains(recipeCategoryUid)) {
-					ImmutableSet<T> specificRecipes = ImmutableSet.copyOf(recipes);
-					//noinspection unchecked
-					List<T> recipesForCategory = (List<T>) recipeWrappersForCategories.get(recipeCategory);
-					List<T> allRecipes = new ArrayList<>(recipes);
-					for (T recipe : recipesForCategory) {
-						if (!specificRecipes.contains(recipe)) {
-							allRecipes.add(recipe);
-						}
-					}
-					return allRecipes;
+					return getCatalystRecipes(recipeCategory, ingredient, inputKeys.get(0));
 				}
 			}
 
-			return recipes;
+			return recipeInputMap.getRecipeWrappers(recipeCategory, ingredient);
 		} else {
 			return recipeOutputMap.getRecipeWrappers(recipeCategory, ingredient);
 		}
 	}
 
+	/**
+	 * Returns the recipes that use the catalyst first, followed by every other recipe of the category.
+	 * The list is built once for each catalyst and only built again when recipes are added to the category.
+	 */
+	private <T extends IRecipeWrapper, V> List<T> getCatalystRecipes(IRecipeCategory<T> recipeCategory, V catalyst, String catalystUid) {
+		//noinspection unchecked
+		List<T> recipesForCategory = (List<T>) recipeWrappersForCategories.get(recipeCategory);
+		CatalystRecipes catalystRecipes = catalystRecipesTable.get(recipeCategory.getUid(), catalystUid);
+		if (catalystRecipes == null || catalystRecipes.categorySize != recipesForCategory.size()) {
+			ImmutableList<T> specificRecipes = recipeInputMap.getRecipeWrappers(recipeCategory, catalyst);
+			catalystRecipes = new CatalystRecipes(recipesForCategory.size(), createCatalystRecipeList(specificRecipes, recipesForCategory));
+			catalystRecipesTable.put(recipeCategory.getUid(), catalystUid, catalystRecipes);
+		}
+		//noinspection unchecked
+		return (List<T>) catalystRecipes.recipes;
+	}
+
+	private static <T extends IRecipeWrapper> List<T> createCatalystRecipeList(ImmutableList<T> specificRecipes, List<T> recipesForCategory) {
+		if (specificRecipes.isEmpty()) {
+			return Collections.unmodifiableList(recipesForCategory);
+		}
+		ImmutableSet<T> specificRecipesSet = ImmutableSet.copyOf(specificRecipes);
+		IntArrayList specificRecipeIds = new IntArrayList(specificRecipesSet.size());
+		for (int i = 0; i < recipesForCategory.size(); i++) {
+			if (specificRecipesSet.contains(recipesForCategory.get(i))) {
+				specificRecipeIds.add(i);
+			}
+		}
+		List<T> otherRecipes = new FilteredRecipeList<>(recipesForCategory, specificRecipeIds.toIntArray());
+		return new CatalystRecipeList<>(specificRecipes, otherRecipes);
+	}
+
 	@Override
 	public <T extends IRecipeWrapper> List<T> getRecipeWrappers(IRecipeCategory<T> recipeCategory) {
 		//noinspection unchecked
 		List<T> recipeWrappers = (List<T>) recipeWrappersForCategories.get(recipeCategory);
 		return Collections.unmodifiableList(recipeWrappers);
 	}
+
+	private static class CatalystRecipes {
+		private final int categorySize;
+		private final List<?> recipes;
+
+		public CatalystRecipes(int categorySize, List<?> recipes) {
+			this.categorySize = categorySize;
+			this.recipes = recipes;
+		}
+	}
+
+	/**
+	 * The recipes that use a catalyst followed by the other recipes of the category, without copying either list.
+	 */
+	private static class CatalystRecipeList<T> extends AbstractList<T> implements RandomAccess {
+		private final List<T> specificRecipes;
+		private final List<T> otherRecipes;
+
+		public CatalystRecipeList(List<T> specificRecipes, List<T> otherRecipes) {
+			this.specificRecipes = specificRecipes;
+			this.otherRecipes = otherRecipes;
+		}
+
+		@Override
+		public T get(int index) {
+			int specificCount = specificRecipes.size();
+			if (index < specificCount) {
+				return specificRecipes.get(index);
+			}
+			return otherRecipes.get(index - specificCount);
+		}
+
+		@Override
+		public int size() {
+			return specificRecipes.size() + otherRecipes.size();
+		}
+	}
 }
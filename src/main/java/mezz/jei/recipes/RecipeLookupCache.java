@@ -0,0 +1,129 @@
+package mezz.jei.recipes;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import mezz.jei.api.recipe.IFocus;
+import mezz.jei.api.recipe.IIngredientType;
+
+/**
+ * Remembers the most recent results of looking up recipes for a focus,
+ * so opening the recipes gui on the same ingredient again or going back to it does not look through the registered recipes again.
+ * Only the results of the internal recipe registry plugin are kept, they depend on nothing but the uid of the focused ingredient.
+ * Plugins from mods may also look at things like nbt, so they are asked on every lookup.
+ * <p>
+ * Results are keyed by the focus mode, the type and uid of the focused ingredient,
+ * and the recipe category uid for recipe wrappers or null for the list of recipe categories.
+ * The recipe registry invalidates everything when recipes are added or hidden, when categories are hidden,
+ * and when ingredients are hidden, because categories with no visible catalysts are hidden with them.
+ * <p>
+ * Only used from the client thread, like the recipe registry.
+ */
+public class RecipeLookupCache {
+	private static final int MAX_ENTRIES = 256;
+
+	private final Map<Key, List<?>> entries = new LinkedHashMap<Key, List<?>>(MAX_ENTRIES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, List<?>> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+	private long hits;
+	private long misses;
+	private long invalidations;
+
+	@Nullable
+	public <T> List<T> get(IFocus.Mode mode, IIngredientType<?> ingredientType, String ingredientUid, @Nullable String recipeCategoryUid) {
+		@SuppressWarnings("unchecked")
+		List<T> results = (List<T>) entries.get(new Key(mode, ingredientType, ingredientUid, recipeCategoryUid));
+		if (results != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return results;
+	}
+
+	/**
+	 * The results are returned to every later lookup, so they must not be changed afterwards.
+	 */
+	public void put(IFocus.Mode mode, IIngredientType<?> ingredientType, String ingredientUid, @Nullable String recipeCategoryUid, List<?> results) {
+		entries.put(new Key(mode, ingredientType, ingredientUid, recipeCategoryUid), results);
+	}
+
+	public void invalidate() {
+		if (!entries.isEmpty()) {
+			entries.clear();
+			invalidations++;
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the fraction of lookups that were answered from the cache, or 0 before the first lookup.
+	 */
+	public double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("recipe lookup cache: %d entries, %d hits, %d misses (%.1f%% hit rate), %d invalidations", entries.size(), hits, misses, getHitRate() * 100, invalidations);
+	}
+
+	private static final class Key {
+		private final IFocus.Mode mode;
+		private final IIngredientType<?> ingredientType;
+		private final String ingredientUid;
+		@Nullable
+		private final String recipeCategoryUid;
+		private final int hashCode;
+
+		public Key(IFocus.Mode mode, IIngredientType<?> ingredientType, String ingredientUid, @Nullable String recipeCategoryUid) {
+			this.mode = mode;
+			this.ingredientType = ingredientType;
+			this.ingredientUid = ingredientUid;
+			this.recipeCategoryUid = recipeCategoryUid;
+			this.hashCode = Objects.hash(mode, ingredientType, ingredientUid, recipeCategoryUid);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return mode == other.mode &&
+				ingredientType.equals(other.ingredientType) &&
+				ingredientUid.equals(other.ingredientUid) &&
+				Objects.equals(recipeCategoryUid, other.recipeCategoryUid);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package mezz.jei.recipes;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -8,27 +9,36 @@ import java.util.Set;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Ordering;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import mezz.jei.api.ingredients.IIngredientHelper;
 import mezz.jei.api.ingredients.IIngredientRegistry;
 import mezz.jei.api.recipe.IIngredientType;
 import mezz.jei.api.recipe.IRecipeCategory;
 import mezz.jei.api.recipe.IRecipeWrapper;
-import mezz.jei.collect.ListMultiMap;
-import mezz.jei.collect.Table;
+import mezz.jei.collect.UidInterner;
 import mezz.jei.ingredients.IngredientInformation;
 
 /**
  * A RecipeMap efficiently links IRecipeWrappers, IRecipeCategory, and Ingredients.
+ * <p>
+ * Ingredient and recipe category uids are interned by a {@link UidInterner} that is shared with the other RecipeMap,
+ * and the maps are keyed by their int ids, so each uid string is only kept once.
  */
 public class RecipeMap {
-	private final Table<IRecipeCategory, String, List<IRecipeWrapper>> recipeWrapperTable = Table.hashBasedTable();
-	private final ListMultiMap<String, String> categoryUidMap = new ListMultiMap<>();
+	private final Map<IRecipeCategory, Int2ObjectOpenHashMap<ArrayList<IRecipeWrapper>>> recipeWrapperTable = new HashMap<>();
+	/**
+	 * Ingredient id to the ids of the recipe categories that have recipes or catalysts with that ingredient.
+	 */
+	private final Int2ObjectOpenHashMap<IntArrayList> categoryUidMap = new Int2ObjectOpenHashMap<>();
 	private final Ordering<String> recipeCategoryOrdering;
 	private final IIngredientRegistry ingredientRegistry;
+	private final UidInterner uidInterner;
 
-	public RecipeMap(final RecipeCategoryComparator recipeCategoryComparator, IIngredientRegistry ingredientRegistry) {
+	public RecipeMap(final RecipeCategoryComparator recipeCategoryComparator, IIngredientRegistry ingredientRegistry, UidInterner uidInterner) {
 		this.recipeCategoryOrdering = Ordering.from(recipeCategoryComparator);
 		this.ingredientRegistry = ingredientRegistry;
+		this.uidInterner = uidInterner;
 	}
 
 	public <V> List<String> getRecipeCategories(V ingredient) {
@@ -37,7 +47,15 @@ public class RecipeMap {
 		Set<String> recipeCategories = new HashSet<>();
 
 		for (String key : IngredientInformation.getUniqueIdsWithWildcard(ingredientHelper, ingredient)) {
-			recipeCategories.addAll(categoryUidMap.get(key));
+			int ingredientId = uidInterner.getId(key);
+			if (ingredientId != UidInterner.NO_ID) {
+				IntArrayList categoryIds = categoryUidMap.get(ingredientId);
+				if (categoryIds != null) {
+					for (int i = 0; i < categoryIds.size(); i++) {
+						recipeCategories.add(uidInterner.getUid(categoryIds.getInt(i)));
+					}
+				}
+			}
 		}
 
 		return recipeCategoryOrdering.immutableSortedCopy(recipeCategories);
@@ -45,43 +63,86 @@ public class RecipeMap {
 
 	public <V> void addRecipeCategory(IRecipeCategory recipeCategory, V ingredient, IIngredientHelper<V> ingredientHelper) {
 		String key = ingredientHelper.getUniqueId(ingredient);
-		List<String> recipeCategories = categoryUidMap.get(key);
-		String recipeCategoryUid = recipeCategory.getUid();
-		if (!recipeCategories.contains(recipeCategoryUid)) {
-			recipeCategories.add(recipeCategoryUid);
+		addRecipeCategory(recipeCategory, uidInterner.intern(key));
+	}
+
+	private void addRecipeCategory(IRecipeCategory recipeCategory, int ingredientId) {
+		IntArrayList categoryIds = categoryUidMap.get(ingredientId);
+		if (categoryIds == null) {
+			categoryIds = new IntArrayList(1);
+			categoryUidMap.put(ingredientId, categoryIds);
+		}
+		int categoryId = uidInterner.intern(recipeCategory.getUid());
+		if (!categoryIds.contains(categoryId)) {
+			categoryIds.add(categoryId);
 		}
 	}
 
 	public <T extends IRecipeWrapper, V> ImmutableList<T> getRecipeWrappers(IRecipeCategory<T> recipeCategory, V ingredient) {
-		IIngredientHelper<V> ingredientHelper = ingredientRegistry.getIngredientHelper(ingredient);
+		Int2ObjectOpenHashMap<ArrayList<IRecipeWrapper>> recipesForType = recipeWrapperTable.get(recipeCategory);
+		if (recipesForType == null) {
+			return ImmutableList.of();
+		}
 
-		Map<String, List<IRecipeWrapper>> recipesForType = recipeWrapperTable.getRow(recipeCategory);
+		IIngredientHelper<V> ingredientHelper = ingredientRegistry.getIngredientHelper(ingredient);
 
 		ImmutableList.Builder<T> listBuilder = ImmutableList.builder();
 		for (String key : IngredientInformation.getUniqueIdsWithWildcard(ingredientHelper, ingredient)) {
-			@SuppressWarnings("unchecked")
-			List<T> recipes = (List<T>) recipesForType.get(key);
-			if (recipes != null) {
-				listBuilder.addAll(recipes);
+			int ingredientId = uidInterner.getId(key);
+			if (ingredientId != UidInterner.NO_ID) {
+				@SuppressWarnings("unchecked")
+				List<T> recipes = (List<T>) recipesForType.get(ingredientId);
+				if (recipes != null) {
+					listBuilder.addAll(recipes);
+				}
 			}
 		}
 		return listBuilder.build();
 	}
 
 	public <T extends IRecipeWrapper> void addRecipe(T recipeWrapper, IRecipeCategory<T> recipeCategory, Map<IIngredientType, List> ingredientsByType) {
+		addRecipe(recipeWrapper, recipeCategory, getUniqueIds(ingredientsByType));
+	}
+
+	/**
+	 * Adds a recipe under ingredient uids from {@link #getUniqueIds(Map)}.
+	 */
+	public <T extends IRecipeWrapper> void addRecipe(T recipeWrapper, IRecipeCategory<T> recipeCategory, List<String> ingredientUids) {
+		Int2ObjectOpenHashMap<ArrayList<IRecipeWrapper>> recipesWrappersForType = recipeWrapperTable.computeIfAbsent(recipeCategory, k -> new Int2ObjectOpenHashMap<>());
+
+		for (String ingredientUid : ingredientUids) {
+			int ingredientId = uidInterner.intern(ingredientUid);
+
+			ArrayList<IRecipeWrapper> recipeWrappers = recipesWrappersForType.get(ingredientId);
+			if (recipeWrappers == null) {
+				recipeWrappers = new ArrayList<>();
+				recipesWrappersForType.put(ingredientId, recipeWrappers);
+			}
+
+			recipeWrappers.add(recipeWrapper);
+
+			addRecipeCategory(recipeCategory, ingredientId);
+		}
+	}
+
+	/**
+	 * Returns the uids that a recipe with these ingredients is added under, with subtypes expanded and without duplicates of each ingredient type.
+	 * The ingredient helpers and subtype interpreters of other mods may not be thread safe, so this is only called on the main thread.
+	 */
+	public List<String> getUniqueIds(Map<IIngredientType, List> ingredientsByType) {
+		List<String> ingredientUids = new ArrayList<>();
 		for (Map.Entry<IIngredientType, List> entry : ingredientsByType.entrySet()) {
 			if (entry != null) {
 				//noinspection unchecked
-				addRecipe(recipeWrapper, recipeCategory, entry.getKey(), entry.getValue());
+				addUniqueIds(entry.getKey(), entry.getValue(), ingredientUids);
 			}
 		}
+		return ingredientUids;
 	}
 
-	private <T extends IRecipeWrapper, V> void addRecipe(T recipeWrapper, IRecipeCategory<T> recipeCategory, IIngredientType<V> ingredientType, List<V> ingredients) {
+	private <V> void addUniqueIds(IIngredientType<V> ingredientType, List<V> ingredients, List<String> ingredientUids) {
 		IIngredientHelper<V> ingredientHelper = ingredientRegistry.getIngredientHelper(ingredientType);
 
-		Map<String, List<IRecipeWrapper>> recipesWrappersForType = recipeWrapperTable.getRow(recipeCategory);
-
 		Set<String> uniqueIds = new HashSet<>();
 
 		List<V> expandedIngredients = ingredientHelper.expandSubtypes(ingredients);
@@ -91,19 +152,27 @@ public class RecipeMap {
 				continue;
 			}
 
-			String key = ingredientHelper.getUniqueId(ingredient);
-			if (uniqueIds.contains(key)) {
-				continue;
-			} else {
-				uniqueIds.add(key);
+			String uniqueId = ingredientHelper.getUniqueId(ingredient);
+			if (uniqueIds.add(uniqueId)) {
+				ingredientUids.add(uniqueId);
 			}
+		}
+	}
 
-			@SuppressWarnings("unchecked")
-			List<T> recipeWrappers = (List<T>) recipesWrappersForType.computeIfAbsent(key, k -> new ArrayList<>());
-
-			recipeWrappers.add(recipeWrapper);
-
-			addRecipeCategory(recipeCategory, ingredient, ingredientHelper);
+	/**
+	 * Frees the spare capacity left from adding the startup recipes.
+	 * Recipes can still be added afterwards.
+	 */
+	public void trimToSize() {
+		for (Int2ObjectOpenHashMap<ArrayList<IRecipeWrapper>> recipesForType : recipeWrapperTable.values()) {
+			for (ArrayList<IRecipeWrapper> recipeWrappers : recipesForType.values()) {
+				recipeWrappers.trimToSize();
+			}
+			recipesForType.trim();
+		}
+		for (IntArrayList categoryIds : categoryUidMap.values()) {
+			categoryIds.trim();
 		}
+		categoryUidMap.trim();
 	}
 }
@@ -10,7 +10,12 @@ import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.minecraftforge.fml.common.ProgressManager;
 import net.minecraft.client.gui.inventory.GuiContainer;
@@ -31,6 +36,7 @@ import mezz.jei.api.ingredients.IIngredientHelper;
 import mezz.jei.api.ingredients.VanillaTypes;
 import mezz.jei.api.recipe.IFocus;
 import mezz.jei.api.recipe.IIngredientType;
+import mezz.jei.api.recipe.IMainThreadOnly;
 import mezz.jei.api.recipe.IRecipeCategory;
 import mezz.jei.api.recipe.IRecipeHandler;
 import mezz.jei.api.recipe.IRecipeRegistryPlugin;
@@ -38,8 +44,8 @@ import mezz.jei.api.recipe.IRecipeWrapper;
 import mezz.jei.api.recipe.VanillaRecipeCategoryUid;
 import mezz.jei.api.recipe.transfer.IRecipeTransferHandler;
 import mezz.jei.collect.ListMultiMap;
-import mezz.jei.collect.SetMultiMap;
 import mezz.jei.collect.Table;
+import mezz.jei.collect.UidInterner;
 import mezz.jei.config.Constants;
 import mezz.jei.gui.Focus;
 import mezz.jei.gui.recipes.RecipeClickableArea;
@@ -52,13 +58,31 @@ import mezz.jei.util.ErrorUtil;
 import mezz.jei.util.Log;
 
 public class RecipeRegistry implements IRecipeRegistry {
+	/**
+	 * Recipes are wrapped in parallel, in batches of this size so that the progress bar keeps moving.
+	 */
+	private static final int RECIPE_BATCH_SIZE = 2048;
+
 	private final IngredientRegistry ingredientRegistry;
 	@Deprecated
 	private final ImmutableList<IRecipeHandler> unsortedRecipeHandlers;
 	private final ImmutableMultimap<String, IRecipeHandler> recipeHandlers;
+	/**
+	 * The recipe handler found for each recipe class, or an empty result for classes that have none.
+	 * Looked up from the recipe loader threads, and never invalidated because the handlers do not change after the registry is made.
+	 */
+	private final Map<Class, Optional<IRecipeHandler>> recipeHandlerCache = new ConcurrentHashMap<>();
+	private final Map<String, Map<Class, Optional<IRecipeHandler>>> recipeHandlerCacheForCategories = new ConcurrentHashMap<>(); // recipe category uid key
+	@Deprecated
+	private final Map<Class, ImmutableList<IRecipeHandler>> allRecipeHandlersCache = new ConcurrentHashMap<>();
 	private final ImmutableList<IRecipeCategory> recipeCategories;
 	private final Set<String> hiddenRecipeCategoryUids = new HashSet<>();
 	private final List<IRecipeCategory> recipeCategoriesVisibleCache = new ArrayList<>();
+	private final RecipeLookupCache recipeLookupCache = new RecipeLookupCache();
+	/**
+	 * The {@link IngredientFilter#getVisibilityGeneration()} that the visible categories were found with.
+	 */
+	private int ingredientVisibilityGeneration;
 	private final ImmutableTable<Class, String, IRecipeTransferHandler> recipeTransferHandlers;
 	private final ImmutableMultimap<Class<? extends GuiContainer>, RecipeClickableArea> recipeClickableAreasMap;
 	private final ImmutableListMultimap<IRecipeCategory, Object> recipeCatalysts;
@@ -68,8 +92,15 @@ public class RecipeRegistry implements IRecipeRegistry {
 	private final ListMultiMap<IRecipeCategory, IRecipeWrapper> recipeWrappersForCategories = new ListMultiMap<>();
 	private final RecipeMap recipeInputMap;
 	private final RecipeMap recipeOutputMap;
-	private final List<RecipeRegistryPluginSafeWrapper> plugins = new ArrayList<>();
-	private final SetMultiMap<String, IRecipeWrapper> hiddenRecipes = new SetMultiMap<>(() -> Collections.newSetFromMap(new IdentityHashMap<>())); // recipe category uid key
+	/**
+	 * Finds the recipes registered with JEI by ingredient uid, so its results for a focus are kept in the {@link #recipeLookupCache}.
+	 */
+	private final RecipeRegistryPluginSafeWrapper internalPlugin;
+	/**
+	 * The plugins registered by mods. They may look at more than the uid of the focused ingredient, like its nbt, so they are always asked.
+	 */
+	private final List<RecipeRegistryPluginSafeWrapper> modPlugins = new ArrayList<>();
+	private final Map<String, HiddenRecipes> hiddenRecipes = new HashMap<>(); // recipe category uid key
 
 	public RecipeRegistry(
 		List<IRecipeCategory> recipeCategories,
@@ -92,8 +123,9 @@ public class RecipeRegistry implements IRecipeRegistry {
 		this.recipeCategories = ImmutableList.copyOf(recipeCategories);
 		this.recipeCategoryComparator = new RecipeCategoryComparator(recipeCategories);
 		this.recipeCategoriesMap = buildRecipeCategoriesMap(recipeCategories);
-		this.recipeInputMap = new RecipeMap(recipeCategoryComparator, ingredientRegistry);
-		this.recipeOutputMap = new RecipeMap(recipeCategoryComparator, ingredientRegistry);
+		UidInterner uidInterner = new UidInterner();
+		this.recipeInputMap = new RecipeMap(recipeCategoryComparator, ingredientRegistry, uidInterner);
+		this.recipeOutputMap = new RecipeMap(recipeCategoryComparator, ingredientRegistry, uidInterner);
 
 		addRecipes(unsortedRecipes, recipes);
 
@@ -119,12 +151,15 @@ public class RecipeRegistry implements IRecipeRegistry {
 		}
 
 		this.recipeCatalysts = recipeCatalystsBuilder.build();
+		this.recipeInputMap.trimToSize();
+		this.recipeOutputMap.trimToSize();
+		uidInterner.trimToSize();
 		ImmutableMultimap<String, String> categoriesForRecipeCatalystKeys = categoriesForRecipeCatalystKeysBuilder.build();
 
 		IRecipeRegistryPlugin internalRecipeRegistryPlugin = new InternalRecipeRegistryPlugin(this, categoriesForRecipeCatalystKeys, ingredientRegistry, recipeCategoriesMap, recipeInputMap, recipeOutputMap, recipeWrappersForCategories);
-		this.plugins.add(new RecipeRegistryPluginSafeWrapper(internalRecipeRegistryPlugin));
+		this.internalPlugin = new RecipeRegistryPluginSafeWrapper(internalRecipeRegistryPlugin);
 		for (IRecipeRegistryPlugin plugin : plugins) {
-			this.plugins.add(new RecipeRegistryPluginSafeWrapper(plugin));
+			this.modPlugins.add(new RecipeRegistryPluginSafeWrapper(plugin));
 		}
 	}
 
@@ -144,7 +179,7 @@ public class RecipeRegistry implements IRecipeRegistry {
 	private static ImmutableList<IRecipeHandler> buildRecipeHandlersList(List<IRecipeHandler> recipeHandlers) {
 		ImmutableList.Builder<IRecipeHandler> listBuilder = ImmutableList.builder();
 		Set<Class> recipeHandlerClasses = new HashSet<>();
-		for (IRecipeHandler recipeHandler : recipeHandlers) {
+		for (IRecipeHandler<?> recipeHandler : recipeHandlers) {
 			if (recipeHandler == null) {
 				continue;
 			}
@@ -161,23 +196,140 @@ public class RecipeRegistry implements IRecipeRegistry {
 		return listBuilder.build();
 	}
 
+	/**
+	 * Wraps the recipes and reads their ingredients on a pool of threads,
+	 * and then looks up the uids of the ingredients and adds the recipes to the maps on this thread in their registration order.
+	 * The uids come from ingredient helpers and subtype interpreters of other mods, so they are not looked up on the pool.
+	 * Recipes that are not simple to load, like ones with an {@link IMainThreadOnly} handler or ones that crash,
+	 * are left for this thread and loaded the same way as recipes added at runtime.
+	 */
 	private void addRecipes(List<Object> unsortedRecipes, ListMultiMap<String, Object> recipes) {
-		Collection<Map.Entry<String, List<Object>>> entries = recipes.entrySet();
-		ProgressManager.ProgressBar progressBar = ProgressManager.push("Loading recipes", recipes.getTotalSize() + unsortedRecipes.size());
-		for (Map.Entry<String, List<Object>> entry : entries) {
+		List<LoadingRecipe> loadingRecipes = new ArrayList<>(recipes.getTotalSize() + unsortedRecipes.size());
+		for (Map.Entry<String, List<Object>> entry : recipes.entrySet()) {
 			String recipeCategoryUid = entry.getKey();
 			for (Object recipe : entry.getValue()) {
-				progressBar.step("");
-				addRecipe(recipe, recipe.getClass(), recipeCategoryUid);
+				loadingRecipes.add(new LoadingRecipe(recipe, recipeCategoryUid));
 			}
 		}
 		for (Object recipe : unsortedRecipes) {
-			progressBar.step("");
-			addRecipe(recipe, recipe.getClass(), null);
+			loadingRecipes.add(new LoadingRecipe(recipe, null));
+		}
+
+		ProgressManager.ProgressBar progressBar = ProgressManager.push("Loading recipes", loadingRecipes.size());
+		ForkJoinPool recipeLoaderPool = createRecipeLoaderPool();
+		try {
+			for (int start = 0; start < loadingRecipes.size(); start += RECIPE_BATCH_SIZE) {
+				List<LoadingRecipe> batch = loadingRecipes.subList(start, Math.min(start + RECIPE_BATCH_SIZE, loadingRecipes.size()));
+				// a parallel stream runs on the pool that it is started from
+				recipeLoaderPool.submit(() -> batch.parallelStream().forEach(this::wrapRecipe)).join();
+				for (LoadingRecipe loadingRecipe : batch) {
+					progressBar.step("");
+					addLoadingRecipe(loadingRecipe);
+				}
+			}
+		} finally {
+			recipeLoaderPool.shutdown();
 		}
 		ProgressManager.pop(progressBar);
 	}
 
+	private static ForkJoinPool createRecipeLoaderPool() {
+		// mod classes are loaded by the context class loader of the main thread
+		final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		final AtomicInteger threadCount = new AtomicInteger();
+		ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("JEI Recipe Loader " + threadCount.getAndIncrement());
+			thread.setContextClassLoader(contextClassLoader);
+			return thread;
+		};
+		return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), threadFactory, null, false);
+	}
+
+	/**
+	 * Called on the recipe loader threads.
+	 * Only reads from the registry, and leaves the recipe unwrapped for {@link #addLoadingRecipe(LoadingRecipe)} if anything is unusual.
+	 * An error is recorded for it to log, a broken recipe is not wrapped a second time on the main thread.
+	 */
+	private void wrapRecipe(LoadingRecipe loadingRecipe) {
+		try {
+			wrapRecipeUnchecked(loadingRecipe);
+		} catch (RuntimeException | LinkageError e) {
+			loadingRecipe.error = e;
+		}
+	}
+
+	private <T> void wrapRecipeUnchecked(LoadingRecipe loadingRecipe) {
+		@SuppressWarnings("unchecked")
+		T recipe = (T) loadingRecipe.recipe;
+		if (recipe instanceof IMainThreadOnly) {
+			return;
+		}
+		@SuppressWarnings("unchecked")
+		Class<? extends T> recipeClass = (Class<? extends T>) recipe.getClass();
+
+		String recipeCategoryUid = loadingRecipe.recipeCategoryUid;
+		if (recipeCategoryUid == null) {
+			IRecipeHandler<T> recipeHandler = getRecipeHandler(recipeClass, null);
+			if (recipeHandler == null || recipeHandler instanceof IMainThreadOnly) {
+				return;
+			}
+			recipeCategoryUid = recipeHandler.getRecipeCategoryUid(recipe);
+		}
+		IRecipeCategory recipeCategory = recipeCategoriesMap.get(recipeCategoryUid);
+		if (recipeCategory == null) {
+			return;
+		}
+
+		IRecipeWrapper recipeWrapper;
+		IRecipeHandler<T> recipeHandler = getRecipeHandler(recipeClass, recipeCategoryUid);
+		if (recipeHandler != null) {
+			if (recipeHandler instanceof IMainThreadOnly) {
+				return;
+			}
+			if (!recipeHandler.isRecipeValid(recipe)) {
+				loadingRecipe.skipped = true;
+				return;
+			}
+			recipeWrapper = recipeHandler.getRecipeWrapper(recipe);
+		} else if (recipe instanceof IRecipeWrapper) {
+			recipeWrapper = (IRecipeWrapper) recipe;
+		} else {
+			loadingRecipe.skipped = true;
+			return;
+		}
+		if (recipeWrapper == null) {
+			return;
+		}
+		loadingRecipe.recipeCategory = recipeCategory;
+		loadingRecipe.recipeWrapper = recipeWrapper;
+		if (recipeWrapper instanceof IMainThreadOnly) {
+			return;
+		}
+
+		loadingRecipe.ingredients = getIngredients(recipeWrapper);
+	}
+
+	private void addLoadingRecipe(LoadingRecipe loadingRecipe) {
+		Object recipe = loadingRecipe.recipe;
+		IRecipeWrapper recipeWrapper = loadingRecipe.recipeWrapper;
+		IRecipeCategory recipeCategory = loadingRecipe.recipeCategory;
+		Throwable error = loadingRecipe.error;
+		if (error instanceof BrokenCraftingRecipeException) {
+			Log.get().error("Found a broken crafting recipe.", error);
+		} else if (error != null) {
+			String recipeInfo = recipeWrapper != null ? ErrorUtil.getInfoFromRecipe(recipe, recipeWrapper) : ErrorUtil.getNameForRecipe(recipe);
+			Log.get().error("Found a broken recipe: {}\n", recipeInfo, error);
+		} else if (loadingRecipe.skipped) {
+			Log.get().debug("No recipe wrapper for recipe: {}", ErrorUtil.getNameForRecipe(recipe));
+		} else if (recipeWrapper == null || recipeCategory == null || wrapperMaps.get(recipeCategory.getUid(), recipe) != null) {
+			// also reuses the first wrapper of a recipe that was registered twice
+			addRecipe(recipe, recipe.getClass(), loadingRecipe.recipeCategoryUid);
+		} else {
+			addRecipe(recipe, recipeWrapper, recipeCategory, loadingRecipe.ingredients);
+		}
+	}
+
 	@Override
 	public <V> IFocus<V> createFocus(IFocus.Mode mode, V ingredient) {
 		return new Focus<>(mode, ingredient);
@@ -205,7 +357,8 @@ public class RecipeRegistry implements IRecipeRegistry {
 			return;
 		}
 
-		if (hiddenRecipes.contains(recipeCategoryUid, recipe)) {
+		HiddenRecipes hiddenRecipesForCategory = hiddenRecipes.get(recipeCategoryUid);
+		if (hiddenRecipesForCategory != null && hiddenRecipesForCategory.contains(recipe)) {
 			unhideRecipe(recipe, recipeCategoryUid);
 		} else {
 			addRecipe(recipe, recipe, recipeCategory);
@@ -258,8 +411,15 @@ public class RecipeRegistry implements IRecipeRegistry {
 	}
 
 	private <T> void addRecipe(T recipe, IRecipeWrapper recipeWrapper, IRecipeCategory recipeCategory) {
+		addRecipe(recipe, recipeWrapper, recipeCategory, null);
+	}
+
+	/**
+	 * @param ingredients the ingredients of the recipe wrapper, if they were already read while loading
+	 */
+	private <T> void addRecipe(T recipe, IRecipeWrapper recipeWrapper, IRecipeCategory recipeCategory, @Nullable Ingredients ingredients) {
 		try {
-			addRecipeUnchecked(recipe, recipeWrapper, recipeCategory);
+			addRecipeUnchecked(recipe, recipeWrapper, recipeCategory, ingredients);
 		} catch (BrokenCraftingRecipeException e) {
 			Log.get().error("Found a broken crafting recipe.", e);
 		} catch (RuntimeException | LinkageError e) {
@@ -268,21 +428,29 @@ public class RecipeRegistry implements IRecipeRegistry {
 		}
 	}
 
-	private <T> void addRecipeUnchecked(T recipe, IRecipeWrapper recipeWrapper, IRecipeCategory recipeCategory) {
+	private <T> void addRecipeUnchecked(T recipe, IRecipeWrapper recipeWrapper, IRecipeCategory recipeCategory, @Nullable Ingredients ingredients) {
 		wrapperMaps.put(recipeCategory.getUid(), recipe, recipeWrapper);
 
-		Ingredients ingredients = getIngredients(recipeWrapper);
+		if (ingredients == null) {
+			ingredients = getIngredients(recipeWrapper);
+		}
+		List<String> inputUids = recipeInputMap.getUniqueIds(ingredients.getInputIngredients());
+		List<String> outputUids = recipeOutputMap.getUniqueIds(ingredients.getOutputIngredients());
 
 		//noinspection unchecked
-		recipeInputMap.addRecipe(recipeWrapper, recipeCategory, ingredients.getInputIngredients());
-		//noinspection unchecked
-		recipeOutputMap.addRecipe(recipeWrapper, recipeCategory, ingredients.getOutputIngredients());
+		addRecipeToMaps(recipeWrapper, recipeCategory, inputUids, outputUids);
+	}
+
+	private <T extends IRecipeWrapper> void addRecipeToMaps(T recipeWrapper, IRecipeCategory<T> recipeCategory, List<String> inputUids, List<String> outputUids) {
+		recipeInputMap.addRecipe(recipeWrapper, recipeCategory, inputUids);
+		recipeOutputMap.addRecipe(recipeWrapper, recipeCategory, outputUids);
 
 		recipeWrappersForCategories.put(recipeCategory, recipeWrapper);
 
 		unhideRecipe(recipeWrapper, recipeCategory.getUid());
 
 		recipeCategoriesVisibleCache.clear();
+		recipeLookupCache.invalidate();
 	}
 
 	public Ingredients getIngredients(IRecipeWrapper recipeWrapper) {
@@ -361,6 +529,7 @@ public class RecipeRegistry implements IRecipeRegistry {
 
 	@Override
 	public List<IRecipeCategory> getRecipeCategories() {
+		checkIngredientVisibility();
 		if (recipeCategoriesVisibleCache.isEmpty()) {
 			for (IRecipeCategory<?> recipeCategory : this.recipeCategories) {
 				if (isCategoryVisible(recipeCategory)) {
@@ -371,6 +540,21 @@ public class RecipeRegistry implements IRecipeRegistry {
 		return recipeCategoriesVisibleCache;
 	}
 
+	/**
+	 * Categories are hidden when all of their catalysts are, so the visible ones are found again after ingredients are shown or hidden.
+	 */
+	private void checkIngredientVisibility() {
+		if (recipeCatalysts.isEmpty()) {
+			return;
+		}
+		int visibilityGeneration = Internal.getIngredientFilter().getVisibilityGeneration();
+		if (ingredientVisibilityGeneration != visibilityGeneration) {
+			ingredientVisibilityGeneration = visibilityGeneration;
+			recipeCategoriesVisibleCache.clear();
+			recipeLookupCache.invalidate();
+		}
+	}
+
 	private boolean isCategoryVisible(IRecipeCategory<?> recipeCategory) {
 		if (hiddenRecipeCategoryUids.contains(recipeCategory.getUid())) {
 			return false;
@@ -453,6 +637,31 @@ public class RecipeRegistry implements IRecipeRegistry {
 	private <T> IRecipeHandler<T> getRecipeHandler(Class<? extends T> recipeClass, @Nullable String recipeCategoryUid) {
 		ErrorUtil.checkNotNull(recipeClass, "recipeClass");
 
+		Map<Class, Optional<IRecipeHandler>> cache = getRecipeHandlerCache(recipeCategoryUid);
+		// checked with get first, computeIfAbsent takes a lock on Java 8 even when the class is already there
+		Optional<IRecipeHandler> recipeHandler = cache.get(recipeClass);
+		if (recipeHandler == null) {
+			// threads that look up a new class at the same time find the same handler
+			recipeHandler = Optional.ofNullable(findRecipeHandler(recipeClass, recipeCategoryUid));
+			cache.put(recipeClass, recipeHandler);
+		}
+		// noinspection unchecked
+		return (IRecipeHandler<T>) recipeHandler.orElse(null);
+	}
+
+	private Map<Class, Optional<IRecipeHandler>> getRecipeHandlerCache(@Nullable String recipeCategoryUid) {
+		if (recipeCategoryUid == null) {
+			return recipeHandlerCache;
+		}
+		Map<Class, Optional<IRecipeHandler>> cache = recipeHandlerCacheForCategories.get(recipeCategoryUid);
+		if (cache == null) {
+			cache = recipeHandlerCacheForCategories.computeIfAbsent(recipeCategoryUid, k -> new ConcurrentHashMap<>());
+		}
+		return cache;
+	}
+
+	@Nullable
+	private IRecipeHandler findRecipeHandler(Class recipeClass, @Nullable String recipeCategoryUid) {
 		ImmutableCollection<IRecipeHandler> recipeHandlers;
 
 		if (recipeCategoryUid != null) {
@@ -464,28 +673,24 @@ public class RecipeRegistry implements IRecipeRegistry {
 		// first try to find the exact handler for this recipeClass
 		for (IRecipeHandler<?> recipeHandler : recipeHandlers) {
 			if (recipeHandler.getRecipeClass().equals(recipeClass)) {
-				// noinspection unchecked
-				return (IRecipeHandler<T>) recipeHandler;
+				return recipeHandler;
 			}
 		}
 		for (IRecipeHandler<?> recipeHandler : unsortedRecipeHandlers) {
 			if (recipeHandler.getRecipeClass().equals(recipeClass)) {
-				// noinspection unchecked
-				return (IRecipeHandler<T>) recipeHandler;
+				return recipeHandler;
 			}
 		}
 
 		// fall back on any handler that can accept this recipeClass
 		for (IRecipeHandler<?> recipeHandler : recipeHandlers) {
 			if (recipeHandler.getRecipeClass().isAssignableFrom(recipeClass)) {
-				// noinspection unchecked
-				return (IRecipeHandler<T>) recipeHandler;
+				return recipeHandler;
 			}
 		}
 		for (IRecipeHandler<?> recipeHandler : unsortedRecipeHandlers) {
 			if (recipeHandler.getRecipeClass().isAssignableFrom(recipeClass)) {
-				// noinspection unchecked
-				return (IRecipeHandler<T>) recipeHandler;
+				return recipeHandler;
 			}
 		}
 
@@ -496,39 +701,46 @@ public class RecipeRegistry implements IRecipeRegistry {
 	private <T> List<IRecipeHandler<T>> getRecipeHandlers(Class<? extends T> recipeClass) {
 		ErrorUtil.checkNotNull(recipeClass, "recipeClass");
 
-		List<IRecipeHandler<T>> recipeHandlers = new ArrayList<>();
+		ImmutableList<IRecipeHandler> recipeHandlers = allRecipeHandlersCache.get(recipeClass);
+		if (recipeHandlers == null) {
+			recipeHandlers = findRecipeHandlers(recipeClass);
+			allRecipeHandlersCache.put(recipeClass, recipeHandlers);
+		}
+		// noinspection unchecked
+		return (List<IRecipeHandler<T>>) (List<?>) recipeHandlers;
+	}
+
+	@Deprecated
+	private ImmutableList<IRecipeHandler> findRecipeHandlers(Class recipeClass) {
+		ImmutableList.Builder<IRecipeHandler> recipeHandlers = ImmutableList.builder();
 
 		ImmutableCollection<IRecipeHandler> allRecipeHandlers = this.recipeHandlers.values();
 
 		// first try to find the exact handler for this recipeClass
 		for (IRecipeHandler<?> recipeHandler : allRecipeHandlers) {
 			if (recipeHandler.getRecipeClass().equals(recipeClass)) {
-				// noinspection unchecked
-				recipeHandlers.add((IRecipeHandler<T>) recipeHandler);
+				recipeHandlers.add(recipeHandler);
 			}
 		}
 		for (IRecipeHandler<?> recipeHandler : unsortedRecipeHandlers) {
 			if (recipeHandler.getRecipeClass().equals(recipeClass)) {
-				// noinspection unchecked
-				recipeHandlers.add((IRecipeHandler<T>) recipeHandler);
+				recipeHandlers.add(recipeHandler);
 			}
 		}
 
 		// fall back on any handler that can accept this recipeClass
 		for (IRecipeHandler<?> recipeHandler : allRecipeHandlers) {
 			if (recipeHandler.getRecipeClass().isAssignableFrom(recipeClass)) {
-				// noinspection unchecked
-				recipeHandlers.add((IRecipeHandler<T>) recipeHandler);
+				recipeHandlers.add(recipeHandler);
 			}
 		}
 		for (IRecipeHandler<?> recipeHandler : unsortedRecipeHandlers) {
 			if (recipeHandler.getRecipeClass().isAssignableFrom(recipeClass)) {
-				// noinspection unchecked
-				recipeHandlers.add((IRecipeHandler<T>) recipeHandler);
+				recipeHandlers.add(recipeHandler);
 			}
 		}
 
-		return recipeHandlers;
+		return recipeHandlers.build();
 	}
 
 	@Nullable
@@ -545,23 +757,57 @@ public class RecipeRegistry implements IRecipeRegistry {
 	@Override
 	public <V> List<IRecipeCategory> getRecipeCategories(IFocus<V> focus) {
 		focus = Focus.check(focus);
+		checkIngredientVisibility();
+
+		V ingredient = focus.getValue();
+		IIngredientType<V> ingredientType = ingredientRegistry.getIngredientType(ingredient);
+		String ingredientUid = getUniqueId(ingredient);
+		List<IRecipeCategory> recipeCategories = recipeLookupCache.get(focus.getMode(), ingredientType, ingredientUid, null);
+		if (recipeCategories == null) {
+			recipeCategories = findInternalRecipeCategories(focus, ingredientType, ingredientUid);
+			recipeLookupCache.put(focus.getMode(), ingredientType, ingredientUid, null, recipeCategories);
+		}
 
-		List<String> allRecipeCategoryUids = new ArrayList<>();
-		for (IRecipeRegistryPlugin plugin : this.plugins) {
+		// the categories that mod plugins add, only copied when there are any
+		List<String> allRecipeCategoryUids = null;
+		for (IRecipeRegistryPlugin plugin : this.modPlugins) {
 			List<String> recipeCategoryUids = plugin.getRecipeCategoryUids(focus);
 			for (String recipeCategoryUid : recipeCategoryUids) {
-				if (!allRecipeCategoryUids.contains(recipeCategoryUid)) {
-					if (hiddenRecipes.containsKey(recipeCategoryUid)) {
-						IRecipeCategory<?> recipeCategory = getRecipeCategory(recipeCategoryUid);
-						if (recipeCategory != null) {
-							List<?> recipeWrappers = getRecipeWrappers(recipeCategory, focus);
-							if (!recipeWrappers.isEmpty()) {
-								allRecipeCategoryUids.add(recipeCategoryUid);
-							}
+				IRecipeCategory<?> recipeCategory = getRecipeCategory(recipeCategoryUid);
+				if (recipeCategory != null && !recipeCategories.contains(recipeCategory) &&
+					(allRecipeCategoryUids == null || !allRecipeCategoryUids.contains(recipeCategoryUid)) &&
+					(!hasHiddenRecipes(recipeCategoryUid) || !getRecipeWrappers(recipeCategory, focus).isEmpty())) {
+					if (allRecipeCategoryUids == null) {
+						allRecipeCategoryUids = new ArrayList<>();
+						for (IRecipeCategory category : recipeCategories) {
+							allRecipeCategoryUids.add(category.getUid());
 						}
-					} else {
-						allRecipeCategoryUids.add(recipeCategoryUid);
 					}
+					allRecipeCategoryUids.add(recipeCategoryUid);
+				}
+			}
+		}
+		if (allRecipeCategoryUids == null) {
+			return recipeCategories;
+		}
+		return getRecipeCategories(allRecipeCategoryUids);
+	}
+
+	private <V> List<IRecipeCategory> findInternalRecipeCategories(IFocus<V> focus, IIngredientType<V> ingredientType, String ingredientUid) {
+		List<String> allRecipeCategoryUids = new ArrayList<>();
+		List<String> recipeCategoryUids = this.internalPlugin.getRecipeCategoryUids(focus);
+		for (String recipeCategoryUid : recipeCategoryUids) {
+			if (!allRecipeCategoryUids.contains(recipeCategoryUid)) {
+				if (hasHiddenRecipes(recipeCategoryUid)) {
+					IRecipeCategory<?> recipeCategory = getRecipeCategory(recipeCategoryUid);
+					if (recipeCategory != null) {
+						List<?> recipeWrappers = getInternalRecipeWrappers(recipeCategory, focus, ingredientType, ingredientUid);
+						if (!recipeWrappers.isEmpty()) {
+							allRecipeCategoryUids.add(recipeCategoryUid);
+						}
+					}
+				} else {
+					allRecipeCategoryUids.add(recipeCategoryUid);
 				}
 			}
 		}
@@ -573,35 +819,96 @@ public class RecipeRegistry implements IRecipeRegistry {
 	public <T extends IRecipeWrapper, V> List<T> getRecipeWrappers(IRecipeCategory<T> recipeCategory, IFocus<V> focus) {
 		ErrorUtil.checkNotNull(recipeCategory, "recipeCategory");
 		focus = Focus.check(focus);
+		checkIngredientVisibility();
+
+		V ingredient = focus.getValue();
+		IIngredientType<V> ingredientType = ingredientRegistry.getIngredientType(ingredient);
+		String ingredientUid = getUniqueId(ingredient);
+		List<T> internalRecipeWrappers = getInternalRecipeWrappers(recipeCategory, focus, ingredientType, ingredientUid);
 
-		List<T> allRecipeWrappers = new ArrayList<>();
-		for (IRecipeRegistryPlugin plugin : this.plugins) {
+		List<T> allRecipeWrappers = internalRecipeWrappers;
+		HiddenRecipes hiddenRecipesForCategory = hiddenRecipes.get(recipeCategory.getUid());
+		for (IRecipeRegistryPlugin plugin : this.modPlugins) {
 			List<T> recipeWrappers = plugin.getRecipeWrappers(recipeCategory, focus);
-			allRecipeWrappers.addAll(recipeWrappers);
+			if (hiddenRecipesForCategory != null) {
+				recipeWrappers = hiddenRecipesForCategory.getVisibleRecipes(recipeWrappers);
+			}
+			allRecipeWrappers = concat(allRecipeWrappers, recipeWrappers);
 		}
+		if (allRecipeWrappers == internalRecipeWrappers) {
+			return internalRecipeWrappers;
+		}
+		return Collections.unmodifiableList(allRecipeWrappers);
+	}
 
-		@SuppressWarnings("unchecked")
-		Set<T> hidden = (Set<T>) hiddenRecipes.get(recipeCategory.getUid());
-		allRecipeWrappers.removeAll(hidden);
+	/**
+	 * Returns the visible recipes that the internal plugin has for the focus, from the {@link #recipeLookupCache} when they were looked up before.
+	 */
+	private <T extends IRecipeWrapper, V> List<T> getInternalRecipeWrappers(IRecipeCategory<T> recipeCategory, IFocus<V> focus, IIngredientType<V> ingredientType, String ingredientUid) {
+		String recipeCategoryUid = recipeCategory.getUid();
+		List<T> recipeWrappers = recipeLookupCache.get(focus.getMode(), ingredientType, ingredientUid, recipeCategoryUid);
+		if (recipeWrappers == null) {
+			recipeWrappers = this.internalPlugin.getRecipeWrappers(recipeCategory, focus);
+			HiddenRecipes hiddenRecipesForCategory = hiddenRecipes.get(recipeCategoryUid);
+			if (hiddenRecipesForCategory != null) {
+				recipeWrappers = hiddenRecipesForCategory.getVisibleRecipes(recipeWrappers);
+			}
+			recipeWrappers = Collections.unmodifiableList(recipeWrappers);
+			recipeLookupCache.put(focus.getMode(), ingredientType, ingredientUid, recipeCategoryUid, recipeWrappers);
+		}
+		return recipeWrappers;
+	}
 
+	/**
+	 * Only copies when both lists have recipes, usually a single plugin has recipes for a category.
+	 */
+	private static <T> List<T> concat(List<T> recipeWrappers, List<T> moreRecipeWrappers) {
+		if (moreRecipeWrappers.isEmpty()) {
+			return recipeWrappers;
+		} else if (recipeWrappers.isEmpty()) {
+			return moreRecipeWrappers;
+		}
+		List<T> allRecipeWrappers = new ArrayList<>(recipeWrappers.size() + moreRecipeWrappers.size());
+		allRecipeWrappers.addAll(recipeWrappers);
+		allRecipeWrappers.addAll(moreRecipeWrappers);
 		return allRecipeWrappers;
 	}
 
+	private boolean hasHiddenRecipes(String recipeCategoryUid) {
+		HiddenRecipes hiddenRecipesForCategory = hiddenRecipes.get(recipeCategoryUid);
+		return hiddenRecipesForCategory != null && !hiddenRecipesForCategory.isEmpty();
+	}
+
+	/**
+	 * Returns the cache of focused lookups, for its hit rate.
+	 */
+	public RecipeLookupCache getRecipeLookupCache() {
+		return recipeLookupCache;
+	}
+
 	@Override
 	public <T extends IRecipeWrapper> List<T> getRecipeWrappers(IRecipeCategory<T> recipeCategory) {
 		ErrorUtil.checkNotNull(recipeCategory, "recipeCategory");
 
-		List<T> allRecipeWrappers = new ArrayList<>();
-		for (IRecipeRegistryPlugin plugin : this.plugins) {
-			List<T> recipeWrappers = plugin.getRecipeWrappers(recipeCategory);
-			allRecipeWrappers.addAll(recipeWrappers);
-		}
+		HiddenRecipes hiddenRecipesForCategory = hiddenRecipes.get(recipeCategory.getUid());
 
-		@SuppressWarnings("unchecked")
-		Set<T> hidden = (Set<T>) hiddenRecipes.get(recipeCategory.getUid());
-		allRecipeWrappers.removeAll(hidden);
+		// the recipes of the internal plugin are a view of the category's list, nothing is copied unless a mod plugin adds more
+		List<T> allRecipeWrappers;
+		if (hiddenRecipesForCategory != null) {
+			allRecipeWrappers = hiddenRecipesForCategory.getVisibleCategoryRecipes();
+		} else {
+			//noinspection unchecked
+			allRecipeWrappers = (List<T>) recipeWrappersForCategories.get(recipeCategory);
+		}
 
-		return allRecipeWrappers;
+		for (IRecipeRegistryPlugin plugin : this.modPlugins) {
+			List<T> recipeWrappers = plugin.getRecipeWrappers(recipeCategory);
+			if (hiddenRecipesForCategory != null) {
+				recipeWrappers = hiddenRecipesForCategory.getVisibleRecipes(recipeWrappers);
+			}
+			allRecipeWrappers = concat(allRecipeWrappers, recipeWrappers);
+		}
+		return Collections.unmodifiableList(allRecipeWrappers);
 	}
 
 	@Override
@@ -690,8 +997,9 @@ public class RecipeRegistry implements IRecipeRegistry {
 		ErrorUtil.checkNotNull(recipe, "recipe");
 		ErrorUtil.checkNotNull(recipeCategoryUid, "recipeCategoryUid");
 		ErrorUtil.assertMainThread();
-		hiddenRecipes.put(recipeCategoryUid, recipe);
+		hiddenRecipes.computeIfAbsent(recipeCategoryUid, this::createHiddenRecipes).hide(recipe);
 		recipeCategoriesVisibleCache.clear();
+		recipeLookupCache.invalidate();
 	}
 
 	@Override
@@ -699,8 +1007,20 @@ public class RecipeRegistry implements IRecipeRegistry {
 		ErrorUtil.checkNotNull(recipe, "recipe");
 		ErrorUtil.checkNotNull(recipeCategoryUid, "recipeCategoryUid");
 		ErrorUtil.assertMainThread();
-		hiddenRecipes.remove(recipeCategoryUid, recipe);
+		HiddenRecipes hiddenRecipesForCategory = hiddenRecipes.get(recipeCategoryUid);
+		if (hiddenRecipesForCategory != null) {
+			hiddenRecipesForCategory.unhide(recipe);
+		}
 		recipeCategoriesVisibleCache.clear();
+		recipeLookupCache.invalidate();
+	}
+
+	private HiddenRecipes createHiddenRecipes(String recipeCategoryUid) {
+		IRecipeCategory recipeCategory = recipeCategoriesMap.get(recipeCategoryUid);
+		if (recipeCategory == null) {
+			return new HiddenRecipes(Collections.emptyList());
+		}
+		return new HiddenRecipes(recipeWrappersForCategories.get(recipeCategory));
 	}
 
 	@Override
@@ -713,6 +1033,7 @@ public class RecipeRegistry implements IRecipeRegistry {
 		}
 		hiddenRecipeCategoryUids.add(recipeCategoryUid);
 		recipeCategoriesVisibleCache.remove(recipeCategory);
+		recipeLookupCache.invalidate();
 	}
 
 	@Override
@@ -724,6 +1045,7 @@ public class RecipeRegistry implements IRecipeRegistry {
 		}
 		hiddenRecipeCategoryUids.remove(recipeCategoryUid);
 		recipeCategoriesVisibleCache.clear();
+		recipeLookupCache.invalidate();
 	}
 
 	@Override
@@ -737,4 +1059,28 @@ public class RecipeRegistry implements IRecipeRegistry {
 	public void unhideRecipe(IRecipeWrapper recipe) {
 		unhideRecipe(recipe, VanillaRecipeCategoryUid.CRAFTING);
 	}
+
+	/**
+	 * A recipe that is being loaded by {@link #addRecipes(List, ListMultiMap)}.
+	 * The results of {@link #wrapRecipe(LoadingRecipe)} are read after the pool has finished its batch.
+	 */
+	private static class LoadingRecipe {
+		private final Object recipe;
+		@Nullable
+		private final String recipeCategoryUid;
+		private boolean skipped;
+		@Nullable
+		private IRecipeCategory recipeCategory;
+		@Nullable
+		private IRecipeWrapper recipeWrapper;
+		@Nullable
+		private Ingredients ingredients;
+		@Nullable
+		private Throwable error;
+
+		public LoadingRecipe(Object recipe, @Nullable String recipeCategoryUid) {
+			this.recipe = recipe;
+			this.recipeCategoryUid = recipeCategoryUid;
+		}
+	}
 }
@@ -12,11 +12,13 @@ import com.google.common.base.Stopwatch;
 import mezz.jei.Internal;
 import mezz.jei.api.IJeiRuntime;
 import mezz.jei.api.IModPlugin;
+import mezz.jei.api.ingredients.VanillaTypes;
 import mezz.jei.api.gui.IAdvancedGuiHandler;
 import mezz.jei.api.gui.IGhostIngredientHandler;
 import mezz.jei.api.gui.IGlobalGuiHandler;
 import mezz.jei.api.gui.IGuiScreenHandler;
 import mezz.jei.bookmarks.BookmarkList;
+import mezz.jei.color.ColorGetter;
 import mezz.jei.config.Config;
 import mezz.jei.gui.GuiEventHandler;
 import mezz.jei.gui.GuiHelper;
@@ -33,6 +35,7 @@ import mezz.jei.ingredients.IngredientListElementFactory;
 import mezz.jei.ingredients.IngredientRegistry;
 import mezz.jei.input.InputHandler;
 import mezz.jei.plugins.vanilla.VanillaPlugin;
+import mezz.jei.plugins.vanilla.ingredients.item.ItemStackHelper;
 import mezz.jei.recipes.RecipeRegistry;
 import mezz.jei.runtime.JeiHelpers;
 import mezz.jei.runtime.JeiRuntime;
@@ -81,6 +84,12 @@ public class JeiStarter {
 		RecipeRegistry recipeRegistry = modRegistry.createRecipeRegistry(ingredientRegistry);
 		timer.stop();
 
+		if (Config.getColorSearchMode() != Config.SearchMode.DISABLED) {
+			timer.start("Taking item textures for color search");
+			ColorGetter.prefetchColors(ingredientRegistry.getAllIngredients(VanillaTypes.ITEM), ItemStackHelper.COLOR_COUNT, Config.getColorCacheFile());
+			timer.stop();
+		}
+
 		timer.start("Building ingredient list");
 		NonNullList<IIngredientListElement> ingredientList = IngredientListElementFactory.createBaseList(ingredientRegistry, modIdHelper);
 		timer.stop();
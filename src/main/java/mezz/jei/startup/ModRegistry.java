@@ -28,6 +28,7 @@ import mezz.jei.api.gui.IGuiScreenHandler;
 import mezz.jei.api.ingredients.IIngredientRegistry;
 import mezz.jei.api.ingredients.VanillaTypes;
 import mezz.jei.api.recipe.IIngredientType;
+import mezz.jei.api.recipe.IMainThreadOnly;
 import mezz.jei.api.recipe.IRecipeCategory;
 import mezz.jei.api.recipe.IRecipeCategoryRegistration;
 import mezz.jei.api.recipe.IRecipeHandler;
@@ -149,27 +150,12 @@ public class ModRegistry implements IModRegistry, IRecipeCategoryRegistration {
 		ErrorUtil.checkNotNull(recipeWrapperFactory, "recipeWrapperFactory");
 		ErrorUtil.checkNotNull(recipeCategoryUid, "recipeCategoryUid");
 
-		IRecipeHandler<T> recipeHandler = new IRecipeHandler<T>() {
-			@Override
-			public Class<T> getRecipeClass() {
-				return recipeClass;
-			}
-
-			@Override
-			public String getRecipeCategoryUid(T recipe) {
-				return recipeCategoryUid;
-			}
-
-			@Override
-			public IRecipeWrapper getRecipeWrapper(T recipe) {
-				return recipeWrapperFactory.getRecipeWrapper(recipe);
-			}
-
-			@Override
-			public boolean isRecipeValid(T recipe) {
-				return true;
-			}
-		};
+		IRecipeHandler<T> recipeHandler;
+		if (recipeWrapperFactory instanceof IMainThreadOnly) {
+			recipeHandler = new MainThreadRecipeWrapperFactoryHandler<>(recipeClass, recipeWrapperFactory, recipeCategoryUid);
+		} else {
+			recipeHandler = new RecipeWrapperFactoryHandler<>(recipeClass, recipeWrapperFactory, recipeCategoryUid);
+		}
 
 		if (this.recipeHandlerClasses.contains(recipeCategoryUid, recipeClass)) {
 			// TODO 1.13: throw exception
@@ -334,4 +320,45 @@ public class ModRegistry implements IModRegistry, IRecipeCategoryRegistration {
 		ImmutableTable<Class, String, IRecipeTransferHandler> recipeTransferHandlers = recipeTransferRegistry.getRecipeTransferHandlers();
 		return new RecipeRegistry(recipeCategories, unsortedRecipeHandlers, recipeHandlers, recipeTransferHandlers, unsortedRecipes, recipes, recipeClickableAreas, recipeCatalysts, ingredientRegistry, recipeRegistryPlugins);
 	}
+
+	private static class RecipeWrapperFactoryHandler<T> implements IRecipeHandler<T> {
+		private final Class<T> recipeClass;
+		private final IRecipeWrapperFactory<T> recipeWrapperFactory;
+		private final String recipeCategoryUid;
+
+		public RecipeWrapperFactoryHandler(Class<T> recipeClass, IRecipeWrapperFactory<T> recipeWrapperFactory, String recipeCategoryUid) {
+			this.recipeClass = recipeClass;
+			this.recipeWrapperFactory = recipeWrapperFactory;
+			this.recipeCategoryUid = recipeCategoryUid;
+		}
+
+		@Override
+		public Class<T> getRecipeClass() {
+			return recipeClass;
+		}
+
+		@Override
+		public String getRecipeCategoryUid(T recipe) {
+			return recipeCategoryUid;
+		}
+
+		@Override
+		public IRecipeWrapper getRecipeWrapper(T recipe) {
+			return recipeWrapperFactory.getRecipeWrapper(recipe);
+		}
+
+		@Override
+		public boolean isRecipeValid(T recipe) {
+			return true;
+		}
+	}
+
+	/**
+	 * Passes on the {@link IMainThreadOnly} marker of the recipe wrapper factory.
+	 */
+	private static class MainThreadRecipeWrapperFactoryHandler<T> extends RecipeWrapperFactoryHandler<T> implements IMainThreadOnly {
+		public MainThreadRecipeWrapperFactoryHandler(Class<T> recipeClass, IRecipeWrapperFactory<T> recipeWrapperFactory, String recipeCategoryUid) {
+			super(recipeClass, recipeWrapperFactory, recipeCategoryUid);
+		}
+	}
 }
@@ -29,6 +29,7 @@ import net.minecraft.network.NetworkManager;
 import com.google.common.base.Preconditions;
 import mezz.jei.Internal;
 import mezz.jei.api.IModPlugin;
+import mezz.jei.color.ColorGetter;
 import mezz.jei.config.Config;
 import mezz.jei.config.Constants;
 import mezz.jei.config.KeyBindings;
@@ -188,5 +189,6 @@ public class ProxyCommonClient extends ProxyCommon {
 	@SideOnly(Side.CLIENT)
 	public void handleTextureRemap(TextureStitchEvent.Pre event) {
 		textures = new Textures(textureMap);
+		ColorGetter.onTexturesReloaded();
 	}
 }
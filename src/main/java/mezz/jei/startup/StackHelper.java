@@ -33,6 +33,7 @@ public class StackHelper implements IStackHelper {
 	private final ISubtypeRegistry subtypeRegistry;
 	/**
 	 * Uids are cached during loading to improve startup performance.
+	 * Recipes are wrapped on several threads during loading, so the caches are synchronized.
 	 */
 	private final Map<UidMode, Map<ItemStack, String>> uidCache = new EnumMap<>(UidMode.class);
 	private boolean uidCacheEnabled = true;
@@ -40,7 +41,7 @@ public class StackHelper implements IStackHelper {
 	public StackHelper(ISubtypeRegistry subtypeRegistry) {
 		this.subtypeRegistry = subtypeRegistry;
 		for (UidMode mode : UidMode.values()) {
-			uidCache.put(mode, new IdentityHashMap<>());
+			uidCache.put(mode, Collections.synchronizedMap(new IdentityHashMap<>()));
 		}
 	}
 
@@ -50,7 +51,7 @@ public class StackHelper implements IStackHelper {
 
 	public void disableUidCache() {
 		for (UidMode mode : UidMode.values()) {
-			uidCache.put(mode, new IdentityHashMap<>());
+			uidCache.put(mode, Collections.synchronizedMap(new IdentityHashMap<>()));
 		}
 		uidCacheEnabled = false;
 	}
@@ -0,0 +1,541 @@
+package mezz.jei.suffixtree;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import mezz.jei.collect.IntBitmap;
+
+/**
+ * A compact alternative to {@link GeneralizedSuffixTree} with the same put and search contract.
+ * <p>
+ * All keys are stored back to back in a single char buffer, each one followed by {@link #KEY_TERMINATOR}.
+ * The index is a suffix array over that buffer: the start position of every suffix, sorted lexicographically.
+ * All the suffixes that start with a given word are next to each other in the suffix array,
+ * so a search is two binary searches followed by a scan of the matching range.
+ * <p>
+ * Memory use is a few primitive arrays (roughly 6 bytes per indexed character),
+ * instead of a Node, Edge, label String, edge map and payload list for every branch of the tree.
+ * <p>
+ * Keys that are put after the suffix array has been built are kept in a small pending region at the end of the buffer.
+ * They are searched with a linear scan until there are enough of them to be worth sorting and merging into the suffix array.
+ * <p>
+ * {@link #trimToSize()} also lays out the index of every suffix in a posting array parallel to the suffix array,
+ * so collecting the results of a search is a scan of one slice instead of a key lookup per suffix.
+ */
+public class GeneralizedSuffixArray implements ISearchTree {
+	/**
+	 * Marks the end of each key. It sorts before every other character, so shorter keys sort first.
+	 */
+	private static final char KEY_TERMINATOR = '\0';
+	/**
+	 * Maximum number of pending keys to scan linearly before they are merged into the suffix array.
+	 */
+	private static final int MAX_PENDING_KEYS = 1024;
+
+	private int highestIndex = -1;
+
+	/**
+	 * All keys, each followed by {@link #KEY_TERMINATOR}.
+	 */
+	private char[] text = new char[256];
+	private int textLength;
+
+	/**
+	 * The position in {@link #text} where each key starts, in ascending order.
+	 */
+	private int[] keyStarts = new int[16];
+	/**
+	 * The index that was put with each key.
+	 */
+	private int[] keyValues = new int[16];
+	private int keyCount;
+
+	/**
+	 * Start positions of the suffixes of the first {@link #indexedKeyCount} keys, sorted lexicographically.
+	 */
+	private int[] suffixes = new int[0];
+	/**
+	 * The index that was put with the key of each suffix, in suffix array order.
+	 * Null until {@link #trimToSize()}, after that it is kept up to date by {@link #index()}.
+	 */
+	@Nullable
+	private int[] suffixValues;
+	private int indexedKeyCount;
+	private int indexedTextLength;
+
+	private final IntComparator suffixComparator = new AbstractIntComparator() {
+		@Override
+		public int compare(int position1, int position2) {
+			return compareSuffixes(position1, position2);
+		}
+	};
+
+	/**
+	 * Adds the specified <tt>index</tt> to the index under the given <tt>key</tt>.
+	 * <p>
+	 * Entries must be inserted so that their indexes are in non-decreasing order,
+	 * otherwise an IllegalStateException will be raised.
+	 *
+	 * @param key   the string key that will be added to the index
+	 * @param index the value that will be added to the index
+	 */
+	public void put(String key, int index) throws IllegalStateException {
+		if (index < highestIndex) {
+			throw new IllegalStateException("The input index must not be less than any of the previously inserted ones. Got " + index + ", expected at least " + highestIndex);
+		} else {
+			highestIndex = index;
+		}
+
+		if (key.isEmpty()) {
+			// an empty key can never be found, there is nothing to store
+			return;
+		}
+
+		ensureTextCapacity(textLength + key.length() + 1);
+		if (keyCount == keyStarts.length) {
+			int newLength = keyStarts.length * 2;
+			keyStarts = Arrays.copyOf(keyStarts, newLength);
+			keyValues = Arrays.copyOf(keyValues, newLength);
+		}
+
+		keyStarts[keyCount] = textLength;
+		keyValues[keyCount] = index;
+		keyCount++;
+
+		key.getChars(0, key.length(), text, textLength);
+		textLength += key.length();
+		text[textLength++] = KEY_TERMINATOR;
+	}
+
+	/**
+	 * Searches for the given word within the index.
+	 * <p>
+	 * Returns all the indexes for which the key contains the <tt>word</tt> that was
+	 * supplied as input.
+	 *
+	 * @param word the key to search for
+	 * @return the collection of indexes associated with the input <tt>word</tt>
+	 */
+	@Override
+	public IntBitmap search(String word) {
+		return snapshot().search(word);
+	}
+
+	@Override
+	public IntBitmap search(String word, IntBitmap candidates) {
+		return snapshot().search(word, candidates);
+	}
+
+	@Override
+	public int estimateCount(String word) {
+		return snapshot().estimateCount(word);
+	}
+
+	/**
+	 * Returns a read-only view of everything that has been put so far.
+	 * <p>
+	 * Later puts only write past the end of the view, and indexing replaces arrays instead of changing them,
+	 * so the view never changes and can be searched from another thread.
+	 */
+	public Snapshot snapshot() {
+		if (keyCount - indexedKeyCount > MAX_PENDING_KEYS) {
+			index();
+		}
+		return new Snapshot(text, textLength, keyStarts, keyValues, keyCount, suffixes, suffixValues, indexedKeyCount);
+	}
+
+	public int getHighestIndex() {
+		return highestIndex;
+	}
+
+	/**
+	 * Returns an independent copy, so that keys can be put into it on another thread without changing this one.
+	 */
+	public GeneralizedSuffixArray copy() {
+		GeneralizedSuffixArray copy = new GeneralizedSuffixArray();
+		copy.highestIndex = highestIndex;
+		copy.text = Arrays.copyOf(text, Math.max(textLength, 1));
+		copy.textLength = textLength;
+		copy.keyStarts = Arrays.copyOf(keyStarts, Math.max(keyCount, 1));
+		copy.keyValues = Arrays.copyOf(keyValues, Math.max(keyCount, 1));
+		copy.keyCount = keyCount;
+		// indexing replaces the suffix array instead of changing it, so it can be shared
+		copy.suffixes = suffixes;
+		copy.suffixValues = suffixValues;
+		copy.indexedKeyCount = indexedKeyCount;
+		copy.indexedTextLength = indexedTextLength;
+		return copy;
+	}
+
+	/**
+	 * Indexes all pending keys, builds the posting array and releases the spare capacity of the buffers.
+	 */
+	public void trimToSize() {
+		index();
+		if (suffixValues == null) {
+			suffixValues = createSuffixValues();
+		}
+		// keep room for the next put, the key arrays grow by doubling
+		text = Arrays.copyOf(text, Math.max(textLength, 1));
+		keyStarts = Arrays.copyOf(keyStarts, Math.max(keyCount, 1));
+		keyValues = Arrays.copyOf(keyValues, Math.max(keyCount, 1));
+	}
+
+	private int[] createSuffixValues() {
+		final int[] valueAtPosition = new int[textLength];
+		for (int key = 0; key < keyCount; key++) {
+			final int end = key + 1 < keyCount ? keyStarts[key + 1] : textLength;
+			Arrays.fill(valueAtPosition, keyStarts[key], end, keyValues[key]);
+		}
+		final int[] values = new int[suffixes.length];
+		for (int i = 0; i < suffixes.length; i++) {
+			values[i] = valueAtPosition[suffixes[i]];
+		}
+		return values;
+	}
+
+	/**
+	 * Sorts the suffixes of all the pending keys and merges them into the suffix array.
+	 * Searches do this automatically when there are too many pending keys,
+	 * calling it after a bulk put moves that cost out of the first search.
+	 */
+	public void index() {
+		if (indexedKeyCount == keyCount) {
+			return;
+		}
+
+		final int newSuffixCount = (textLength - indexedTextLength) - (keyCount - indexedKeyCount);
+		final int[] newSuffixes = new int[newSuffixCount];
+		int count = 0;
+		for (int i = indexedTextLength; i < textLength; i++) {
+			if (text[i] != KEY_TERMINATOR) {
+				newSuffixes[count++] = i;
+			}
+		}
+		IntArrays.quickSort(newSuffixes, suffixComparator);
+
+		final int[] merged = new int[suffixes.length + newSuffixes.length];
+		final int[] values = suffixValues;
+		final int[] mergedValues = values == null ? null : new int[merged.length];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < suffixes.length || j < newSuffixes.length) {
+			if (j == newSuffixes.length || (i < suffixes.length && compareSuffixes(suffixes[i], newSuffixes[j]) <= 0)) {
+				if (mergedValues != null) {
+					mergedValues[k] = values[i];
+				}
+				merged[k++] = suffixes[i++];
+			} else {
+				if (mergedValues != null) {
+					mergedValues[k] = keyValues[findKey(keyStarts, keyCount, newSuffixes[j])];
+				}
+				merged[k++] = newSuffixes[j++];
+			}
+		}
+
+		suffixes = merged;
+		suffixValues = mergedValues;
+		indexedKeyCount = keyCount;
+		indexedTextLength = textLength;
+	}
+
+	/**
+	 * Writes the whole index to the channel, to be loaded again with {@link #read(ByteBuffer)}.
+	 * Pending keys are indexed first.
+	 */
+	public void write(WritableByteChannel channel) throws IOException {
+		index();
+
+		ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES);
+		header.putInt(highestIndex)
+			.putInt(textLength)
+			.putInt(keyCount)
+			.putInt(suffixes.length);
+		header.flip();
+		writeFully(channel, header);
+
+		ByteBuffer textBytes = ByteBuffer.allocate(textLength * Character.BYTES);
+		textBytes.asCharBuffer().put(text, 0, textLength);
+		writeFully(channel, textBytes);
+
+		writeFully(channel, toBytes(keyStarts, keyCount));
+		writeFully(channel, toBytes(keyValues, keyCount));
+		writeFully(channel, toBytes(suffixes, suffixes.length));
+	}
+
+	/**
+	 * Reads an index that was written with {@link #write(WritableByteChannel)},
+	 * starting at the buffer's position and leaving the position after the index.
+	 */
+	public static GeneralizedSuffixArray read(ByteBuffer buffer) throws IOException {
+		final int highestIndex = buffer.getInt();
+		final int textLength = buffer.getInt();
+		final int keyCount = buffer.getInt();
+		final int suffixCount = buffer.getInt();
+		if (textLength < 0 || keyCount < 0 || suffixCount < 0 || suffixCount > textLength) {
+			throw new IOException("Invalid suffix array header");
+		}
+
+		GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+		array.highestIndex = highestIndex;
+
+		array.text = new char[Math.max(textLength, 1)];
+		buffer.asCharBuffer().get(array.text, 0, textLength);
+		buffer.position(buffer.position() + textLength * Character.BYTES);
+		array.textLength = textLength;
+
+		array.keyStarts = readInts(buffer, keyCount);
+		array.keyValues = readInts(buffer, keyCount);
+		array.keyCount = keyCount;
+
+		array.suffixes = new int[suffixCount];
+		buffer.asIntBuffer().get(array.suffixes);
+		buffer.position(buffer.position() + suffixCount * Integer.BYTES);
+		array.indexedKeyCount = keyCount;
+		array.indexedTextLength = textLength;
+		return array;
+	}
+
+	private static ByteBuffer toBytes(int[] values, int length) {
+		ByteBuffer bytes = ByteBuffer.allocate(length * Integer.BYTES);
+		bytes.asIntBuffer().put(values, 0, length);
+		return bytes;
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int length) {
+		// keep room for the next put
+		int[] values = new int[Math.max(length, 1)];
+		buffer.asIntBuffer().get(values, 0, length);
+		buffer.position(buffer.position() + length * Integer.BYTES);
+		return values;
+	}
+
+	private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private int compareSuffixes(int position1, int position2) {
+		while (true) {
+			char c1 = text[position1];
+			char c2 = text[position2];
+			if (c1 != c2) {
+				return c1 - c2;
+			} else if (c1 == KEY_TERMINATOR) {
+				return 0;
+			}
+			position1++;
+			position2++;
+		}
+	}
+
+	/**
+	 * Returns the key that contains the given text position.
+	 */
+	private static int findKey(int[] keyStarts, int keyCount, int position) {
+		int key = Arrays.binarySearch(keyStarts, 0, keyCount, position);
+		if (key < 0) {
+			key = -key - 2;
+		}
+		return key;
+	}
+
+	private void ensureTextCapacity(int capacity) {
+		if (capacity > text.length) {
+			int newLength = Math.max(capacity, text.length * 2);
+			text = Arrays.copyOf(text, newLength);
+		}
+	}
+
+	/**
+	 * A view of the suffix array at one point in time, see {@link #snapshot()}.
+	 */
+	public static final class Snapshot implements ISearchTree {
+		private final char[] text;
+		private final int textLength;
+		private final int[] keyStarts;
+		private final int[] keyValues;
+		private final int keyCount;
+		private final int[] suffixes;
+		@Nullable
+		private final int[] suffixValues;
+		private final int indexedKeyCount;
+
+		private Snapshot(char[] text, int textLength, int[] keyStarts, int[] keyValues, int keyCount, int[] suffixes, @Nullable int[] suffixValues, int indexedKeyCount) {
+			this.text = text;
+			this.textLength = textLength;
+			this.keyStarts = keyStarts;
+			this.keyValues = keyValues;
+			this.keyCount = keyCount;
+			this.suffixes = suffixes;
+			this.suffixValues = suffixValues;
+			this.indexedKeyCount = indexedKeyCount;
+		}
+
+		@Override
+		public IntBitmap search(String word) {
+			if (word.isEmpty()) {
+				return IntBitmap.EMPTY;
+			}
+
+			final int start = lowerBound(word);
+			final int end = upperBound(word, start);
+			return search(word, start, end);
+		}
+
+		/**
+		 * Returns the candidates whose keys contain the given word.
+		 * <p>
+		 * When there are fewer candidates than suffixes starting with the word,
+		 * the candidates' keys are checked directly instead of collecting the whole search result.
+		 */
+		@Override
+		public IntBitmap search(String word, IntBitmap candidates) {
+			if (word.isEmpty() || candidates.isEmpty()) {
+				return IntBitmap.EMPTY;
+			}
+
+			final int start = lowerBound(word);
+			final int end = upperBound(word, start);
+			if (candidates.cardinality() >= end - start) {
+				return search(word, start, end).and(candidates);
+			}
+
+			IntBitmap.Builder ret = new IntBitmap.Builder(candidates.cardinality());
+			IntIterator iterator = candidates.iterator();
+			while (iterator.hasNext()) {
+				int value = iterator.nextInt();
+				for (int key = getFirstKeyFor(value); key < keyCount && keyValues[key] == value; key++) {
+					if (keyContains(key, word)) {
+						ret.add(value);
+						break;
+					}
+				}
+			}
+			return ret.build();
+		}
+
+		/**
+		 * Counts the suffixes starting with the word, plus the keys that are not indexed yet.
+		 * A key containing the word more than once is counted for each time, so this can be more than the search returns.
+		 */
+		@Override
+		public int estimateCount(String word) {
+			if (word.isEmpty()) {
+				return 0;
+			}
+			final int start = lowerBound(word);
+			final int end = upperBound(word, start);
+			return (end - start) + (keyCount - indexedKeyCount);
+		}
+
+		private IntBitmap search(String word, int start, int end) {
+			IntBitmap.Builder ret = new IntBitmap.Builder(end - start);
+			if (suffixValues != null) {
+				for (int i = start; i < end; i++) {
+					ret.add(suffixValues[i]);
+				}
+			} else {
+				for (int i = start; i < end; i++) {
+					int key = findKey(keyStarts, keyCount, suffixes[i]);
+					ret.add(keyValues[key]);
+				}
+			}
+
+			for (int key = indexedKeyCount; key < keyCount; key++) {
+				if (keyContains(key, word)) {
+					ret.add(keyValues[key]);
+				}
+			}
+
+			return ret.build();
+		}
+
+		/**
+		 * Returns the position in the suffix array of the first suffix that is not less than the given word.
+		 */
+		private int lowerBound(String word) {
+			int low = 0;
+			int high = suffixes.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (comparePrefix(suffixes[mid], word) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Returns the position in the suffix array after the last suffix that starts with the given word.
+		 */
+		private int upperBound(String word, int from) {
+			int low = from;
+			int high = suffixes.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (comparePrefix(suffixes[mid], word) <= 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Compares the suffix starting at the given position with the word.
+		 * Returns 0 if the suffix starts with the word.
+		 */
+		private int comparePrefix(int position, String word) {
+			for (int i = 0; i < word.length(); i++) {
+				char c = text[position + i];
+				char w = word.charAt(i);
+				if (c != w) {
+					return c - w;
+				}
+			}
+			return 0;
+		}
+
+		private boolean keyContains(int key, String word) {
+			final int start = keyStarts[key];
+			final int end = (key + 1 < keyCount ? keyStarts[key + 1] : textLength) - 1;
+			final int last = end - word.length();
+			for (int position = start; position <= last; position++) {
+				if (comparePrefix(position, word) == 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the first key that was put with the given index, or the key after it if there is none.
+		 */
+		private int getFirstKeyFor(int value) {
+			int low = 0;
+			int high = keyCount;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (keyValues[mid] < value) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+}
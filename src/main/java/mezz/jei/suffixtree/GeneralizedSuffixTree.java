@@ -21,8 +21,10 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Objects;
 
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import mezz.jei.collect.IntBitmap;
 
 /**
  * A Generalized Suffix Tree, based on the Ukkonen's paper "On-line construction of suffix trees"
@@ -85,15 +87,19 @@ public class GeneralizedSuffixTree implements ISearchTree {
 	 * @return the collection of indexes associated with the input <tt>word</tt>
 	 */
 	@Override
-	public IntSet search(String word) {
+	public IntBitmap search(String word) {
 		Node tmpNode = searchNode(word);
 		if (tmpNode == null) {
-			return new IntOpenHashSet();
+			return IntBitmap.EMPTY;
 		}
 
 		IntSet ret = new IntOpenHashSet(1000);
 		tmpNode.getData(ret);
-		return ret;
+		IntBitmap.Builder builder = new IntBitmap.Builder(ret.size());
+		for (IntIterator iterator = ret.iterator(); iterator.hasNext(); ) {
+			builder.add(iterator.nextInt());
+		}
+		return builder.build();
 	}
 
 	/**
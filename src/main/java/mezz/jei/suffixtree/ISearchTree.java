@@ -1,7 +1,23 @@
 package mezz.jei.suffixtree;
 
-import it.unimi.dsi.fastutil.ints.IntSet;
+import mezz.jei.collect.IntBitmap;
 
 public interface ISearchTree {
-	IntSet search(String word);
+	IntBitmap search(String word);
+
+	/**
+	 * Returns the candidates that {@link #search(String)} would return for the word.
+	 * Implementations can override this to check only the candidates when there are few of them.
+	 */
+	default IntBitmap search(String word, IntBitmap candidates) {
+		return search(word).and(candidates);
+	}
+
+	/**
+	 * Returns roughly how many indexes {@link #search(String)} would return for the word, for deciding which words to search first.
+	 * Implementations can override this with something cheaper than searching, it does not need to be exact.
+	 */
+	default int estimateCount(String word) {
+		return search(word).cardinality();
+	}
 }
@@ -36,7 +36,7 @@ public final class Translator {
 	}
 
 	@SuppressWarnings("ConstantConditions")
-	private static Locale getLocale() {
+	public static Locale getLocale() {
 		Minecraft minecraft = Minecraft.getMinecraft();
 		if (minecraft != null) {
 			LanguageManager languageManager = minecraft.getLanguageManager();
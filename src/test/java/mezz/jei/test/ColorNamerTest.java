@@ -0,0 +1,81 @@
+package mezz.jei.test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableMap;
+import mezz.jei.color.ColorGetter;
+import mezz.jei.color.ColorNamer;
+import mezz.jei.color.ColorUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColorNamerTest {
+	private static final int STEP = 3;
+
+	@Test
+	public void testDefaultColorsMatchClosestColor() {
+		ImmutableMap<Color, String> colorNames = createColorNames(ColorGetter.getColorDefaults());
+		assertMatchesClosestColor(colorNames);
+	}
+
+	@Test
+	public void testRandomColorsMatchClosestColor() {
+		Random random = new Random(1234);
+		ImmutableMap.Builder<Color, String> builder = ImmutableMap.builder();
+		for (int i = 0; i < 100; i++) {
+			builder.put(new Color(random.nextInt(0x1000000)), "Color" + i);
+		}
+		assertMatchesClosestColor(builder.build());
+	}
+
+	@Test
+	public void testNoColors() {
+		ColorNamer colorNamer = new ColorNamer(ImmutableMap.of());
+		Collection<String> names = colorNamer.getColorNames(Collections.singletonList(Color.RED), false);
+		Assert.assertTrue(names.isEmpty());
+	}
+
+	private static void assertMatchesClosestColor(ImmutableMap<Color, String> colorNames) {
+		ColorNamer colorNamer = new ColorNamer(colorNames);
+		for (int red = 0; red < 256; red += STEP) {
+			for (int green = 0; green < 256; green += STEP) {
+				for (int blue = 0; blue < 256; blue += STEP) {
+					Color color = new Color(red, green, blue);
+					String expected = getClosestColorName(colorNames, color);
+					Collection<String> actual = colorNamer.getColorNames(Collections.singletonList(color), false);
+					Assert.assertEquals("Name of " + color, Collections.singletonList(expected), new ArrayList<>(actual));
+				}
+			}
+		}
+	}
+
+	/**
+	 * The scan over every named color that {@link ColorNamer} used before it had a lookup table.
+	 */
+	private static String getClosestColorName(ImmutableMap<Color, String> colorNames, Color color) {
+		String closestColorName = null;
+		double closestColorDistance = Double.MAX_VALUE;
+		for (Map.Entry<Color, String> entry : colorNames.entrySet()) {
+			final double distance = ColorUtil.slowPerceptualColorDistanceSquared(entry.getKey(), color);
+			if (distance < closestColorDistance) {
+				closestColorDistance = distance;
+				closestColorName = entry.getValue();
+			}
+		}
+		return closestColorName;
+	}
+
+	private static ImmutableMap<Color, String> createColorNames(String[] entries) {
+		ImmutableMap.Builder<Color, String> builder = ImmutableMap.builder();
+		for (String entry : entries) {
+			String[] values = entry.split(":");
+			builder.put(new Color(Integer.decode("0x" + values[1])), values[0]);
+		}
+		return builder.build();
+	}
+}
@@ -0,0 +1,96 @@
+package mezz.jei.test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import mezz.jei.color.ColorQuantizer;
+import mezz.jei.color.ColorThief;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColorQuantizerTest {
+	private static final int SPRITE_COUNT = 2000;
+	private static final int[] COLOR_COUNTS = {1, 2, 3, 5, 8, 16};
+
+	@Test
+	public void testPalettesMatchColorThief() {
+		Random random = new Random(1234);
+		for (int i = 0; i < SPRITE_COUNT; i++) {
+			Sprite sprite = createSprite(random);
+			for (int colorCount : COLOR_COUNTS) {
+				int[] expected = getColorThiefPalette(sprite, colorCount);
+				int[] actual = ColorQuantizer.getPalette(sprite.frames, sprite.width * sprite.height, colorCount);
+				Assert.assertArrayEquals("Palette of sprite " + i + " with " + colorCount + " colors", expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void testTransparentSprite() {
+		int[] frame = new int[16 * 16];
+		Assert.assertEquals(0, ColorQuantizer.getPalette(new int[][]{frame}, frame.length, 2).length);
+	}
+
+	private static int[] getColorThiefPalette(Sprite sprite, int colorCount) {
+		BufferedImage bufferedImage = new BufferedImage(sprite.width, sprite.height * sprite.frames.length, BufferedImage.TYPE_4BYTE_ABGR);
+		for (int i = 0; i < sprite.frames.length; i++) {
+			bufferedImage.setRGB(0, i * sprite.height, sprite.width, sprite.height, sprite.frames[i], 0, sprite.width);
+		}
+		int[][] palette = ColorThief.getPalette(bufferedImage, colorCount);
+		if (palette == null) {
+			return new int[0];
+		}
+		int[] flatPalette = new int[palette.length * 3];
+		for (int i = 0; i < palette.length; i++) {
+			System.arraycopy(palette[i], 0, flatPalette, i * 3, 3);
+		}
+		return flatPalette;
+	}
+
+	/**
+	 * Sprites like the ones in texture packs: mostly a few shades of some base colors, with transparent areas,
+	 * odd sizes and sometimes several animation frames.
+	 */
+	private static Sprite createSprite(Random random) {
+		int width = random.nextInt(4) == 0 ? 1 + random.nextInt(32) : 16;
+		int height = random.nextInt(4) == 0 ? 1 + random.nextInt(32) : 16;
+		int frameCount = random.nextInt(5) == 0 ? 1 + random.nextInt(8) : 1;
+		int baseColorCount = 1 + random.nextInt(6);
+		int[] baseColors = new int[baseColorCount];
+		for (int i = 0; i < baseColorCount; i++) {
+			baseColors[i] = random.nextInt(0x1000000);
+		}
+		int shadeRange = random.nextInt(3) == 0 ? 256 : 1 + random.nextInt(48);
+		int transparency = random.nextInt(3);
+
+		int[][] frames = new int[frameCount][width * height];
+		for (int[] frame : frames) {
+			for (int i = 0; i < frame.length; i++) {
+				int alpha = random.nextInt(4) < transparency ? random.nextInt(256) : 255;
+				int baseColor = baseColors[random.nextInt(baseColorCount)];
+				int red = shade(baseColor >> 16 & 255, shadeRange, random);
+				int green = shade(baseColor >> 8 & 255, shadeRange, random);
+				int blue = shade(baseColor & 255, shadeRange, random);
+				frame[i] = alpha << 24 | red << 16 | green << 8 | blue;
+			}
+		}
+		return new Sprite(width, height, frames);
+	}
+
+	private static int shade(int value, int range, Random random) {
+		int shaded = value + random.nextInt(range) - range / 2;
+		return Math.max(0, Math.min(255, shaded));
+	}
+
+	private static class Sprite {
+		private final int width;
+		private final int height;
+		private final int[][] frames;
+
+		public Sprite(int width, int height, int[][] frames) {
+			this.width = width;
+			this.height = height;
+			this.frames = frames;
+		}
+	}
+}
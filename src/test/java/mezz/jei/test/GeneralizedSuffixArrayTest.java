@@ -0,0 +1,161 @@
+package mezz.jei.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import mezz.jei.collect.IntBitmap;
+import mezz.jei.suffixtree.GeneralizedSuffixArray;
+import mezz.jei.suffixtree.GeneralizedSuffixTree;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GeneralizedSuffixArrayTest {
+	private static final String[] WORDS = {
+		"iron", "gold", "copper", "tin", "ingot", "nugget", "plate", "gear", "dust", "block",
+		"ore", "wire", "rod", "thermal", "mekanism", "energy", "cell", "fluid", "tank", "pipe"
+	};
+
+	@Test
+	public void testSearchMatchesSuffixTree() {
+		List<String> corpus = createCorpus(5000, new Random(1234));
+		GeneralizedSuffixTree tree = new GeneralizedSuffixTree();
+		GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+		for (int i = 0; i < corpus.size(); i++) {
+			tree.put(corpus.get(i), i);
+			array.put(corpus.get(i), i);
+		}
+
+		assertSameResults(tree, array, "i");
+		assertSameResults(tree, array, "ingot");
+		assertSameResults(tree, array, "on i");
+		assertSameResults(tree, array, "42");
+		assertSameResults(tree, array, "not in the corpus");
+
+		// keys put after the array has been indexed are found as well
+		array.index();
+		tree.put("late addition", corpus.size());
+		array.put("late addition", corpus.size());
+		assertSameResults(tree, array, "addition");
+		assertSameResults(tree, array, "a");
+	}
+
+	@Test
+	public void testTrimmedSearchMatchesSuffixTree() {
+		List<String> corpus = createCorpus(5000, new Random(2468));
+		GeneralizedSuffixTree tree = new GeneralizedSuffixTree();
+		GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+		for (int i = 0; i < corpus.size(); i++) {
+			tree.put(corpus.get(i), i);
+			array.put(corpus.get(i), i);
+		}
+		array.trimToSize();
+
+		assertSameResults(tree, array, "i");
+		assertSameResults(tree, array, "gear");
+		assertSameResults(tree, array, "123");
+
+		// the posting array is kept up to date when more keys are indexed
+		for (int i = 0; i < 2000; i++) {
+			String key = "late " + corpus.get(i);
+			tree.put(key, corpus.size() + i);
+			array.put(key, corpus.size() + i);
+		}
+		array.index();
+		assertSameResults(tree, array, "late");
+		assertSameResults(tree, array, "e");
+		assertSameResults(tree, array, "tin");
+	}
+
+	@Test
+	public void testPutAfterTrimmingEmptyArray() {
+		GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+		array.put("", 0);
+		array.trimToSize();
+
+		array.put("iron ingot", 1);
+		array.put("gold ingot", 2);
+		Assert.assertEquals(IntBitmap.of(1, 2), array.search("ingot"));
+	}
+
+	@Test
+	public void testMultipleKeysPerIndex() {
+		GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+		array.put("first", 0);
+		array.put("second", 0);
+		array.put("", 1);
+		array.put("third", 2);
+
+		Assert.assertEquals(2, array.getHighestIndex());
+		Assert.assertTrue(array.search("cond").contains(0));
+		Assert.assertTrue(array.search("ird").contains(2));
+		Assert.assertEquals(2, array.search("ir").cardinality());
+		Assert.assertTrue(array.search("firstsecond").isEmpty());
+	}
+
+	@Test
+	public void testCopyIsIndependent() {
+		GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+		array.put("iron ingot", 0);
+		array.index();
+		array.put("iron nugget", 1);
+
+		GeneralizedSuffixArray copy = array.copy();
+		copy.put("iron plate", 2);
+		copy.index();
+		array.put("gold ingot", 2);
+
+		Assert.assertEquals(IntBitmap.of(0, 1, 2), copy.search("iron"));
+		Assert.assertTrue(copy.search("gold").isEmpty());
+		Assert.assertEquals(IntBitmap.of(0, 1), array.search("iron"));
+		Assert.assertEquals(IntBitmap.of(2), array.search("gold"));
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		List<String> corpus = createCorpus(1000, new Random(4321));
+		GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+		for (int i = 0; i < corpus.size(); i++) {
+			array.put(corpus.get(i), i);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		array.write(Channels.newChannel(bytes));
+		ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+		GeneralizedSuffixArray read = GeneralizedSuffixArray.read(buffer);
+
+		Assert.assertFalse(buffer.hasRemaining());
+		Assert.assertEquals(array.getHighestIndex(), read.getHighestIndex());
+		for (String word : new String[]{"i", "ingot", "on i", "42", "not in the corpus"}) {
+			Assert.assertEquals(array.search(word), read.search(word));
+		}
+
+		// the read array can still be added to
+		read.put("late addition", corpus.size());
+		Assert.assertEquals(IntBitmap.of(corpus.size()), read.search("addition"));
+	}
+
+	private static void assertSameResults(GeneralizedSuffixTree tree, GeneralizedSuffixArray array, String word) {
+		IntBitmap expected = tree.search(word);
+		IntBitmap actual = array.search(word);
+		Assert.assertEquals("Results differ for \"" + word + "\"", expected, actual);
+	}
+
+	private static List<String> createCorpus(int size, Random random) {
+		List<String> corpus = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			StringBuilder name = new StringBuilder();
+			int wordCount = 2 + random.nextInt(3);
+			for (int w = 0; w < wordCount; w++) {
+				name.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			}
+			name.append(i);
+			corpus.add(name.toString());
+		}
+		return corpus;
+	}
+}
@@ -0,0 +1,89 @@
+package mezz.jei.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import mezz.jei.api.recipe.IRecipeWrapper;
+import mezz.jei.recipes.HiddenRecipes;
+import mezz.jei.test.lib.TestIngredient;
+import mezz.jei.test.lib.TestRecipeWrapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HiddenRecipesTest {
+	@Test
+	public void testNothingHiddenIsNotCopied() {
+		List<IRecipeWrapper> categoryRecipes = createRecipes(10);
+		HiddenRecipes hiddenRecipes = new HiddenRecipes(categoryRecipes);
+		IRecipeWrapper recipe = categoryRecipes.get(3);
+		hiddenRecipes.hide(recipe);
+		hiddenRecipes.unhide(recipe);
+
+		Assert.assertTrue(hiddenRecipes.isEmpty());
+		List<IRecipeWrapper> visibleRecipes = hiddenRecipes.getVisibleCategoryRecipes();
+		Assert.assertEquals(categoryRecipes, visibleRecipes);
+		// the view follows recipes added to the category
+		categoryRecipes.add(createRecipe(10));
+		Assert.assertEquals(categoryRecipes, visibleRecipes);
+		Assert.assertSame(categoryRecipes, hiddenRecipes.getVisibleRecipes(categoryRecipes));
+	}
+
+	/**
+	 * Compares with removing an identity set of hidden recipes from a copy, the way the recipe registry filtered them before.
+	 */
+	@Test
+	public void testVisibleRecipes() {
+		Random random = new Random(1234);
+		List<IRecipeWrapper> allRecipes = createRecipes(500);
+		List<IRecipeWrapper> categoryRecipes = new ArrayList<>();
+		HiddenRecipes hiddenRecipes = new HiddenRecipes(categoryRecipes);
+		Set<IRecipeWrapper> expectedHidden = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		for (int i = 0; i < 2000; i++) {
+			IRecipeWrapper recipe = allRecipes.get(random.nextInt(allRecipes.size()));
+			switch (random.nextInt(4)) {
+				case 0:
+					// recipes can be in a category more than once, and be hidden before they are added
+					categoryRecipes.add(recipe);
+					break;
+				case 1:
+				case 2:
+					hiddenRecipes.hide(recipe);
+					expectedHidden.add(recipe);
+					break;
+				default:
+					hiddenRecipes.unhide(recipe);
+					expectedHidden.remove(recipe);
+					break;
+			}
+
+			List<IRecipeWrapper> expected = new ArrayList<>(categoryRecipes);
+			expected.removeAll(expectedHidden);
+			Assert.assertEquals(expected, hiddenRecipes.getVisibleCategoryRecipes());
+
+			List<IRecipeWrapper> otherRecipes = allRecipes.subList(0, 100);
+			List<IRecipeWrapper> expectedOther = new ArrayList<>(otherRecipes);
+			expectedOther.removeAll(expectedHidden);
+			Assert.assertEquals(expectedOther, hiddenRecipes.getVisibleRecipes(otherRecipes));
+
+			Assert.assertEquals(expectedHidden.contains(recipe), hiddenRecipes.contains(recipe));
+			Assert.assertEquals(expectedHidden.isEmpty(), hiddenRecipes.isEmpty());
+		}
+	}
+
+	private static List<IRecipeWrapper> createRecipes(int count) {
+		List<IRecipeWrapper> recipes = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			recipes.add(createRecipe(i));
+		}
+		return recipes;
+	}
+
+	private static IRecipeWrapper createRecipe(int number) {
+		return new TestRecipeWrapper(Collections.singletonList(new TestIngredient(number)), Collections.emptyList());
+	}
+}
@@ -1,5 +1,7 @@
 package mezz.jei.test;
 
+import mezz.jei.api.ingredients.IIngredientHelper;
+import mezz.jei.api.ingredients.IIngredientRenderer;
 import mezz.jei.config.Config;
 import mezz.jei.config.IngredientBlacklistType;
 import mezz.jei.gui.GuiHelper;
@@ -9,6 +11,8 @@ import mezz.jei.gui.textures.Textures;
 import mezz.jei.ingredients.IngredientBlacklist;
 import mezz.jei.ingredients.IngredientBlacklistInternal;
 import mezz.jei.ingredients.IngredientFilter;
+import mezz.jei.ingredients.IngredientListElement;
+import mezz.jei.ingredients.IngredientListElementComparator;
 import mezz.jei.ingredients.IngredientListElementFactory;
 import mezz.jei.ingredients.IngredientRegistry;
 import mezz.jei.runtime.JeiHelpers;
@@ -28,6 +32,7 @@ import org.junit.Test;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class IngredientFilterTest {
@@ -159,6 +164,170 @@ public class IngredientFilterTest {
 		Assert.assertEquals(TestPlugin.BASE_INGREDIENT_COUNT - 1, ingredientList.size());
 	}
 
+	@Test
+	public void testRefiningFilter() {
+		Assert.assertNotNull(ingredientFilter);
+		Assert.assertNotNull(baseList);
+
+		ingredientFilter.addIngredients(baseList);
+		addIngredients(ingredientFilter);
+
+		try {
+			// typed one character at a time, so that each filter narrows the previous one
+			String filterText = "display testingredient#1";
+			for (int i = 1; i <= filterText.length(); i++) {
+				ingredientFilter.setFilterText(filterText.substring(0, i));
+				ingredientFilter.getIngredientList();
+			}
+			Assert.assertEquals(1, ingredientFilter.getIngredientList().size());
+
+			ingredientFilter.setFilterText(filterText + " -\"testingredient#1\"");
+			Assert.assertEquals(0, ingredientFilter.getIngredientList().size());
+
+			ingredientFilter.setFilterText("display -\"testingredient#1\"");
+			Assert.assertEquals(TestPlugin.BASE_INGREDIENT_COUNT + EXTRA_INGREDIENT_COUNT - 1, ingredientFilter.getIngredientList().size());
+		} finally {
+			ingredientFilter.setFilterText("");
+		}
+	}
+
+	@Test
+	public void testFilterExpressions() {
+		Assert.assertNotNull(ingredientFilter);
+		Assert.assertNotNull(baseList);
+
+		ingredientFilter.addIngredients(baseList);
+		addIngredients(ingredientFilter);
+
+		try {
+			ingredientFilter.setFilterText("testingredient#1|testingredient#2");
+			Assert.assertEquals(2, ingredientFilter.getIngredientList().size());
+
+			// the negative term is written first, but only checked against what the others match
+			ingredientFilter.setFilterText("-testingredient#1 display testingredient");
+			Assert.assertEquals(TestPlugin.BASE_INGREDIENT_COUNT + EXTRA_INGREDIENT_COUNT - 1, ingredientFilter.getIngredientList().size());
+
+			ingredientFilter.setFilterText("-testingredient#1 display testingredient|testingredient#1");
+			Assert.assertEquals(TestPlugin.BASE_INGREDIENT_COUNT + EXTRA_INGREDIENT_COUNT, ingredientFilter.getIngredientList().size());
+
+			ingredientFilter.setFilterText("testingredient#3 -display");
+			Assert.assertEquals(0, ingredientFilter.getIngredientList().size());
+		} finally {
+			ingredientFilter.setFilterText("");
+		}
+	}
+
+	@Test
+	public void testRuntimeIngredientsInDisplayOrder() {
+		Assert.assertNotNull(ingredientFilter);
+		Assert.assertNotNull(ingredientRegistry);
+		Assert.assertNotNull(modIdHelper);
+		Assert.assertNotNull(baseList);
+
+		ingredientFilter.addIngredients(baseList);
+
+		IIngredientHelper<TestIngredient> ingredientHelper = ingredientRegistry.getIngredientHelper(TestIngredient.TYPE);
+		IIngredientRenderer<TestIngredient> ingredientRenderer = ingredientRegistry.getIngredientRenderer(TestIngredient.TYPE);
+		// added backwards, so each one sorts before the ones added before it
+		for (int i = TestPlugin.BASE_INGREDIENT_COUNT + EXTRA_INGREDIENT_COUNT - 1; i >= TestPlugin.BASE_INGREDIENT_COUNT; i--) {
+			IIngredientListElement<TestIngredient> element = IngredientListElement.create(new TestIngredient(i), ingredientHelper, ingredientRenderer, modIdHelper, i);
+			Assert.assertNotNull(element);
+			ingredientFilter.addIngredient(element);
+		}
+
+		List<IIngredientListElement> ingredientList = ingredientFilter.getIngredientList();
+		List<IIngredientListElement> sortedList = new ArrayList<>(ingredientList);
+		sortedList.sort(IngredientListElementComparator.INSTANCE);
+		Assert.assertEquals(TestPlugin.BASE_INGREDIENT_COUNT + EXTRA_INGREDIENT_COUNT, ingredientList.size());
+		Assert.assertEquals(sortedList, ingredientList);
+		int previousNumber = -1;
+		for (IIngredientListElement element : ingredientList) {
+			int number = ((TestIngredient) element.getIngredient()).getNumber();
+			if (number >= TestPlugin.BASE_INGREDIENT_COUNT) {
+				Assert.assertTrue("Runtime ingredients are out of order", number > previousNumber);
+				previousNumber = number;
+			}
+		}
+	}
+
+	@Test
+	public void testPagedIngredients() {
+		Assert.assertNotNull(ingredientFilter);
+		Assert.assertNotNull(baseList);
+
+		ingredientFilter.addIngredients(baseList);
+		addIngredients(ingredientFilter);
+
+		List<IIngredientListElement> ingredientList = ingredientFilter.getIngredientList();
+		Assert.assertEquals(ingredientList.size(), ingredientFilter.size());
+		Assert.assertEquals(ingredientList.subList(0, 3), ingredientFilter.getIngredients(0, 3));
+		Assert.assertEquals(ingredientList.subList(3, ingredientList.size()), ingredientFilter.getIngredients(3, 100));
+		Assert.assertTrue(ingredientFilter.getIngredients(ingredientList.size(), 10).isEmpty());
+	}
+
+	@Test
+	public void testBatchedRuntimeChanges() {
+		Assert.assertNotNull(ingredientFilter);
+		Assert.assertNotNull(ingredientRegistry);
+		Assert.assertNotNull(baseList);
+
+		ingredientFilter.addIngredients(baseList);
+
+		List<TestIngredient> ingredientsToAdd = new ArrayList<>();
+		for (int i = TestPlugin.BASE_INGREDIENT_COUNT; i < TestPlugin.BASE_INGREDIENT_COUNT + EXTRA_INGREDIENT_COUNT; i++) {
+			ingredientsToAdd.add(new TestIngredient(i));
+		}
+
+		ingredientRegistry.beginBatch();
+		ingredientRegistry.addIngredientsAtRuntime(TestIngredient.TYPE, ingredientsToAdd, ingredientFilter);
+		ingredientRegistry.beginBatch();
+		// removing an ingredient added in the same batch cancels the addition, adding one twice adds it once
+		ingredientRegistry.removeIngredientsAtRuntime(TestIngredient.TYPE, Collections.singletonList(ingredientsToAdd.get(0)), ingredientFilter);
+		ingredientRegistry.addIngredientsAtRuntime(TestIngredient.TYPE, Collections.singletonList(ingredientsToAdd.get(1)), ingredientFilter);
+		ingredientRegistry.commitBatch();
+
+		Assert.assertEquals(TestPlugin.BASE_INGREDIENT_COUNT, ingredientFilter.size());
+
+		ingredientRegistry.commitBatch();
+
+		Assert.assertEquals(TestPlugin.BASE_INGREDIENT_COUNT + EXTRA_INGREDIENT_COUNT - 1, ingredientFilter.size());
+		Collection<TestIngredient> testIngredients = ingredientRegistry.getAllIngredients(TestIngredient.TYPE);
+		Assert.assertEquals(TestPlugin.BASE_INGREDIENT_COUNT + EXTRA_INGREDIENT_COUNT - 1, testIngredients.size());
+
+		List<IIngredientListElement> ingredientList = ingredientFilter.getIngredientList();
+		List<IIngredientListElement> sortedList = new ArrayList<>(ingredientList);
+		sortedList.sort(IngredientListElementComparator.INSTANCE);
+		Assert.assertEquals(sortedList, ingredientList);
+	}
+
+	@Test
+	public void testAbortedBatch() {
+		Assert.assertNotNull(ingredientFilter);
+		Assert.assertNotNull(ingredientRegistry);
+		Assert.assertNotNull(baseList);
+
+		ingredientFilter.addIngredients(baseList);
+
+		List<TestIngredient> ingredientsToAdd = new ArrayList<>();
+		for (int i = TestPlugin.BASE_INGREDIENT_COUNT; i < TestPlugin.BASE_INGREDIENT_COUNT + EXTRA_INGREDIENT_COUNT; i++) {
+			ingredientsToAdd.add(new TestIngredient(i));
+		}
+
+		// aborting a nested batch discards the changes of the outer batch too
+		ingredientRegistry.beginBatch();
+		ingredientRegistry.addIngredientsAtRuntime(TestIngredient.TYPE, ingredientsToAdd.subList(0, 1), ingredientFilter);
+		ingredientRegistry.beginBatch();
+		ingredientRegistry.addIngredientsAtRuntime(TestIngredient.TYPE, ingredientsToAdd.subList(1, 2), ingredientFilter);
+		ingredientRegistry.abortBatch();
+		ingredientRegistry.commitBatch();
+
+		Assert.assertEquals(TestPlugin.BASE_INGREDIENT_COUNT, ingredientFilter.size());
+
+		// once the batch has ended, changes are applied right away again
+		ingredientRegistry.addIngredientsAtRuntime(TestIngredient.TYPE, ingredientsToAdd, ingredientFilter);
+		Assert.assertEquals(TestPlugin.BASE_INGREDIENT_COUNT + EXTRA_INGREDIENT_COUNT, ingredientFilter.size());
+	}
+
 	private void addIngredients(IngredientFilter ingredientFilter) {
 		Assert.assertNotNull(ingredientRegistry);
 		Assert.assertNotNull(modIdHelper);
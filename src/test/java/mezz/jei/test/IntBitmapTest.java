@@ -0,0 +1,125 @@
+package mezz.jei.test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import mezz.jei.collect.IntBitmap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntBitmapTest {
+	@Test
+	public void testSetOperationsMatchTreeSet() {
+		Random random = new Random(42);
+		for (int round = 0; round < 20; round++) {
+			// mix sparse and dense chunks so both container types are exercised
+			int bound = round % 2 == 0 ? 300_000 : 70_000;
+			int count = random.nextInt(round % 3 == 0 ? 100_000 : 3_000);
+			TreeSet<Integer> set1 = randomSet(random, count, bound);
+			TreeSet<Integer> set2 = randomSet(random, random.nextInt(50_000), bound);
+			IntBitmap bitmap1 = toBitmap(set1);
+			IntBitmap bitmap2 = toBitmap(set2);
+
+			TreeSet<Integer> expectedAnd = new TreeSet<>(set1);
+			expectedAnd.retainAll(set2);
+			TreeSet<Integer> expectedOr = new TreeSet<>(set1);
+			expectedOr.addAll(set2);
+			TreeSet<Integer> expectedAndNot = new TreeSet<>(set1);
+			expectedAndNot.removeAll(set2);
+
+			Assert.assertArrayEquals(toArray(set1), bitmap1.toArray());
+			Assert.assertArrayEquals(toArray(expectedAnd), bitmap1.and(bitmap2).toArray());
+			Assert.assertArrayEquals(toArray(expectedOr), bitmap1.or(bitmap2).toArray());
+			Assert.assertArrayEquals(toArray(expectedAndNot), bitmap1.andNot(bitmap2).toArray());
+			Assert.assertEquals(expectedOr.size(), bitmap1.or(bitmap2).cardinality());
+		}
+	}
+
+	@Test
+	public void testIteratorAndContains() {
+		IntBitmap bitmap = IntBitmap.of(5, 1, 70_000, 5, 65_535, 65_536);
+		Assert.assertEquals(5, bitmap.cardinality());
+		Assert.assertArrayEquals(new int[]{1, 5, 65_535, 65_536, 70_000}, bitmap.toArray());
+		Assert.assertTrue(bitmap.contains(65_536));
+		Assert.assertFalse(bitmap.contains(2));
+		Assert.assertFalse(bitmap.contains(-1));
+
+		int[] iterated = new int[bitmap.cardinality()];
+		int i = 0;
+		for (IntIterator iterator = bitmap.iterator(); iterator.hasNext(); ) {
+			iterated[i++] = iterator.nextInt();
+		}
+		Assert.assertArrayEquals(bitmap.toArray(), iterated);
+
+		IntBitmap range = IntBitmap.range(10, 100_010);
+		Assert.assertEquals(100_000, range.cardinality());
+		Assert.assertTrue(range.contains(10));
+		Assert.assertFalse(range.contains(100_010));
+		Assert.assertEquals(IntBitmap.EMPTY, range.andNot(range));
+	}
+
+	@Test
+	public void testFromBitSet() {
+		Random random = new Random(7);
+		BitSet bitSet = new BitSet();
+		TreeSet<Integer> expected = new TreeSet<>();
+		// a dense chunk, a sparse chunk and an empty chunk between them
+		for (int i = 0; i < 30_000; i++) {
+			int value = random.nextInt(65_536);
+			bitSet.set(value);
+			expected.add(value);
+		}
+		for (int i = 0; i < 100; i++) {
+			int value = 3 * 65_536 + random.nextInt(65_536);
+			bitSet.set(value);
+			expected.add(value);
+		}
+
+		IntBitmap bitmap = IntBitmap.fromBitSet(bitSet);
+		Assert.assertEquals(toBitmap(expected), bitmap);
+		Assert.assertEquals(expected.size(), bitmap.cardinality());
+		Assert.assertEquals(IntBitmap.EMPTY, IntBitmap.fromBitSet(new BitSet()));
+	}
+
+	@Test
+	public void testToArrayRange() {
+		Random random = new Random(99);
+		// a dense chunk followed by a sparse one
+		TreeSet<Integer> set = randomSet(random, 20_000, 65_536);
+		set.addAll(randomSet(random, 500, 200_000));
+		IntBitmap bitmap = toBitmap(set);
+		int[] all = bitmap.toArray();
+
+		for (int start : new int[]{0, 1, 63, 64, 1000, all.length - 10, all.length, all.length + 5}) {
+			for (int length : new int[]{0, 1, 100, 5000}) {
+				int from = Math.min(start, all.length);
+				int to = Math.min(from + length, all.length);
+				Assert.assertArrayEquals("start " + start + " length " + length, Arrays.copyOfRange(all, from, to), bitmap.toArray(start, length));
+			}
+		}
+	}
+
+	private static TreeSet<Integer> randomSet(Random random, int count, int bound) {
+		TreeSet<Integer> set = new TreeSet<>();
+		for (int i = 0; i < count; i++) {
+			set.add(random.nextInt(bound));
+		}
+		return set;
+	}
+
+	private static IntBitmap toBitmap(TreeSet<Integer> set) {
+		IntBitmap.Builder builder = new IntBitmap.Builder();
+		// add in descending order to exercise the builder's sort
+		for (int value : set.descendingSet()) {
+			builder.add(value);
+		}
+		return builder.build();
+	}
+
+	private static int[] toArray(TreeSet<Integer> set) {
+		return set.stream().mapToInt(Integer::intValue).toArray();
+	}
+}
@@ -0,0 +1,59 @@
+package mezz.jei.test;
+
+import java.util.Collections;
+import java.util.List;
+
+import mezz.jei.api.recipe.IFocus;
+import mezz.jei.recipes.RecipeLookupCache;
+import mezz.jei.test.lib.TestIngredient;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RecipeLookupCacheTest {
+	@Test
+	public void testKeys() {
+		RecipeLookupCache cache = new RecipeLookupCache();
+		List<String> categories = Collections.singletonList("category");
+		List<String> recipes = Collections.singletonList("recipe");
+		cache.put(IFocus.Mode.INPUT, TestIngredient.TYPE, "uid", null, categories);
+		cache.put(IFocus.Mode.INPUT, TestIngredient.TYPE, "uid", "category", recipes);
+
+		Assert.assertSame(categories, cache.get(IFocus.Mode.INPUT, TestIngredient.TYPE, "uid", null));
+		Assert.assertSame(recipes, cache.get(IFocus.Mode.INPUT, TestIngredient.TYPE, "uid", "category"));
+		Assert.assertNull(cache.get(IFocus.Mode.OUTPUT, TestIngredient.TYPE, "uid", null));
+		Assert.assertNull(cache.get(IFocus.Mode.INPUT, TestIngredient.TYPE, "other uid", null));
+		Assert.assertNull(cache.get(IFocus.Mode.INPUT, TestIngredient.TYPE, "uid", "other category"));
+
+		Assert.assertEquals(2, cache.getHits());
+		Assert.assertEquals(3, cache.getMisses());
+		Assert.assertEquals(0.4, cache.getHitRate(), 0.0001);
+	}
+
+	@Test
+	public void testInvalidate() {
+		RecipeLookupCache cache = new RecipeLookupCache();
+		cache.invalidate();
+		Assert.assertEquals("Invalidating an empty cache is not counted", 0, cache.getInvalidations());
+
+		cache.put(IFocus.Mode.INPUT, TestIngredient.TYPE, "uid", null, Collections.emptyList());
+		cache.invalidate();
+		Assert.assertEquals(1, cache.getInvalidations());
+		Assert.assertEquals(0, cache.size());
+		Assert.assertNull(cache.get(IFocus.Mode.INPUT, TestIngredient.TYPE, "uid", null));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedAreDropped() {
+		RecipeLookupCache cache = new RecipeLookupCache();
+		List<String> results = Collections.emptyList();
+		cache.put(IFocus.Mode.INPUT, TestIngredient.TYPE, "first", null, results);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(IFocus.Mode.INPUT, TestIngredient.TYPE, "uid" + i, null, results);
+			// keep using the first entry, so it is never the eldest
+			Assert.assertNotNull(cache.get(IFocus.Mode.INPUT, TestIngredient.TYPE, "first", null));
+		}
+		Assert.assertTrue(cache.size() < 1000);
+		Assert.assertNull(cache.get(IFocus.Mode.INPUT, TestIngredient.TYPE, "uid0", null));
+		Assert.assertNotNull(cache.get(IFocus.Mode.INPUT, TestIngredient.TYPE, "uid999", null));
+	}
+}
@@ -0,0 +1,101 @@
+package mezz.jei.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+import mezz.jei.api.ingredients.IIngredientHelper;
+import mezz.jei.api.recipe.IRecipeCategory;
+import mezz.jei.collect.UidInterner;
+import mezz.jei.ingredients.IngredientRegistry;
+import mezz.jei.recipes.RecipeCategoryComparator;
+import mezz.jei.recipes.RecipeMap;
+import mezz.jei.test.lib.TestIngredient;
+import mezz.jei.test.lib.TestPlugin;
+import mezz.jei.test.lib.TestRecipeCategory;
+import mezz.jei.test.lib.TestRecipeWrapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RecipeMapTest {
+	private static final int INPUT_COUNT = 3;
+
+	@Test
+	public void testLookups() {
+		final int ingredientCount = 200;
+		IngredientRegistry ingredientRegistry = TestPlugin.createIngredientRegistry(ingredientCount);
+		List<IRecipeCategory> recipeCategories = createRecipeCategories(5);
+		RecipeMap recipeMap = new RecipeMap(new RecipeCategoryComparator(recipeCategories), ingredientRegistry, new UidInterner());
+
+		Random random = new Random(1234);
+		List<TestRecipeWrapper> recipes = new ArrayList<>();
+		List<TestRecipeCategory> recipeCategoriesOfRecipes = new ArrayList<>();
+		List<List<TestIngredient>> inputsOfRecipes = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			List<TestIngredient> inputs = createIngredients(random, ingredientCount, INPUT_COUNT);
+			TestRecipeWrapper recipe = new TestRecipeWrapper(inputs, Collections.emptyList());
+			TestRecipeCategory recipeCategory = (TestRecipeCategory) recipeCategories.get(random.nextInt(recipeCategories.size()));
+			recipeMap.addRecipe(recipe, recipeCategory, Collections.singletonMap(TestIngredient.TYPE, inputs));
+			recipes.add(recipe);
+			recipeCategoriesOfRecipes.add(recipeCategory);
+			inputsOfRecipes.add(inputs);
+		}
+
+		// a catalyst makes its category show up for an ingredient without any recipes
+		TestRecipeCategory catalystCategory = (TestRecipeCategory) recipeCategories.get(4);
+		TestIngredient catalyst = new TestIngredient(ingredientCount);
+		IIngredientHelper<TestIngredient> ingredientHelper = ingredientRegistry.getIngredientHelper(TestIngredient.TYPE);
+		recipeMap.addRecipeCategory(catalystCategory, catalyst, ingredientHelper);
+		Assert.assertEquals(Collections.singletonList(catalystCategory.getUid()), recipeMap.getRecipeCategories(catalyst));
+		Assert.assertTrue(recipeMap.getRecipeWrappers(catalystCategory, catalyst).isEmpty());
+
+		recipeMap.trimToSize();
+
+		for (int number = 0; number < ingredientCount; number++) {
+			TestIngredient ingredient = new TestIngredient(number);
+			List<String> expectedCategories = new ArrayList<>();
+			for (IRecipeCategory recipeCategory : recipeCategories) {
+				List<TestRecipeWrapper> expectedRecipes = new ArrayList<>();
+				for (int i = 0; i < recipes.size(); i++) {
+					if (recipeCategoriesOfRecipes.get(i) == recipeCategory && containsNumber(inputsOfRecipes.get(i), number)) {
+						expectedRecipes.add(recipes.get(i));
+					}
+				}
+				if (!expectedRecipes.isEmpty()) {
+					expectedCategories.add(recipeCategory.getUid());
+				}
+				//noinspection unchecked
+				ImmutableList<TestRecipeWrapper> recipeWrappers = recipeMap.getRecipeWrappers((IRecipeCategory<TestRecipeWrapper>) recipeCategory, ingredient);
+				Assert.assertEquals("Recipes of " + ingredient + " in " + recipeCategory.getUid(), expectedRecipes, recipeWrappers);
+			}
+			Assert.assertEquals("Recipe categories of " + ingredient, expectedCategories, recipeMap.getRecipeCategories(ingredient));
+		}
+	}
+
+	private static List<IRecipeCategory> createRecipeCategories(int count) {
+		List<IRecipeCategory> recipeCategories = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			recipeCategories.add(new TestRecipeCategory("category" + i));
+		}
+		return recipeCategories;
+	}
+
+	private static List<TestIngredient> createIngredients(Random random, int ingredientCount, int count) {
+		List<TestIngredient> ingredients = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ingredients.add(new TestIngredient(random.nextInt(ingredientCount)));
+		}
+		return ingredients;
+	}
+
+	private static boolean containsNumber(List<TestIngredient> ingredients, int number) {
+		for (TestIngredient ingredient : ingredients) {
+			if (ingredient.getNumber() == number) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,332 @@
+package mezz.jei.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.minecraft.client.gui.inventory.GuiContainer;
+
+import com.google.common.collect.ImmutableTable;
+import mezz.jei.Internal;
+import mezz.jei.api.ingredients.IIngredients;
+import mezz.jei.api.recipe.IFocus;
+import mezz.jei.api.recipe.IMainThreadOnly;
+import mezz.jei.api.recipe.IRecipeCategory;
+import mezz.jei.api.recipe.IRecipeHandler;
+import mezz.jei.api.recipe.IRecipeRegistryPlugin;
+import mezz.jei.api.recipe.IRecipeWrapper;
+import mezz.jei.collect.ListMultiMap;
+import mezz.jei.gui.Focus;
+import mezz.jei.gui.recipes.RecipeClickableArea;
+import mezz.jei.ingredients.IngredientBlacklistInternal;
+import mezz.jei.ingredients.IngredientFilter;
+import mezz.jei.ingredients.IngredientListElementFactory;
+import mezz.jei.ingredients.IngredientRegistry;
+import mezz.jei.recipes.RecipeRegistry;
+import mezz.jei.test.lib.TestIngredient;
+import mezz.jei.test.lib.TestModIdHelper;
+import mezz.jei.test.lib.TestPlugin;
+import mezz.jei.test.lib.TestRecipeCategory;
+import mezz.jei.test.lib.TestRecipeWrapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RecipeRegistryTest {
+	@After
+	public void clearIngredientFilter() {
+		// testCatalystRecipesComeFirst registers one on the event bus
+		Internal.clearIngredientFilter();
+	}
+
+	@Test
+	public void testParallelLoadingKeepsRecipeOrder() {
+		final int ingredientCount = 1000;
+		IngredientRegistry ingredientRegistry = TestPlugin.createIngredientRegistry(ingredientCount);
+
+		List<IRecipeCategory> recipeCategories = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			recipeCategories.add(new TestRecipeCategory("category" + i));
+		}
+
+		Random random = new Random(1234);
+		ListMultiMap<String, Object> recipes = new ListMultiMap<>();
+		List<MainThreadRecipeWrapper> mainThreadRecipes = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			List<TestIngredient> inputs = Collections.singletonList(new TestIngredient(random.nextInt(ingredientCount)));
+			List<TestIngredient> outputs = Collections.singletonList(new TestIngredient(random.nextInt(ingredientCount)));
+			TestRecipeWrapper recipe;
+			if (i % 10 == 0) {
+				MainThreadRecipeWrapper mainThreadRecipe = new MainThreadRecipeWrapper(inputs, outputs);
+				mainThreadRecipes.add(mainThreadRecipe);
+				recipe = mainThreadRecipe;
+			} else {
+				recipe = new TestRecipeWrapper(inputs, outputs);
+			}
+			String recipeCategoryUid = recipeCategories.get(random.nextInt(recipeCategories.size())).getUid();
+			recipes.put(recipeCategoryUid, recipe);
+			if (i % 1000 == 0) {
+				// registering a recipe twice adds it twice, like loading them one by one did
+				recipes.put(recipeCategoryUid, recipe);
+			}
+		}
+
+		RecipeRegistry recipeRegistry = createRecipeRegistry(ingredientRegistry, recipeCategories, recipes, new ListMultiMap<>(), Collections.emptyList());
+
+		for (IRecipeCategory recipeCategory : recipeCategories) {
+			//noinspection unchecked
+			Assert.assertEquals(recipeCategory.getUid(), recipes.get(recipeCategory.getUid()), recipeRegistry.getRecipeWrappers(recipeCategory));
+		}
+		Thread mainThread = Thread.currentThread();
+		for (MainThreadRecipeWrapper mainThreadRecipe : mainThreadRecipes) {
+			Assert.assertSame(mainThread, mainThreadRecipe.ingredientsThread);
+		}
+	}
+
+	@Test
+	public void testCatalystRecipesComeFirst() {
+		TestModIdHelper modIdHelper = new TestModIdHelper();
+		IngredientBlacklistInternal blacklist = new IngredientBlacklistInternal();
+		IngredientRegistry ingredientRegistry = TestPlugin.createIngredientRegistry(100, modIdHelper, blacklist);
+		// categories are only visible while one of their catalysts is
+		IngredientFilter ingredientFilter = new IngredientFilter(blacklist);
+		ingredientFilter.addIngredients(IngredientListElementFactory.createBaseList(ingredientRegistry, modIdHelper));
+		Internal.setIngredientFilter(ingredientFilter);
+
+		TestRecipeCategory recipeCategory = new TestRecipeCategory("category");
+		TestIngredient catalyst = new TestIngredient(0);
+		ListMultiMap<String, Object> recipeCatalysts = new ListMultiMap<>();
+		recipeCatalysts.put(recipeCategory.getUid(), catalyst);
+
+		Random random = new Random(1234);
+		ListMultiMap<String, Object> recipes = new ListMultiMap<>();
+		List<Object> catalystRecipes = new ArrayList<>();
+		List<Object> otherRecipes = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			TestIngredient input = new TestIngredient(random.nextInt(10));
+			TestRecipeWrapper recipe = new TestRecipeWrapper(Collections.singletonList(input), Collections.emptyList());
+			recipes.put(recipeCategory.getUid(), recipe);
+			if (input.getNumber() == catalyst.getNumber()) {
+				catalystRecipes.add(recipe);
+			} else {
+				otherRecipes.add(recipe);
+			}
+		}
+
+		RecipeRegistry recipeRegistry = createRecipeRegistry(ingredientRegistry, Collections.singletonList(recipeCategory), recipes, recipeCatalysts, Collections.emptyList());
+
+		IFocus<TestIngredient> focus = new Focus<>(IFocus.Mode.INPUT, catalyst);
+		Assert.assertEquals(concat(catalystRecipes, otherRecipes), recipeRegistry.getRecipeWrappers(recipeCategory, focus));
+
+		// the list for the catalyst is built again when recipes are added
+		TestRecipeWrapper addedRecipe = new TestRecipeWrapper(Collections.singletonList(catalyst.copy()), Collections.emptyList());
+		recipeRegistry.addRecipe(addedRecipe, recipeCategory.getUid());
+		catalystRecipes.add(addedRecipe);
+		Assert.assertEquals(concat(catalystRecipes, otherRecipes), recipeRegistry.getRecipeWrappers(recipeCategory, focus));
+	}
+
+	private static List<Object> concat(List<Object> first, List<Object> second) {
+		List<Object> list = new ArrayList<>(first);
+		list.addAll(second);
+		return list;
+	}
+
+	private static RecipeRegistry createRecipeRegistry(IngredientRegistry ingredientRegistry, List<IRecipeCategory> recipeCategories, ListMultiMap<String, Object> recipes, ListMultiMap<String, Object> recipeCatalysts, List<IRecipeRegistryPlugin> plugins) {
+		return createRecipeRegistry(ingredientRegistry, recipeCategories, Collections.emptyList(), new ListMultiMap<>(), recipes, recipeCatalysts, plugins);
+	}
+
+	private static RecipeRegistry createRecipeRegistry(
+		IngredientRegistry ingredientRegistry,
+		List<IRecipeCategory> recipeCategories,
+		List<IRecipeHandler> unsortedRecipeHandlers,
+		ListMultiMap<String, IRecipeHandler> recipeHandlers,
+		ListMultiMap<String, Object> recipes,
+		ListMultiMap<String, Object> recipeCatalysts,
+		List<IRecipeRegistryPlugin> plugins
+	) {
+		return new RecipeRegistry(
+			recipeCategories,
+			unsortedRecipeHandlers,
+			recipeHandlers,
+			ImmutableTable.of(),
+			Collections.emptyList(),
+			recipes,
+			new ListMultiMap<Class<? extends GuiContainer>, RecipeClickableArea>(),
+			recipeCatalysts,
+			ingredientRegistry,
+			plugins
+		);
+	}
+
+	@Test
+	public void testModPluginResultsAreNotCached() {
+		IngredientRegistry ingredientRegistry = TestPlugin.createIngredientRegistry(10);
+
+		TestRecipeCategory recipeCategory = new TestRecipeCategory("category");
+		TestRecipeCategory pluginRecipeCategory = new TestRecipeCategory("plugin category");
+		TestIngredient ingredient = new TestIngredient(0);
+		// has the same uid, like an item that only differs by nbt the uid does not include
+		TestIngredient pluginIngredient = ingredient.copy();
+		TestRecipeWrapper recipe = new TestRecipeWrapper(Collections.singletonList(ingredient), Collections.emptyList());
+		TestRecipeWrapper pluginRecipe = new TestRecipeWrapper(Collections.singletonList(pluginIngredient), Collections.emptyList());
+		ListMultiMap<String, Object> recipes = new ListMultiMap<>();
+		recipes.put(recipeCategory.getUid(), recipe);
+
+		IRecipeRegistryPlugin plugin = new SingleIngredientPlugin(pluginIngredient, pluginRecipeCategory.getUid(), pluginRecipe);
+		RecipeRegistry recipeRegistry = createRecipeRegistry(ingredientRegistry, Arrays.asList(recipeCategory, pluginRecipeCategory), recipes, new ListMultiMap<>(), Collections.singletonList(plugin));
+
+		IFocus<TestIngredient> focus = new Focus<>(IFocus.Mode.INPUT, ingredient);
+		IFocus<TestIngredient> pluginFocus = new Focus<>(IFocus.Mode.INPUT, pluginIngredient);
+		// looked up twice, the second time the recipes of the internal plugin come from the cache
+		for (int i = 0; i < 2; i++) {
+			Assert.assertEquals(Collections.singletonList(recipeCategory), recipeRegistry.getRecipeCategories(focus));
+			Assert.assertEquals(Collections.singletonList(recipe), recipeRegistry.getRecipeWrappers(recipeCategory, focus));
+			Assert.assertEquals(Collections.emptyList(), recipeRegistry.getRecipeWrappers(pluginRecipeCategory, focus));
+
+			Assert.assertEquals(Arrays.asList(recipeCategory, pluginRecipeCategory), recipeRegistry.getRecipeCategories(pluginFocus));
+			Assert.assertEquals(Collections.singletonList(recipe), recipeRegistry.getRecipeWrappers(recipeCategory, pluginFocus));
+			Assert.assertEquals(Collections.singletonList(pluginRecipe), recipeRegistry.getRecipeWrappers(pluginRecipeCategory, pluginFocus));
+		}
+	}
+
+	@Test
+	public void testRecipeHandlerResolutionOrder() {
+		IngredientRegistry ingredientRegistry = TestPlugin.createIngredientRegistry(10);
+
+		TestRecipeCategory recipeCategory = new TestRecipeCategory("category");
+		TestRecipeCategory otherRecipeCategory = new TestRecipeCategory("other category");
+		TestRecipeHandler<BaseRecipe> baseHandler = new TestRecipeHandler<>(BaseRecipe.class, recipeCategory.getUid());
+		TestRecipeHandler<SubRecipe> subHandler = new TestRecipeHandler<>(SubRecipe.class, recipeCategory.getUid());
+		TestRecipeHandler<SubRecipe> unsortedSubHandler = new TestRecipeHandler<>(SubRecipe.class, otherRecipeCategory.getUid());
+		TestRecipeHandler<SubSubRecipe> unsortedSubSubHandler = new TestRecipeHandler<>(SubSubRecipe.class, otherRecipeCategory.getUid());
+		ListMultiMap<String, IRecipeHandler> recipeHandlers = new ListMultiMap<>();
+		recipeHandlers.put(recipeCategory.getUid(), baseHandler);
+		recipeHandlers.put(recipeCategory.getUid(), subHandler);
+
+		RecipeRegistry recipeRegistry = createRecipeRegistry(
+			ingredientRegistry,
+			Arrays.asList(recipeCategory, otherRecipeCategory),
+			Arrays.asList(unsortedSubHandler, unsortedSubSubHandler),
+			recipeHandlers,
+			new ListMultiMap<>(),
+			new ListMultiMap<>(),
+			Collections.emptyList()
+		);
+
+		// looked up twice, the second time comes from the cache
+		for (int i = 0; i < 2; i++) {
+			// exact handlers of categories come before exact unsorted handlers
+			Assert.assertSame(subHandler, recipeRegistry.getRecipeHandler(SubRecipe.class));
+			// exact unsorted handlers come before handlers of a super class
+			Assert.assertSame(unsortedSubSubHandler, recipeRegistry.getRecipeHandler(SubSubRecipe.class));
+			// the first handler of a super class is used
+			Assert.assertSame(baseHandler, recipeRegistry.getRecipeHandler(OtherSubRecipe.class));
+			Assert.assertNull(recipeRegistry.getRecipeHandler(String.class));
+
+			// only the handlers of the category and the unsorted handlers are used for a category
+			Assert.assertSame(unsortedSubHandler.recipeWrapper, recipeRegistry.getRecipeWrapper(new SubRecipe(), otherRecipeCategory.getUid()));
+			Assert.assertSame(subHandler.recipeWrapper, recipeRegistry.getRecipeWrapper(new SubRecipe(), recipeCategory.getUid()));
+			Assert.assertNull(recipeRegistry.getRecipeWrapper(new BaseRecipe(), otherRecipeCategory.getUid()));
+		}
+	}
+
+	/**
+	 * Has a recipe for one ingredient instance only, like a plugin that looks at the nbt of the focused ingredient.
+	 */
+	private static class SingleIngredientPlugin implements IRecipeRegistryPlugin {
+		private final TestIngredient ingredient;
+		private final String recipeCategoryUid;
+		private final TestRecipeWrapper recipe;
+
+		public SingleIngredientPlugin(TestIngredient ingredient, String recipeCategoryUid, TestRecipeWrapper recipe) {
+			this.ingredient = ingredient;
+			this.recipeCategoryUid = recipeCategoryUid;
+			this.recipe = recipe;
+		}
+
+		@Override
+		public <V> List<String> getRecipeCategoryUids(IFocus<V> focus) {
+			if (focus.getValue() == ingredient) {
+				return Collections.singletonList(recipeCategoryUid);
+			}
+			return Collections.emptyList();
+		}
+
+		@Override
+		public <T extends IRecipeWrapper, V> List<T> getRecipeWrappers(IRecipeCategory<T> recipeCategory, IFocus<V> focus) {
+			if (focus.getValue() == ingredient && recipeCategory.getUid().equals(recipeCategoryUid)) {
+				//noinspection unchecked
+				return Collections.singletonList((T) recipe);
+			}
+			return Collections.emptyList();
+		}
+
+		@Override
+		public <T extends IRecipeWrapper> List<T> getRecipeWrappers(IRecipeCategory<T> recipeCategory) {
+			if (recipeCategory.getUid().equals(recipeCategoryUid)) {
+				//noinspection unchecked
+				return Collections.singletonList((T) recipe);
+			}
+			return Collections.emptyList();
+		}
+	}
+
+	private static class BaseRecipe {
+	}
+
+	private static class SubRecipe extends BaseRecipe {
+	}
+
+	private static class SubSubRecipe extends SubRecipe {
+	}
+
+	private static class OtherSubRecipe extends SubRecipe {
+	}
+
+	private static class TestRecipeHandler<T> implements IRecipeHandler<T> {
+		private final Class<T> recipeClass;
+		private final String recipeCategoryUid;
+		private final IRecipeWrapper recipeWrapper = new TestRecipeWrapper(Collections.emptyList(), Collections.emptyList());
+
+		public TestRecipeHandler(Class<T> recipeClass, String recipeCategoryUid) {
+			this.recipeClass = recipeClass;
+			this.recipeCategoryUid = recipeCategoryUid;
+		}
+
+		@Override
+		public Class<T> getRecipeClass() {
+			return recipeClass;
+		}
+
+		@Override
+		public String getRecipeCategoryUid(T recipe) {
+			return recipeCategoryUid;
+		}
+
+		@Override
+		public IRecipeWrapper getRecipeWrapper(T recipe) {
+			return recipeWrapper;
+		}
+
+		@Override
+		public boolean isRecipeValid(T recipe) {
+			return true;
+		}
+	}
+
+	private static class MainThreadRecipeWrapper extends TestRecipeWrapper implements IMainThreadOnly {
+		private Thread ingredientsThread;
+
+		public MainThreadRecipeWrapper(List<TestIngredient> inputs, List<TestIngredient> outputs) {
+			super(inputs, outputs);
+		}
+
+		@Override
+		public void getIngredients(IIngredients ingredients) {
+			this.ingredientsThread = Thread.currentThread();
+			super.getIngredients(ingredients);
+		}
+	}
+}
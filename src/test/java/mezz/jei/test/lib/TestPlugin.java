@@ -10,6 +10,10 @@ import mezz.jei.api.IModPlugin;
 import mezz.jei.api.JEIPlugin;
 import mezz.jei.api.ingredients.IIngredientRenderer;
 import mezz.jei.api.ingredients.IModIngredientRegistration;
+import mezz.jei.ingredients.IngredientBlacklistInternal;
+import mezz.jei.ingredients.IngredientRegistry;
+import mezz.jei.startup.IModIdHelper;
+import mezz.jei.startup.ModIngredientRegistration;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.util.ITooltipFlag;
 
@@ -17,10 +21,37 @@ import net.minecraft.client.util.ITooltipFlag;
 public class TestPlugin implements IModPlugin {
 	public static final int BASE_INGREDIENT_COUNT = 2;
 
+	private final int ingredientCount;
+
+	public TestPlugin() {
+		this(BASE_INGREDIENT_COUNT);
+	}
+
+	/**
+	 * Registers a larger number of test ingredients, for benchmarks.
+	 */
+	public TestPlugin(int ingredientCount) {
+		this.ingredientCount = ingredientCount;
+	}
+
+	/**
+	 * Creates an ingredient registry with this number of test ingredients.
+	 */
+	public static IngredientRegistry createIngredientRegistry(int ingredientCount) {
+		return createIngredientRegistry(ingredientCount, new TestModIdHelper(), new IngredientBlacklistInternal());
+	}
+
+	public static IngredientRegistry createIngredientRegistry(int ingredientCount, IModIdHelper modIdHelper, IngredientBlacklistInternal blacklist) {
+		TestPlugin testPlugin = new TestPlugin(ingredientCount);
+		ModIngredientRegistration modIngredientRegistry = new ModIngredientRegistration();
+		testPlugin.registerIngredients(modIngredientRegistry);
+		return modIngredientRegistry.createIngredientRegistry(modIdHelper, blacklist);
+	}
+
 	@Override
 	public void registerIngredients(IModIngredientRegistration ingredientRegistry) {
 		Collection<TestIngredient> baseTestIngredients = new ArrayList<>();
-		for (int i = 0; i < BASE_INGREDIENT_COUNT; i++) {
+		for (int i = 0; i < ingredientCount; i++) {
 			baseTestIngredients.add(new TestIngredient(i));
 		}
 
@@ -0,0 +1,41 @@
+package mezz.jei.test.lib;
+
+import mezz.jei.api.gui.IDrawable;
+import mezz.jei.api.gui.IRecipeLayout;
+import mezz.jei.api.ingredients.IIngredients;
+import mezz.jei.api.recipe.IRecipeCategory;
+import mezz.jei.gui.elements.DrawableBlank;
+
+public class TestRecipeCategory implements IRecipeCategory<TestRecipeWrapper> {
+	private final String uid;
+	private final IDrawable background = new DrawableBlank(100, 50);
+
+	public TestRecipeCategory(String uid) {
+		this.uid = uid;
+	}
+
+	@Override
+	public String getUid() {
+		return uid;
+	}
+
+	@Override
+	public String getTitle() {
+		return "Test Recipe Category " + uid;
+	}
+
+	@Override
+	public String getModName() {
+		return "JEI Test Mod";
+	}
+
+	@Override
+	public IDrawable getBackground() {
+		return background;
+	}
+
+	@Override
+	public void setRecipe(IRecipeLayout recipeLayout, TestRecipeWrapper recipeWrapper, IIngredients ingredients) {
+		// test recipes are never displayed
+	}
+}
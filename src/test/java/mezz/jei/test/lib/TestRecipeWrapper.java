@@ -0,0 +1,27 @@
+package mezz.jei.test.lib;
+
+import java.util.List;
+
+import mezz.jei.api.ingredients.IIngredients;
+import mezz.jei.api.recipe.IRecipeWrapper;
+
+public class TestRecipeWrapper implements IRecipeWrapper {
+	private final List<TestIngredient> inputs;
+	private final List<TestIngredient> outputs;
+
+	public TestRecipeWrapper(List<TestIngredient> inputs, List<TestIngredient> outputs) {
+		this.inputs = inputs;
+		this.outputs = outputs;
+	}
+
+	@Override
+	public void getIngredients(IIngredients ingredients) {
+		ingredients.setInputs(TestIngredient.TYPE, inputs);
+		ingredients.setOutputs(TestIngredient.TYPE, outputs);
+	}
+
+	@Override
+	public String toString() {
+		return "TestRecipeWrapper" + inputs + "->" + outputs;
+	}
+}